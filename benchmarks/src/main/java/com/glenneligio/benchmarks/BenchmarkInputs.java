@@ -0,0 +1,137 @@
+package com.glenneligio.benchmarks;
+
+import com.glenneligio.model.YamlFileEnvEntry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generates the input files of the benchmarks. The files have the same kind of content as the test resources:
+ * comments, empty lines, static values, placeholders with and without default values and secrets.
+ */
+final class BenchmarkInputs {
+
+    static final String TARGET_IMAGE = "client-service";
+
+    private BenchmarkInputs() {
+    }
+
+    static String envName(int index) {
+        return "ENV_" + index;
+    }
+
+    /**
+     * Writes a .properties file where most of the entries use a placeholder and one in ten have a static value or are comments.
+     */
+    static void writePropertiesFile(Path file, int entryCount) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < entryCount; i++) {
+                switch (i % 10) {
+                    case 0:
+                        writer.write("# comment line " + i);
+                        break;
+                    case 1:
+                        writer.write("property.static." + i + "=STATIC_VALUE");
+                        break;
+                    case 2:
+                        writer.write("property.url." + i + "=jdbc:postgresql://${" + envName(i) + "}:${" + envName(i + 1) + ":5432}/app");
+                        break;
+                    case 3:
+                        writer.write("property.no.default." + i + "=${" + envName(i) + "}");
+                        break;
+                    default:
+                        writer.write("property.default." + i + "=${" + envName(i) + ":default=value:" + i + "}");
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes a .env file where most of the entries have a default value and one in ten are comments, empty lines or quoted.
+     */
+    static void writeEnvFile(Path file, int entryCount) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < entryCount; i++) {
+                switch (i % 10) {
+                    case 0:
+                        writer.write("# comment line " + i);
+                        break;
+                    case 1:
+                        break;
+                    case 2:
+                        writer.write("export " + envName(i) + "=\"quoted # value " + i + "\"");
+                        break;
+                    case 3:
+                        writer.write(envName(i) + "=");
+                        break;
+                    default:
+                        writer.write(envName(i) + "=defaultValue" + i + " # inline comment");
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @return env entries for half of the entries of the generated files, with one in five of them secret,
+     * and as many entries not present in the files
+     */
+    static List<YamlFileEnvEntry> yamlEnvEntries(int entryCount) {
+        List<YamlFileEnvEntry> yamlEnvEntries = new ArrayList<>();
+        for(int i = 0; i < entryCount; i += 2) {
+            yamlEnvEntries.add(toYamlEnvEntry(envName(i), i));
+        }
+        for(int i = 0; i < entryCount / 2; i++) {
+            yamlEnvEntries.add(toYamlEnvEntry("YAML_ONLY_" + i, i));
+        }
+        return yamlEnvEntries;
+    }
+
+    private static YamlFileEnvEntry toYamlEnvEntry(String envName, int index) {
+        return index % 5 == 0 ? new YamlFileEnvEntry(envName, null, true) : new YamlFileEnvEntry(envName, "yamlValue" + index, false);
+    }
+
+    /**
+     * Writes a multi-document manifest with a ConfigMap and a Deployment per document group.
+     * The container with the target image is in the last Deployment, so the whole manifest is read to find it.
+     */
+    static void writeManifest(Path file, int deploymentCount, int envCount) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int deployment = 0; deployment < deploymentCount; deployment++) {
+                writer.write("---\napiVersion: v1\nkind: ConfigMap\nmetadata:\n  name: config-" + deployment + "\ndata:\n");
+                for(int i = 0; i < envCount; i++) {
+                    writer.write("  key" + i + ": value" + i + "\n");
+                }
+                String image = deployment == deploymentCount - 1 ? TARGET_IMAGE : "service-" + deployment;
+                writer.write("---\napiVersion: apps/v1\nkind: Deployment\nmetadata:\n  name: deployment-" + deployment + "\n");
+                writer.write("spec:\n  template:\n    spec:\n      containers:\n");
+                writer.write("        - image: docker/light-proxy\n          env:\n            - name: PROXY_PORT\n              value: \"8080\"\n");
+                writer.write("        - image: " + image + "\n          env:\n");
+                for(int i = 0; i < envCount; i++) {
+                    if(i % 5 == 0) {
+                        writer.write("            - name: " + envName(i) + "\n              valueFrom:\n                secretKeyRef:\n" +
+                                "                  name: secret-" + deployment + "\n                  key: key" + i + "\n");
+                    } else {
+                        writer.write("            - name: " + envName(i) + "\n              value: \"yamlValue" + i + "\"\n");
+                    }
+                }
+            }
+        }
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
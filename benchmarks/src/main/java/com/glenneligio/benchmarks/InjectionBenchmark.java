@@ -0,0 +1,93 @@
+package com.glenneligio.benchmarks;
+
+import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.YamlEnvIndex;
+import com.glenneligio.service.EnvService;
+import com.glenneligio.service.EnvServiceImpl;
+import com.glenneligio.service.PropertiesService;
+import com.glenneligio.service.PropertiesServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing of the -injected .env and .properties files. The .env file and the entries variant of the .properties file
+ * are written from populated entries, while the yaml variant of the .properties file is read, matched and written
+ * in a single pass. The -injected files are deleted before each invocation, so the whole file is written instead
+ * of being compared with the one from the previous invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InjectionBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int entryCount;
+
+    private final EnvService envService = new EnvServiceImpl();
+    private final PropertiesService propertiesService = new PropertiesServiceImpl();
+    private Path directory;
+    private String envFile;
+    private Path injectedFile;
+    private List<EnvFileEntry> envFileEntries;
+    private String propertiesFile;
+    private Path injectedPropertiesFile;
+    private List<PropertiesFileEntry> propertiesFileEntries;
+    private YamlEnvIndex yamlEnvIndex;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("injection-benchmark");
+        Path env = directory.resolve(".env");
+        BenchmarkInputs.writeEnvFile(env, entryCount);
+        envFile = env.toString();
+        injectedFile = directory.resolve(".env-injected");
+
+        Path properties = directory.resolve("application.properties");
+        BenchmarkInputs.writePropertiesFile(properties, entryCount);
+        propertiesFile = properties.toString();
+        injectedPropertiesFile = directory.resolve("application.properties-injected");
+
+        yamlEnvIndex = new YamlEnvIndex(BenchmarkInputs.yamlEnvEntries(entryCount));
+        envFileEntries = envService.readOrCreateEnvFile(envFile);
+        envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvIndex);
+        envFileEntries.addAll(envService.addNewEnvFromYaml(envFileEntries, yamlEnvIndex));
+        propertiesFileEntries = propertiesService.getPropertiesFileEntriesFromPropertiesFile(propertiesFile);
+        propertiesService.populateEnvFileEntriesWithValuesFromYaml(propertiesFileEntries, yamlEnvIndex);
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteInjectedFiles() throws IOException {
+        Files.deleteIfExists(injectedFile);
+        Files.deleteIfExists(injectedPropertiesFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkInputs.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void injectEnvFound() throws IOException {
+        envService.injectEnvFound(envFileEntries, envFile);
+    }
+
+    @Benchmark
+    public void injectPropertiesEnvFound() throws IOException {
+        propertiesService.injectEnvFound(propertiesFileEntries, propertiesFile);
+    }
+
+    @Benchmark
+    public void injectPropertiesEnvFromYaml(Blackhole blackhole) throws IOException {
+        propertiesService.injectEnvFromYaml(propertiesFile, yamlEnvIndex, blackhole::consume);
+    }
+}
@@ -0,0 +1,79 @@
+package com.glenneligio.benchmarks;
+
+import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.YamlEnvIndex;
+import com.glenneligio.model.YamlFileEnvEntry;
+import com.glenneligio.service.EnvService;
+import com.glenneligio.service.EnvServiceImpl;
+import com.glenneligio.service.PropertiesService;
+import com.glenneligio.service.PropertiesServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching of the .env and .properties entries with the env entries of the yaml file, done by
+ * populateEnvFileEntriesWithValuesFromYaml of both services. The list variants build the yaml env index
+ * on each call, while the index variants reuse the one built at setup.
+ * Populating an entry twice gives the same entry, so the same entries are used on each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int entryCount;
+
+    private final PropertiesService propertiesService = new PropertiesServiceImpl();
+    private final EnvService envService = new EnvServiceImpl();
+    private List<EnvFileEntry> envFileEntries;
+    private List<PropertiesFileEntry> propertiesFileEntries;
+    private List<YamlFileEnvEntry> yamlFileEnvEntries;
+    private YamlEnvIndex yamlEnvIndex;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path directory = Files.createTempDirectory("matching-benchmark");
+        try {
+            Path env = directory.resolve(".env");
+            BenchmarkInputs.writeEnvFile(env, entryCount);
+            envFileEntries = envService.readOrCreateEnvFile(env.toString());
+            Path properties = directory.resolve("application.properties");
+            BenchmarkInputs.writePropertiesFile(properties, entryCount);
+            propertiesFileEntries = propertiesService.getPropertiesFileEntriesFromPropertiesFile(properties.toString());
+        } finally {
+            BenchmarkInputs.deleteDirectory(directory);
+        }
+        yamlFileEnvEntries = BenchmarkInputs.yamlEnvEntries(entryCount);
+        yamlEnvIndex = new YamlEnvIndex(yamlFileEnvEntries);
+    }
+
+    @Benchmark
+    public List<EnvFileEntry> populateEnvFileEntriesFromList() {
+        return envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlFileEnvEntries);
+    }
+
+    @Benchmark
+    public List<EnvFileEntry> populateEnvFileEntriesFromIndex() {
+        return envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvIndex);
+    }
+
+    @Benchmark
+    public List<PropertiesFileEntry> populatePropertiesFileEntriesFromList() {
+        return propertiesService.populateEnvFileEntriesWithValuesFromYaml(propertiesFileEntries, yamlFileEnvEntries);
+    }
+
+    @Benchmark
+    public List<PropertiesFileEntry> populatePropertiesFileEntriesFromIndex() {
+        return propertiesService.populateEnvFileEntriesWithValuesFromYaml(propertiesFileEntries, yamlEnvIndex);
+    }
+}
@@ -0,0 +1,62 @@
+package com.glenneligio.benchmarks;
+
+import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.service.EnvService;
+import com.glenneligio.service.EnvServiceImpl;
+import com.glenneligio.service.PropertiesService;
+import com.glenneligio.service.PropertiesServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the .properties and .env files into entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int entryCount;
+
+    private final PropertiesService propertiesService = new PropertiesServiceImpl();
+    private final EnvService envService = new EnvServiceImpl();
+    private Path directory;
+    private String propertiesFile;
+    private String envFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("parsing-benchmark");
+        Path properties = directory.resolve("application.properties");
+        BenchmarkInputs.writePropertiesFile(properties, entryCount);
+        propertiesFile = properties.toString();
+        Path env = directory.resolve(".env");
+        BenchmarkInputs.writeEnvFile(env, entryCount);
+        envFile = env.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkInputs.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<PropertiesFileEntry> getPropertiesFileEntriesFromPropertiesFile() throws IOException {
+        return propertiesService.getPropertiesFileEntriesFromPropertiesFile(propertiesFile);
+    }
+
+    @Benchmark
+    public List<EnvFileEntry> readOrCreateEnvFile() throws IOException {
+        return envService.readOrCreateEnvFile(envFile);
+    }
+}
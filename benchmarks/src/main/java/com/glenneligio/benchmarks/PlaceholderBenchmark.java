@@ -0,0 +1,82 @@
+package com.glenneligio.benchmarks;
+
+import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.service.PropertiesService;
+import com.glenneligio.service.PropertiesServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Finding the placeholders of property values. The tokenizer is measured through the parsing of a .properties file
+ * where each value is a placeholder, against the regex it replaced run on the same values, as called by
+ * String.matches on each value and precompiled. The regex only validates a value made of a single placeholder,
+ * so the values each have one placeholder. The regex variants do not read the file, so the difference with the
+ * parsing is an upper bound of the time spent in the tokenizer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceholderBenchmark {
+
+    private static final String PLACEHOLDER_REGEX = "^\\s*\\$\\{[A-Z0-9_]+(:[^}]+)?\\}\\s*$";
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile(PLACEHOLDER_REGEX);
+
+    @Param({"1000", "100000"})
+    private int entryCount;
+
+    private final PropertiesService propertiesService = new PropertiesServiceImpl();
+    private Path directory;
+    private String propertiesFile;
+    private String[] values;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("placeholder-benchmark");
+        Path properties = directory.resolve("application.properties");
+        values = new String[entryCount];
+        try (BufferedWriter writer = Files.newBufferedWriter(properties, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < entryCount; i++) {
+                values[i] = i % 2 == 0 ? "${" + BenchmarkInputs.envName(i) + ":default=value:" + i + "}" : "${" + BenchmarkInputs.envName(i) + "}";
+                writer.write("property." + i + "=" + values[i]);
+                writer.newLine();
+            }
+        }
+        propertiesFile = properties.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkInputs.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<PropertiesFileEntry> parseWithTokenizer() throws IOException {
+        return propertiesService.getPropertiesFileEntriesFromPropertiesFile(propertiesFile);
+    }
+
+    @Benchmark
+    public void regexMatches(Blackhole blackhole) {
+        for(String value : values) {
+            blackhole.consume(value.matches(PLACEHOLDER_REGEX));
+        }
+    }
+
+    @Benchmark
+    public void precompiledRegexMatches(Blackhole blackhole) {
+        for(String value : values) {
+            blackhole.consume(PLACEHOLDER_PATTERN.matcher(value).matches());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.glenneligio.benchmarks;
+
+import com.glenneligio.model.YamlFileEnvEntry;
+import com.glenneligio.service.YamlService;
+import com.glenneligio.service.YamlServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of the env entries of a container from a multi-document manifest, without the manifest cache.
+ * The manifest size grows with the number of deployments, and the target container is in the last one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YamlExtractionBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int deploymentCount;
+
+    @Param({"10", "100"})
+    private int envCount;
+
+    private final YamlService yamlService = new YamlServiceImpl();
+    private Path directory;
+    private String manifestFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("yaml-extraction-benchmark");
+        Path manifest = directory.resolve("deployment.yml");
+        BenchmarkInputs.writeManifest(manifest, deploymentCount, envCount);
+        manifestFile = manifest.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkInputs.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public List<YamlFileEnvEntry> getYamlFileEnvEntries() throws IOException {
+        return yamlService.getYamlFileEnvEntries(manifestFile, BenchmarkInputs.TARGET_IMAGE);
+    }
+}
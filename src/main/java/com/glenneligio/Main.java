@@ -2,27 +2,63 @@ package com.glenneligio;
 
 import com.github.rvesse.airline.annotations.Cli;
 import com.github.rvesse.airline.help.Help;
+import com.glenneligio.commands.BatchSetup;
+import com.glenneligio.commands.DaemonSetup;
 import com.glenneligio.commands.EnvSetup;
+import com.glenneligio.commands.FixturesSetup;
+import com.glenneligio.commands.LoggingOptions;
+import com.glenneligio.commands.MatrixSetup;
 import com.glenneligio.commands.PropertiesSetup;
+import com.glenneligio.commands.WatchSetup;
+import com.glenneligio.service.DaemonClient;
+import com.glenneligio.service.DaemonServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Cli(name = "setup",
         description = "PROPERTIES ENV SETUP CLI",
         defaultCommand = Help.class,
-        commands = {PropertiesSetup.class, EnvSetup.class, Help.class})
+        commands = {PropertiesSetup.class, EnvSetup.class, BatchSetup.class, WatchSetup.class, MatrixSetup.class, DaemonSetup.class, FixturesSetup.class, Help.class})
 public class Main {
-    private static final Logger logger = LoggerFactory.getLogger(Main.class);
+    private static final String CLIENT_OPTION = "--client";
+    private static final String PORT_OPTION = "--port";
 
     public static void main(String[] args) {
+        // must come before the first logger is created, which is why the logger is not a static field here
+        LoggingOptions.configure(args);
 
+        Logger logger = LoggerFactory.getLogger(Main.class);
         logger.info("Args: {}", Arrays.stream(args).collect(Collectors.toList()));
+        if(args.length > 0 && args[0].equals(CLIENT_OPTION)) {
+            System.exit(runClient(new ArrayList<>(Arrays.asList(args).subList(1, args.length))));
+        }
+
         com.github.rvesse.airline.Cli<Runnable> cli = new com.github.rvesse.airline.Cli<>(Main.class);
         Runnable cmd = cli.parse(args);
         cmd.run();
     }
 
-}
\ No newline at end of file
+    /**
+     * Forwards the arguments to the daemon, e.g. '--client [--port 47615] setup properties -p ...'
+     * or '--client --stop' to stop the daemon.
+     */
+    private static int runClient(List<String> args) {
+        int port = DaemonServer.DEFAULT_PORT;
+        if(args.size() >= 2 && args.get(0).equals(PORT_OPTION)) {
+            port = Integer.parseInt(args.get(1));
+            args = args.subList(2, args.size());
+        }
+        try {
+            return new DaemonClient(port, DaemonServer.DEFAULT_STATE_DIRECTORY).send(args, System.err);
+        } catch (IOException e) {
+            LoggerFactory.getLogger(Main.class).error("Failed to send the command to the daemon: {}", e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Group;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.service.*;
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Command(name = "batch", description = "Setup all the application.properties and .env files listed in a mapping file")
+@Group(name = "setup")
+public class BatchSetup implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchSetup.class);
+
+    @Inject
+    private HelpOption<BatchSetup> help;
+
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Inject
+    private SecretOptions secretOptions = new SecretOptions();
+
+    @Option(name = {"-m" , "--mapping"},
+            description = "yaml file that maps each application.properties/.env file to a k8s yaml file and image")
+    @Required
+    @PathOption
+    protected String mappingFile;
+
+    @Option(name = {"--parallelism"},
+            description = "Number of files injected at the same time, defaults to the number of processors")
+    protected int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(name = {"--no-cache"},
+            description = "Always read the k8s yaml files instead of using the cached index of them")
+    protected boolean noCache;
+
+    @Option(name = {"--force"},
+            description = "Inject all the files even if their inputs did not change since the last run")
+    protected boolean force;
+
+    @Option(name = {"--charset"},
+            description = "Charset of the application.properties files, defaults to UTF-8")
+    protected String charset = StandardCharsets.UTF_8.name();
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        logger.info("Mapping file to be used: {}", mappingFile);
+        logger.info("Parallelism: {}", parallelism);
+
+        YamlService yamlService = new YamlServiceImpl(noCache ? null : new ManifestCache());
+        InjectionService injectionService = new InjectionServiceImpl(new PropertiesServiceImpl(Charset.forName(charset)), new EnvServiceImpl());
+        InjectionEngine injectionEngine = new InjectionEngine(yamlService, injectionService, parallelism,
+                force ? null : new InjectionManifestStore(Charset.forName(charset)), secretOptions.createSecretResolver());
+        BatchService batchService = new BatchServiceImpl(injectionEngine);
+        List<InjectionJob> jobs = batchService.readMappingFile(mappingFile);
+        List<InjectionResult> results = batchService.runJobs(jobs);
+        batchService.printReport(results);
+
+        long failedJobs = results.stream().filter(InjectionResult::isFailed).count();
+        if(failedJobs > 0) {
+            throw new RuntimeException(failedJobs + " of " + results.size() + " files failed to be injected");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.annotations.Option;
+import com.glenneligio.service.ContainerJobPlanner;
+import com.glenneligio.service.YamlService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Options selecting the containers of the yaml file whose env is injected.
+ */
+public class ContainerOptions {
+
+    @Option(name = {"-i" , "--image"},
+            description = "Image name of the container used. Can be given several times, or as a comma separated list, to inject several containers")
+    protected List<String> containerImageNames = new ArrayList<>();
+
+    @Option(name = {"--all-containers"},
+            description = "Inject all the containers of the k8s yaml file, except the init containers, instead of the -i images")
+    protected boolean allContainers;
+
+    /**
+     * @return the -i images, in the order given
+     * @throws RuntimeException if both or none of -i and --all-containers are given
+     */
+    public List<String> getContainerImageNames() {
+        checkSelection();
+        List<String> names = new ArrayList<>();
+        for(String containerImageName : containerImageNames) {
+            for(String name : containerImageName.split(",")) {
+                if(!name.isBlank()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return true if a single container is injected
+     */
+    public boolean isSingleContainer() {
+        return !allContainers && getContainerImageNames().size() == 1;
+    }
+
+    /**
+     * @return the -i images, or the containers of the yaml file with --all-containers
+     * @throws RuntimeException if both or none of -i and --all-containers are given
+     */
+    public List<String> resolveContainerImageNames(YamlService yamlService, String yamlFileLocation) throws IOException {
+        if(allContainers) {
+            checkSelection();
+            return ContainerJobPlanner.getContainerImageNames(yamlService.getManifestIndex(yamlFileLocation));
+        }
+        return getContainerImageNames();
+    }
+
+    private void checkSelection() {
+        if(allContainers == !containerImageNames.isEmpty()) {
+            throw new RuntimeException("Either -i or --all-containers should be given");
+        }
+    }
+}
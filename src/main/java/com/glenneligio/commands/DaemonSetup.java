@@ -0,0 +1,38 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Group;
+import com.github.rvesse.airline.annotations.Option;
+import com.glenneligio.service.DaemonServer;
+import lombok.SneakyThrows;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+@Command(name = "daemon", description = "Start a resident process that runs the commands sent using '--client'")
+@Group(name = "setup")
+public class DaemonSetup implements Runnable {
+
+    @Inject
+    private HelpOption<DaemonSetup> help;
+
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Option(name = {"--port"},
+            description = "Loopback port to listen on")
+    protected int port = DaemonServer.DEFAULT_PORT;
+
+    @Option(name = {"--idle-timeout"},
+            description = "Seconds with no request before the daemon stops")
+    protected int idleTimeoutSeconds = 1800;
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        DaemonServer daemonServer = new DaemonServer(port, Duration.ofSeconds(idleTimeoutSeconds), DaemonServer.DEFAULT_STATE_DIRECTORY);
+        daemonServer.start();
+        daemonServer.serve();
+    }
+}
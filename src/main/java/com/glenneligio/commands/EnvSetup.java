@@ -4,8 +4,14 @@ import com.github.rvesse.airline.HelpOption;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Group;
 import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.AllowedRawValues;
 import com.github.rvesse.airline.annotations.restrictions.Required;
 import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.TemplateType;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 import com.glenneligio.service.*;
 import lombok.SneakyThrows;
@@ -14,7 +20,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 
 @Command(name = "env", description = "Setup the .env file using k8s yaml")
 @Group(name = "setup")
@@ -25,51 +34,204 @@ public class EnvSetup implements Runnable {
     @Inject
     private HelpOption<EnvSetup> help;
 
-    @Option(name = {"-e" , "--env"}, description = ".env to populate")
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Inject
+    private SecretOptions secretOptions = new SecretOptions();
+
+    @Inject
+    private ContainerOptions containerOptions = new ContainerOptions();
+
+    @Option(name = {"-e" , "--env"}, description = ".env to populate. Can be given once per container, in the same order, or once for all of them")
     @Required
-    protected String envFile;
+    @PathOption
+    protected List<String> envFiles;
 
     @Option(name = {"-y" , "--yaml"}, description = "k8s yaml file where environments are declared")
     @Required
+    @PathOption
     protected String yamlFile;
 
-    @Option(name = {"-i" , "--image"},
-            description = "Image name of the container used")
-    @Required
-    protected String containerImageName;
+    @Option(name = {"--no-cache"},
+            description = "Always read the k8s yaml file instead of using the cached index of it")
+    protected boolean noCache;
+
+    @Option(name = {"--force"},
+            description = "Inject the files even if their inputs did not change since the last run")
+    protected boolean force;
+
+    @Option(name = {"--metrics-out"},
+            description = "File where the time, bytes and counts of each phase are written, as JSON or in Prometheus text format if it ends with .prom")
+    @PathOption
+    protected String metricsFile;
+
+    @Option(name = {"--report-format"},
+            description = "Format of the report of the entries: log (default), json on the standard output, or none")
+    @AllowedRawValues(allowedValues = {"log", "json", "none"})
+    protected String reportFormat = "log";
 
     @SneakyThrows
     @Override
     public void run() {
+        if(envFiles.size() == 1 && containerOptions.isSingleContainer()) {
+            runSingleContainer(envFiles.get(0), containerOptions.getContainerImageNames().get(0));
+        } else {
+            runContainers();
+        }
+    }
+
+    /**
+     * Injects several containers of the yaml file, which is read once for all of them.
+     */
+    private void runContainers() throws IOException {
+        logger.info("Env files to be populated: {}", envFiles);
+        logger.info("K8s yaml file to be used: {}", yamlFile);
+
+        MetricsRecorder metrics = new MetricsRecorder("env");
+        ManifestCache manifestCache = noCache ? null : new ManifestCache();
+        YamlService yamlService = new WarmYamlService(new YamlServiceImpl(manifestCache));
+        List<InjectionJob> jobs;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("yaml")) {
+            // read once for all the containers, the injection engine takes it from the warm yaml service
+            yamlService.getManifestIndex(yamlFile);
+            if(Objects.isNull(manifestCache) || manifestCache.getMisses() > 0) {
+                phase.addFileRead(yamlFile);
+            }
+            jobs = ContainerJobPlanner.planJobs(TemplateType.ENV, envFiles, yamlFile,
+                    containerOptions.resolveContainerImageNames(yamlService, yamlFile));
+        }
+        BatchService batchService = new BatchServiceImpl(new InjectionEngine(yamlService, new InjectionServiceImpl(),
+                Math.min(jobs.size(), Runtime.getRuntime().availableProcessors()), createManifestStore(), secretOptions.createSecretResolver()));
+        List<InjectionResult> results;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("inject")) {
+            results = batchService.runJobs(jobs);
+            results.forEach(phase::addResultFiles);
+        }
+
+        try (MetricsRecorder.Phase phase = metrics.startPhase("report")) {
+            batchService.printReport(results, ReportFormat.valueOf(reportFormat.toUpperCase(Locale.ROOT)));
+        }
+
+        if(Objects.nonNull(metricsFile)) {
+            results.forEach(metrics::countResult);
+            metrics.countCache(manifestCache);
+            metrics.write(metricsFile);
+        }
+        long failedJobs = results.stream().filter(InjectionResult::isFailed).count();
+        if(failedJobs > 0) {
+            throw new RuntimeException(failedJobs + " of " + results.size() + " containers failed to be injected");
+        }
+    }
+
+    private void runSingleContainer(String envFile, String containerImageName) throws IOException {
         logger.info("Env file to be populated: {}", envFile);
         logger.info("K8s yaml file to be used: {}", yamlFile);
 
+        MetricsRecorder metrics = new MetricsRecorder("env");
+        InjectionJob job = new InjectionJob(TemplateType.ENV, envFile, yamlFile, containerImageName);
+        SecretResolver secretResolver = secretOptions.createSecretResolver();
+        // secret values are not part of the inputs recorded in the manifest, so resolved secrets are always injected
+        InjectionManifestStore manifestStore = Objects.isNull(secretResolver) ? createManifestStore() : null;
+        if(Objects.nonNull(getUpToDateResult(manifestStore, job, metrics))) {
+            return;
+        }
+
         // Reading the properties file
         EnvService envService = new EnvServiceImpl();
-        List<EnvFileEntry> envFileEntries = envService.readOrCreateEnvFile(envFile);
-        logger.info("Env file entries");
-        for(EnvFileEntry entry : envFileEntries) {
-            logger.info("Entry - name: {}, defaultValue: {}, isValid: {}",
-                    StringUtils.trimToEmpty(entry.getName()),
-                    StringUtils.trimToEmpty(entry.getDefaultValue()),
-                    entry.isValid());
+        List<EnvFileEntry> envFileEntries;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("read")) {
+            envFileEntries = envService.readOrCreateEnvFile(envFile);
+            phase.addFileRead(envFile);
+            if(logger.isDebugEnabled()) {
+                logger.debug("Env file entries");
+                for(EnvFileEntry entry : envFileEntries) {
+                    logger.debug("Entry - name: {}, defaultValue: {}, isValid: {}",
+                            StringUtils.trimToEmpty(entry.getName()),
+                            StringUtils.trimToEmpty(entry.getDefaultValue()),
+                            entry.isValid());
+                }
+            }
         }
 
-        YamlService yamlService = new YamlServiceImpl();
-        List<YamlFileEnvEntry> yamlEnvEntries = yamlService.getYamlFileEnvEntries(yamlFile, containerImageName);
-        logger.info("YAML env entries");
-        for(YamlFileEnvEntry entry : yamlEnvEntries) {
-            logger.info("Entry - name: {}, value: {}, isSecret: {}", StringUtils.trimToEmpty(entry.getEnvName()), StringUtils.trimToEmpty(entry.getEnvValue()), entry.isSecret());
+        ManifestCache manifestCache = noCache ? null : new ManifestCache();
+        YamlEnvIndex yamlEnvIndex;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("yaml")) {
+            YamlService yamlService = new YamlServiceImpl(manifestCache);
+            List<YamlFileEnvEntry> yamlEnvEntries = yamlService.getYamlFileEnvEntries(yamlFile, containerImageName);
+            if(Objects.isNull(manifestCache) || manifestCache.getMisses() > 0) {
+                phase.addFileRead(yamlFile);
+            }
+            if(logger.isDebugEnabled()) {
+                logger.debug("YAML env entries");
+                for(YamlFileEnvEntry entry : yamlEnvEntries) {
+                    logger.debug("Entry - name: {}, value: {}, isSecret: {}", StringUtils.trimToEmpty(entry.getEnvName()), StringUtils.trimToEmpty(entry.getEnvValue()), entry.isSecret());
+                }
+            }
+
+            if(Objects.nonNull(secretResolver)) {
+                yamlEnvEntries = secretResolver.resolve(yamlEnvEntries);
+            }
+
+            yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+            if(!yamlEnvIndex.getDuplicateEnvNames().isEmpty()) {
+                logger.warn("Env declared more than once in yaml file, last declaration is used: {}", yamlEnvIndex.getDuplicateEnvNames());
+            }
         }
 
-        envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvEntries);
+        try (MetricsRecorder.Phase phase = metrics.startPhase("match")) {
+            envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvIndex);
 
-        // add new EnvFileEntry for env in yaml that is not present in .env file
-        List<EnvFileEntry> missingEnvFromYaml = envService.addNewEnvFromYaml(envFileEntries, yamlEnvEntries);
+            // add new EnvFileEntry for env in yaml that is not present in .env file
+            List<EnvFileEntry> missingEnvFromYaml = envService.addNewEnvFromYaml(envFileEntries, yamlEnvIndex);
 
-        // add new env from .yml file that was not present in .env file
-        envFileEntries.addAll(missingEnvFromYaml);
-        envService.injectEnvFound(envFileEntries, envFile);
-        envService.printReport(envFileEntries);
+            // add new env from .yml file that was not present in .env file
+            envFileEntries.addAll(missingEnvFromYaml);
+        }
+
+        try (MetricsRecorder.Phase phase = metrics.startPhase("write")) {
+            // the .env file is counted once, in the read phase
+            phase.addBytesWritten(envService.injectEnvFound(envFileEntries, envFile));
+        }
+
+        InjectionResult result = new InjectionResult(job);
+        envFileEntries.forEach(result::countEntry);
+        if(Objects.nonNull(manifestStore)) {
+            manifestStore.record(job, result);
+        }
+
+        try (MetricsRecorder.Phase phase = metrics.startPhase("report")) {
+            envService.printReport(envFileEntries, ReportFormat.valueOf(reportFormat.toUpperCase(Locale.ROOT)));
+        }
+
+        if(Objects.nonNull(metricsFile)) {
+            metrics.count("entries", envFileEntries.size());
+            metrics.countResult(result);
+            metrics.countCache(manifestCache);
+            metrics.write(metricsFile);
+        }
+    }
+
+    /**
+     * @return store of the inputs of the -injected files, or null to always inject them
+     */
+    private InjectionManifestStore createManifestStore() {
+        return force ? null : new InjectionManifestStore();
+    }
+
+    /**
+     * Checks the manifest of the -injected file before the yaml file is read.
+     * @return the result recorded for the job if its inputs and output did not change since the last run, or null
+     */
+    private InjectionResult getUpToDateResult(InjectionManifestStore manifestStore, InjectionJob job, MetricsRecorder metrics) throws IOException {
+        if(Objects.isNull(manifestStore)) {
+            return null;
+        }
+        InjectionResult upToDateResult = manifestStore.getUpToDateResult(job);
+        if(Objects.nonNull(upToDateResult) && Objects.nonNull(metricsFile)) {
+            metrics.countResult(upToDateResult);
+            metrics.write(metricsFile);
+        }
+        return upToDateResult;
     }
 }
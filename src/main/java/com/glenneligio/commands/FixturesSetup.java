@@ -0,0 +1,78 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Group;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.glenneligio.model.FixtureSpec;
+import com.glenneligio.service.FixtureService;
+import com.glenneligio.service.FixtureServiceImpl;
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.nio.file.Path;
+import java.util.List;
+
+@Command(name = "generate-fixtures", description = "Generate a k8s yaml file with matching application.properties and .env files of the given sizes")
+@Group(name = "setup")
+public class FixturesSetup implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixturesSetup.class);
+
+    @Inject
+    private HelpOption<FixturesSetup> help;
+
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Option(name = {"-o" , "--output"}, description = "Directory where the files are generated")
+    @Required
+    @PathOption
+    protected String outputDirectory;
+
+    @Option(name = {"--seed"}, description = "Seed of the generated values, the same seed and sizes always generate the same files")
+    protected long seed = 42;
+
+    @Option(name = {"--documents"}, description = "Number of Deployment documents in the k8s yaml file")
+    protected int documentCount = 10;
+
+    @Option(name = {"--containers"}, description = "Number of containers per Deployment")
+    protected int containersPerDocument = 3;
+
+    @Option(name = {"--env-per-container"}, description = "Number of env per container")
+    protected int envPerContainer = 100;
+
+    @Option(name = {"--keys"}, description = "Number of keys of the application.properties and .env files")
+    protected int templateKeys = 1000;
+
+    @Option(name = {"--secret-ratio"}, description = "Fraction of the env taken from a secret, between 0 and 1")
+    protected double secretRatio = 0.2;
+
+    @Option(name = {"--placeholder-density"}, description = "Fraction of the keys using an env, between 0 and 1")
+    protected double placeholderDensity = 0.8;
+
+    @Option(name = {"-i" , "--image"}, description = "Image name of the container the application.properties and .env files are matched with")
+    protected String containerImageName = "client-service";
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        FixtureSpec spec = new FixtureSpec();
+        spec.setSeed(seed);
+        spec.setDocumentCount(documentCount);
+        spec.setContainersPerDocument(containersPerDocument);
+        spec.setEnvPerContainer(envPerContainer);
+        spec.setTemplateKeys(templateKeys);
+        spec.setSecretRatio(secretRatio);
+        spec.setPlaceholderDensity(placeholderDensity);
+        spec.setContainerImageName(containerImageName);
+        logger.info("Fixtures to be generated: {}", spec);
+
+        FixtureService fixtureService = new FixtureServiceImpl();
+        List<Path> files = fixtureService.generateFixtures(spec, outputDirectory);
+        logger.info("{} files generated in {}", files.size(), outputDirectory);
+    }
+}
@@ -0,0 +1,89 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.AllowedRawValues;
+import com.glenneligio.service.AsyncOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Logging options shared by the commands.
+ * slf4j-simple reads its configuration once, when the first logger is created, so the options are applied
+ * by {@link #configure(String[])} before the arguments are parsed. The fields are only here so the commands accept
+ * and document the options.
+ */
+public class LoggingOptions {
+
+    static final String QUIET_OPTION = "--quiet";
+    static final String LOG_LEVEL_OPTION = "--log-level";
+    static final String ASYNC_LOG_OPTION = "--async-log";
+
+    private static final String DEFAULT_LOG_LEVEL_PROPERTY = "org.slf4j.simpleLogger.defaultLogLevel";
+    private static final int ASYNC_LOG_CAPACITY = 8192;
+    private static final int ASYNC_LOG_BUFFER_SIZE = 64 * 1024;
+
+    @Option(name = {QUIET_OPTION},
+            description = "Only log warnings and errors, same as '--log-level warn'")
+    protected boolean quiet;
+
+    @Option(name = {LOG_LEVEL_OPTION},
+            description = "Level of the log: trace, debug, info (default), warn, error or off")
+    @AllowedRawValues(allowedValues = {"trace", "debug", "info", "warn", "error", "off"})
+    protected String logLevel;
+
+    @Option(name = {ASYNC_LOG_OPTION},
+            description = "Write the log to the standard error from a background thread")
+    protected boolean asyncLog;
+
+    /**
+     * Applies the logging options found in the arguments. Must be called before any logger is created.
+     * '--log-level' takes precedence over '--quiet'.
+     */
+    public static void configure(String[] args) {
+        String level = null;
+        boolean async = false;
+        for(int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if(arg.equals(QUIET_OPTION) && level == null) {
+                level = "warn";
+            } else if(arg.equals(LOG_LEVEL_OPTION) && i + 1 < args.length) {
+                level = args[++i];
+            } else if(arg.startsWith(LOG_LEVEL_OPTION + "=")) {
+                level = arg.substring(LOG_LEVEL_OPTION.length() + 1);
+            } else if(arg.equals(ASYNC_LOG_OPTION)) {
+                async = true;
+            }
+        }
+
+        if(level != null) {
+            System.setProperty(DEFAULT_LOG_LEVEL_PROPERTY, level);
+        }
+        if(async) {
+            useAsyncStandardError();
+        }
+    }
+
+    /**
+     * @return true if the argument is one of the logging options, which can only be applied once per JVM
+     */
+    public static boolean isLoggingOption(String arg) {
+        return arg.equals(QUIET_OPTION) || arg.equals(LOG_LEVEL_OPTION) || arg.startsWith(LOG_LEVEL_OPTION + "=")
+                || arg.equals(ASYNC_LOG_OPTION);
+    }
+
+    /**
+     * Replaces the standard error with one written by a background thread.
+     * slf4j-simple looks up System.err on each log line, so the loggers pick it up.
+     * The log written so far is drained when the JVM exits.
+     */
+    private static void useAsyncStandardError() {
+        PrintStream asyncErr = new PrintStream(new AsyncOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), ASYNC_LOG_BUFFER_SIZE),
+                ASYNC_LOG_CAPACITY));
+        System.setErr(asyncErr);
+        Runtime.getRuntime().addShutdownHook(new Thread(asyncErr::close, "async-log-drain"));
+    }
+}
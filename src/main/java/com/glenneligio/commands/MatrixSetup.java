@@ -0,0 +1,87 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Group;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.AllowedRawValues;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.glenneligio.model.MatrixResult;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.service.*;
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+@Command(name = "matrix", description = "Setup an application.properties file for each environment, using the k8s yaml file of each of them")
+@Group(name = "setup")
+public class MatrixSetup implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixSetup.class);
+
+    @Inject
+    private HelpOption<MatrixSetup> help;
+
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Inject
+    private SecretOptions secretOptions = new SecretOptions();
+
+    @Option(name = {"-p" , "--properties"},
+            description = "application.properties used as template for all the environments")
+    @Required
+    @PathOption
+    protected String propertiesFile;
+
+    @Option(name = {"-y" , "--yaml"},
+            description = "k8s yaml file of an environment, given once per environment. The environment is the name of the file without its extension")
+    @Required
+    @PathOption
+    protected List<String> yamlFiles;
+
+    @Option(name = {"-i" , "--image"},
+            description = "Image name of the container used")
+    @Required
+    protected String containerImageName;
+
+    @Option(name = {"--parallelism"},
+            description = "Number of environments injected at the same time, defaults to the number of processors")
+    protected int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(name = {"--no-cache"},
+            description = "Always read the k8s yaml files instead of using the cached index of them")
+    protected boolean noCache;
+
+    @Option(name = {"--charset"},
+            description = "Charset of the application.properties file, defaults to UTF-8")
+    protected String charset = StandardCharsets.UTF_8.name();
+
+    @Option(name = {"--report-format"},
+            description = "Format of the diff report of the environments: log (default), json on the standard output, or none")
+    @AllowedRawValues(allowedValues = {"log", "json", "none"})
+    protected String reportFormat = "log";
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        logger.info("Properties file to be used as template: {}", propertiesFile);
+        logger.info("K8s yaml files of the environments: {}", yamlFiles);
+
+        MatrixService matrixService = new MatrixServiceImpl(new YamlServiceImpl(noCache ? null : new ManifestCache()),
+                new PropertiesServiceImpl(Charset.forName(charset)), parallelism, secretOptions.createSecretResolver());
+        List<MatrixResult> results = matrixService.run(propertiesFile, yamlFiles, containerImageName);
+        matrixService.printReport(results, ReportFormat.valueOf(reportFormat.toUpperCase(Locale.ROOT)));
+
+        long failedEnvironments = results.stream().filter(result -> result.getResult().isFailed()).count();
+        if(failedEnvironments > 0) {
+            throw new RuntimeException(failedEnvironments + " of " + results.size() + " environments failed to be injected");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.glenneligio.commands;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an option whose value is a file or directory path, so a command sent to the daemon
+ * has it resolved against the working directory of the client instead of the one of the daemon.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface PathOption {
+}
@@ -4,20 +4,29 @@ import com.github.rvesse.airline.HelpOption;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Group;
 import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.AllowedRawValues;
 import com.github.rvesse.airline.annotations.restrictions.Required;
-import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.TemplateType;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
-import com.glenneligio.service.PropertiesService;
-import com.glenneligio.service.PropertiesServiceImpl;
-import com.glenneligio.service.YamlService;
-import com.glenneligio.service.YamlServiceImpl;
+import com.glenneligio.service.*;
 import lombok.SneakyThrows;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Command(name = "properties", description = "Setup the application.properties file using k8s yaml")
 @Group(name = "setup")
@@ -28,51 +37,201 @@ public class PropertiesSetup implements Runnable {
     @Inject
     private HelpOption<PropertiesSetup> help;
 
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Inject
+    private SecretOptions secretOptions = new SecretOptions();
+
+    @Inject
+    private ContainerOptions containerOptions = new ContainerOptions();
+
     @Option(name = {"-p" , "--properties"},
-            description = "application.properties to populate")
+            description = "application.properties to populate. Can be given once per container, in the same order, or once for all of them")
     @Required
-    protected String propertiesFile;
+    @PathOption
+    protected List<String> propertiesFiles;
 
     @Option(name = {"-y" , "--yaml"},
             description = "k8s yaml file where environments are declared")
     @Required
+    @PathOption
     protected String yamlFile;
 
-    @Option(name = {"-i" , "--image"},
-            description = "Image name of the container used")
-    @Required
-    protected String containerImageName;
+    @Option(name = {"--no-cache"},
+            description = "Always read the k8s yaml file instead of using the cached index of it")
+    protected boolean noCache;
+
+    @Option(name = {"--charset"},
+            description = "Charset of the application.properties files, defaults to UTF-8")
+    protected String charset = StandardCharsets.UTF_8.name();
+
+    @Option(name = {"--force"},
+            description = "Inject the files even if their inputs did not change since the last run")
+    protected boolean force;
+
+    @Option(name = {"--metrics-out"},
+            description = "File where the time, bytes and counts of each phase are written, as JSON or in Prometheus text format if it ends with .prom")
+    @PathOption
+    protected String metricsFile;
+
+    @Option(name = {"--report-format"},
+            description = "Format of the report of the entries: log (default), json on the standard output, or none")
+    @AllowedRawValues(allowedValues = {"log", "json", "none"})
+    protected String reportFormat = "log";
 
     @SneakyThrows
     @Override
     public void run() {
+        if(propertiesFiles.size() == 1 && containerOptions.isSingleContainer()) {
+            runSingleContainer(propertiesFiles.get(0), containerOptions.getContainerImageNames().get(0));
+        } else {
+            runContainers();
+        }
+    }
+
+    /**
+     * Injects several containers of the yaml file, which is read once for all of them.
+     */
+    private void runContainers() throws IOException {
+        logger.info("Properties files to be populated: {}", propertiesFiles);
+        logger.info("K8s yaml file to be used: {}", yamlFile);
+
+        MetricsRecorder metrics = new MetricsRecorder("properties");
+        ManifestCache manifestCache = noCache ? null : new ManifestCache();
+        YamlService yamlService = new WarmYamlService(new YamlServiceImpl(manifestCache));
+        List<InjectionJob> jobs;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("yaml")) {
+            // read once for all the containers, the injection engine takes it from the warm yaml service
+            yamlService.getManifestIndex(yamlFile);
+            if(Objects.isNull(manifestCache) || manifestCache.getMisses() > 0) {
+                phase.addFileRead(yamlFile);
+            }
+            jobs = ContainerJobPlanner.planJobs(TemplateType.PROPERTIES, propertiesFiles, yamlFile,
+                    containerOptions.resolveContainerImageNames(yamlService, yamlFile));
+        }
+        InjectionService injectionService = new InjectionServiceImpl(new PropertiesServiceImpl(Charset.forName(charset)), new EnvServiceImpl());
+        BatchService batchService = new BatchServiceImpl(new InjectionEngine(yamlService, injectionService,
+                Math.min(jobs.size(), Runtime.getRuntime().availableProcessors()), createManifestStore(), secretOptions.createSecretResolver()));
+        List<InjectionResult> results;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("inject")) {
+            results = batchService.runJobs(jobs);
+            results.forEach(phase::addResultFiles);
+        }
+
+        try (MetricsRecorder.Phase phase = metrics.startPhase("report")) {
+            batchService.printReport(results, ReportFormat.valueOf(reportFormat.toUpperCase(Locale.ROOT)));
+        }
+
+        if(Objects.nonNull(metricsFile)) {
+            results.forEach(metrics::countResult);
+            metrics.countCache(manifestCache);
+            metrics.write(metricsFile);
+        }
+        long failedJobs = results.stream().filter(InjectionResult::isFailed).count();
+        if(failedJobs > 0) {
+            throw new RuntimeException(failedJobs + " of " + results.size() + " containers failed to be injected");
+        }
+    }
+
+    private void runSingleContainer(String propertiesFile, String containerImageName) throws IOException {
         logger.info("Properties file to be populated: {}", propertiesFile);
         logger.info("K8s yaml file to be used: {}", yamlFile);
         logger.info("Image name of the container where env file is fetched: {}", containerImageName);
 
-        // Reading the properties file
-        PropertiesService propertiesService = new PropertiesServiceImpl();
-        List<PropertiesFileEntry> propertiesEntries = propertiesService.getPropertiesFileEntriesFromPropertiesFile(propertiesFile);
-        logger.info("Properties file entries");
-        for(PropertiesFileEntry entry : propertiesEntries) {
-            logger.info("Entry - name: {}, defaultValue: {}, envInjected: {}, isValid: {}, isInjected: {}",
-                    StringUtils.trimToEmpty(entry.getName()),
-                    StringUtils.trimToEmpty(entry.getDefaultValue()),
-                    StringUtils.trimToEmpty(entry.getEnvUsed()),
-                    entry.isValid(),
-                    entry.isValueInjected());
+        MetricsRecorder metrics = new MetricsRecorder("properties");
+        InjectionJob job = new InjectionJob(TemplateType.PROPERTIES, propertiesFile, yamlFile, containerImageName);
+        SecretResolver secretResolver = secretOptions.createSecretResolver();
+        // secret values are not part of the inputs recorded in the manifest, so resolved secrets are always injected
+        InjectionManifestStore manifestStore = Objects.isNull(secretResolver) ? createManifestStore() : null;
+        if(Objects.nonNull(getUpToDateResult(manifestStore, job, metrics))) {
+            return;
         }
 
-        YamlService yamlService = new YamlServiceImpl();
-        List<YamlFileEnvEntry> yamlEnvEntries = yamlService.getYamlFileEnvEntries(yamlFile, containerImageName);
-        logger.info("YAML env entries");
-        for(YamlFileEnvEntry entry : yamlEnvEntries) {
-            logger.info("Entry - name: {}, value: {}, isSecret: {}", StringUtils.trimToEmpty(entry.getEnvName()), StringUtils.trimToEmpty(entry.getEnvValue()), entry.isSecret());
+        ManifestCache manifestCache = noCache ? null : new ManifestCache();
+        YamlEnvIndex yamlEnvIndex;
+        try (MetricsRecorder.Phase phase = metrics.startPhase("yaml")) {
+            YamlService yamlService = new YamlServiceImpl(manifestCache);
+            List<YamlFileEnvEntry> yamlEnvEntries = yamlService.getYamlFileEnvEntries(yamlFile, containerImageName);
+            if(Objects.isNull(manifestCache) || manifestCache.getMisses() > 0) {
+                phase.addFileRead(yamlFile);
+            }
+            if(logger.isDebugEnabled()) {
+                logger.debug("YAML env entries");
+                for(YamlFileEnvEntry entry : yamlEnvEntries) {
+                    logger.debug("Entry - name: {}, value: {}, isSecret: {}", StringUtils.trimToEmpty(entry.getEnvName()), StringUtils.trimToEmpty(entry.getEnvValue()), entry.isSecret());
+                }
+            }
+
+            if(Objects.nonNull(secretResolver)) {
+                yamlEnvEntries = secretResolver.resolve(yamlEnvEntries);
+            }
+
+            yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+            if(!yamlEnvIndex.getDuplicateEnvNames().isEmpty()) {
+                logger.warn("Env declared more than once in yaml file, last declaration is used: {}", yamlEnvIndex.getDuplicateEnvNames());
+            }
         }
 
-        List<PropertiesFileEntry> populatedPropEntries = propertiesService.populateEnvFileEntriesWithValuesFromYaml(propertiesEntries, yamlEnvEntries);
+        // Reading, populating and injecting the properties file in a single pass, the report is filled along the way
+        PropertiesService propertiesService = new PropertiesServiceImpl(Charset.forName(charset));
+        Report report = propertiesService.createReport();
+        InjectionResult result = new InjectionResult(job);
+        AtomicInteger entryCount = new AtomicInteger();
+        try (MetricsRecorder.Phase phase = metrics.startPhase("inject")) {
+            logger.debug("Properties file entries");
+            long bytesWritten = propertiesService.injectEnvFromYaml(propertiesFile, yamlEnvIndex, entry -> {
+                if(logger.isDebugEnabled()) {
+                    logger.debug("Entry - name: {}, defaultValue: {}, envInjected: {}, isValid: {}, isInjected: {}",
+                            StringUtils.trimToEmpty(entry.getName()),
+                            StringUtils.trimToEmpty(Objects.nonNull(entry.getRawValue()) ? entry.getRawValue() : entry.getDefaultValue()),
+                            String.join(", ", entry.getEnvNames()),
+                            entry.isValid(),
+                            entry.isValueInjected());
+                }
+                propertiesService.addToReport(report, entry);
+                result.countEntry(entry);
+                entryCount.incrementAndGet();
+            });
+            phase.addFileRead(propertiesFile);
+            phase.addBytesWritten(bytesWritten);
+        }
+        if(Objects.nonNull(manifestStore)) {
+            manifestStore.record(job, result);
+        }
 
-        propertiesService.injectEnvFound(populatedPropEntries, propertiesFile);
-        propertiesService.printReport(populatedPropEntries);
+        try (MetricsRecorder.Phase phase = metrics.startPhase("report")) {
+            propertiesService.printReport(report, ReportFormat.valueOf(reportFormat.toUpperCase(Locale.ROOT)));
+        }
+
+        if(Objects.nonNull(metricsFile)) {
+            metrics.count("entries", entryCount.get());
+            metrics.countResult(result);
+            metrics.countCache(manifestCache);
+            metrics.write(metricsFile);
+        }
+    }
+
+    /**
+     * @return store of the inputs of the -injected files, or null to always inject them
+     */
+    private InjectionManifestStore createManifestStore() {
+        return force ? null : new InjectionManifestStore(Charset.forName(charset));
+    }
+
+    /**
+     * Checks the manifest of the -injected file before the yaml file is read.
+     * @return the result recorded for the job if its inputs and output did not change since the last run, or null
+     */
+    private InjectionResult getUpToDateResult(InjectionManifestStore manifestStore, InjectionJob job, MetricsRecorder metrics) throws IOException {
+        if(Objects.isNull(manifestStore)) {
+            return null;
+        }
+        InjectionResult upToDateResult = manifestStore.getUpToDateResult(job);
+        if(Objects.nonNull(upToDateResult) && Objects.nonNull(metricsFile)) {
+            metrics.countResult(upToDateResult);
+            metrics.write(metricsFile);
+        }
+        return upToDateResult;
     }
 }
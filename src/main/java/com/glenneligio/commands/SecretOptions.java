@@ -0,0 +1,51 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.annotations.Option;
+import com.glenneligio.service.FileSecretProvider;
+import com.glenneligio.service.HttpSecretProvider;
+import com.glenneligio.service.SecretProvider;
+import com.glenneligio.service.SecretResolver;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Options of the commands for injecting the values of the env referencing a secret.
+ * Without them, these env are reported as secrets and not injected.
+ */
+public class SecretOptions {
+
+    @Option(name = {"--secrets-file"},
+            description = "Local yaml file with the values of the secrets, as k8s Secret documents or a map of secret name to keys and values")
+    @PathOption
+    protected String secretsFile;
+
+    @Option(name = {"--secrets-url"},
+            description = "Loopback url of a local service returning the keys and values of a secret as JSON on GET <url>/secrets/<name>")
+    protected String secretsUrl;
+
+    @Option(name = {"--secrets-ttl"},
+            description = "Seconds a secret is kept in memory after it is looked up, defaults to 300")
+    protected long secretsTtlSeconds = 300;
+
+    /**
+     * @return the resolver of the secret values, or null if no secrets source is given
+     * @throws RuntimeException if both a secrets file and a secrets url are given
+     */
+    public SecretResolver createSecretResolver() {
+        if(Objects.nonNull(secretsFile) && Objects.nonNull(secretsUrl)) {
+            throw new RuntimeException("Only one of --secrets-file and --secrets-url can be used");
+        }
+        SecretProvider secretProvider;
+        if(Objects.nonNull(secretsFile)) {
+            secretProvider = new FileSecretProvider(Paths.get(secretsFile));
+        } else if(Objects.nonNull(secretsUrl)) {
+            secretProvider = new HttpSecretProvider(URI.create(secretsUrl));
+        } else {
+            return null;
+        }
+        return new SecretResolver(secretProvider, Duration.ofSeconds(secretsTtlSeconds));
+    }
+}
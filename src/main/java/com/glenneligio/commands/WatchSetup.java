@@ -0,0 +1,71 @@
+package com.glenneligio.commands;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Group;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import com.glenneligio.service.*;
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Command(name = "watch", description = "Setup all the files listed in a mapping file, then again each time they or their k8s yaml files change")
+@Group(name = "setup")
+public class WatchSetup implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchSetup.class);
+
+    @Inject
+    private HelpOption<WatchSetup> help;
+
+    @Inject
+    private LoggingOptions loggingOptions;
+
+    @Inject
+    private SecretOptions secretOptions = new SecretOptions();
+
+    @Option(name = {"-m" , "--mapping"},
+            description = "yaml file that maps each application.properties/.env file to a k8s yaml file and image")
+    @Required
+    @PathOption
+    protected String mappingFile;
+
+    @Option(name = {"--parallelism"},
+            description = "Number of files injected at the same time, defaults to the number of processors")
+    protected int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(name = {"--debounce"},
+            description = "Milliseconds with no change to wait for before the changed files are injected")
+    protected long debounceMillis = 300;
+
+    @Option(name = {"--no-cache"},
+            description = "Always read the k8s yaml files instead of using the cached index of them")
+    protected boolean noCache;
+
+    @Option(name = {"--force"},
+            description = "Inject all the files when the watch starts even if their inputs did not change since the last run")
+    protected boolean force;
+
+    @Option(name = {"--charset"},
+            description = "Charset of the application.properties files, defaults to UTF-8")
+    protected String charset = StandardCharsets.UTF_8.name();
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        logger.info("Mapping file to be watched: {}", mappingFile);
+
+        YamlService yamlService = new YamlServiceImpl(noCache ? null : new ManifestCache());
+        InjectionService injectionService = new InjectionServiceImpl(new PropertiesServiceImpl(Charset.forName(charset)), new EnvServiceImpl());
+        try (TemplateWatcher templateWatcher = new TemplateWatcher(yamlService, injectionService, parallelism, Duration.ofMillis(debounceMillis),
+                force ? null : new InjectionManifestStore(Charset.forName(charset)), secretOptions.createSecretResolver())) {
+            templateWatcher.watch(mappingFile);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+/**
+ * Reference of a container to a ConfigMap, either a single key through 'valueFrom.configMapKeyRef'
+ * or all the keys through 'envFrom.configMapRef', where each key is added with the prefix.
+ */
+@Data
+public class ConfigMapReference {
+    private String name;
+    private String key;
+    private String prefix;
+
+    public ConfigMapReference(String name, String key, String prefix) {
+        this.name = name;
+        this.key = key;
+        this.prefix = prefix;
+    }
+
+    public static ConfigMapReference keyRef(String name, String key) {
+        return new ConfigMapReference(name, key, null);
+    }
+
+    public static ConfigMapReference envFrom(String name, String prefix) {
+        return new ConfigMapReference(name, null, prefix);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+}
@@ -14,6 +14,12 @@ public class EnvFileEntry {
     private boolean isEnvValueSecret;
     private boolean isFromYamlEnv;
     private boolean isPresentInYaml;
+    // declared as export NAME=value
+    private boolean isExported;
+    // quote character of the value in the .env file, or 0 if the value is not quoted
+    private char quote;
+    // number of lines of the entry, more than one for a quoted value spanning several lines
+    private int lineCount = 1;
 
     public EnvFileEntry(String name, String defaultValue, String envValueToInject, boolean isValid, boolean isInjected, int lineNumber, boolean isEnvValueSecret, boolean isFromYamlEnv, boolean isPresentInYaml) {
         this.name = name;
@@ -98,4 +104,28 @@ public class EnvFileEntry {
     public void setPresentInYaml(boolean presentInYaml) {
         isPresentInYaml = presentInYaml;
     }
+
+    public boolean isExported() {
+        return isExported;
+    }
+
+    public void setExported(boolean exported) {
+        isExported = exported;
+    }
+
+    public char getQuote() {
+        return quote;
+    }
+
+    public void setQuote(char quote) {
+        this.quote = quote;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
 }
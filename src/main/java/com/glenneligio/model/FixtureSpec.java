@@ -0,0 +1,24 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+/**
+ * Sizes of the fixtures to generate. The same spec, including the seed, always generates the same files.
+ */
+@Data
+public class FixtureSpec {
+
+    private long seed = 42;
+    // number of Deployment documents in the yaml file, each one followed by a ConfigMap document
+    private int documentCount = 10;
+    private int containersPerDocument = 3;
+    private int envPerContainer = 100;
+    // number of keys of the application.properties and .env templates
+    private int templateKeys = 1000;
+    // fraction of the env of the yaml file taken from a secret
+    private double secretRatio = 0.2;
+    // fraction of the template keys using an env, the rest have a static value
+    private double placeholderDensity = 0.8;
+    // image of the container the templates are matched with, which is the last container of the yaml file
+    private String containerImageName = "client-service";
+}
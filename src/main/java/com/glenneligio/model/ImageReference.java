@@ -0,0 +1,139 @@
+package com.glenneligio.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Container image reference split into its registry, repository, tag and digest.
+ * Normalized the same way as docker: an image with no registry is on docker.io,
+ * and a docker.io image with no namespace is in the library namespace,
+ * so 'nginx', 'library/nginx' and 'docker.io/library/nginx' are the same image.
+ */
+public class ImageReference {
+
+    private static final String DEFAULT_REGISTRY = "docker.io";
+    private static final String LEGACY_DEFAULT_REGISTRY = "index.docker.io";
+    private static final String DEFAULT_NAMESPACE = "library/";
+    private static final String DEFAULT_TAG = "latest";
+
+    private final String registry;
+    private final String repository;
+    private final String tag;
+    private final String digest;
+
+    private ImageReference(String registry, String repository, String tag, String digest) {
+        this.registry = registry;
+        this.repository = repository;
+        this.tag = tag;
+        this.digest = digest;
+    }
+
+    /**
+     * @param image image of a container, such as 'registry.example.com:5000/team/client-service:1.2@sha256:...'
+     */
+    public static ImageReference parse(String image) {
+        String remaining = image.trim();
+        String digest = null;
+        int digestIndex = remaining.indexOf('@');
+        if(digestIndex != -1) {
+            digest = remaining.substring(digestIndex + 1);
+            remaining = remaining.substring(0, digestIndex);
+        }
+
+        // a colon before the last slash is the port of the registry, not a tag
+        String tag = null;
+        int tagIndex = remaining.lastIndexOf(':');
+        if(tagIndex > remaining.lastIndexOf('/')) {
+            tag = remaining.substring(tagIndex + 1);
+            remaining = remaining.substring(0, tagIndex);
+        }
+
+        String registry = DEFAULT_REGISTRY;
+        int registryEnd = remaining.indexOf('/');
+        if(registryEnd != -1) {
+            String firstComponent = remaining.substring(0, registryEnd);
+            if(firstComponent.contains(".") || firstComponent.contains(":") || firstComponent.equals("localhost")) {
+                registry = firstComponent.equals(LEGACY_DEFAULT_REGISTRY) ? DEFAULT_REGISTRY : firstComponent;
+                remaining = remaining.substring(registryEnd + 1);
+            }
+        }
+        if(registry.equals(DEFAULT_REGISTRY) && remaining.indexOf('/') == -1) {
+            remaining = DEFAULT_NAMESPACE + remaining;
+        }
+        return new ImageReference(registry, remaining, tag, digest);
+    }
+
+    /**
+     * @return the registry and repository, with no tag or digest
+     */
+    public String getName() {
+        return registry + "/" + repository;
+    }
+
+    /**
+     * @return the last component of the repository, e.g. 'client-service' for 'registry.example.com/team/client-service:1.2'
+     */
+    public String getShortName() {
+        return repository.substring(repository.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Keys an image is looked up with. The image can be found using its name alone, its name with its tag or digest,
+     * or all of them. An image with no tag or digest is also found using the latest tag.
+     */
+    public List<String> getLookupKeys() {
+        List<String> keys = new ArrayList<>();
+        String name = getName();
+        keys.add(toString());
+        if(Objects.isNull(tag) && Objects.isNull(digest)) {
+            keys.add(name + ":" + DEFAULT_TAG);
+        }
+        if(Objects.nonNull(tag) && Objects.nonNull(digest)) {
+            keys.add(name + ":" + tag);
+            keys.add(name + "@" + digest);
+        }
+        if(Objects.nonNull(tag) || Objects.nonNull(digest)) {
+            keys.add(name);
+        }
+        return keys;
+    }
+
+    /**
+     * @return true if the image have only a repository, such as 'client-service', which is then matched with the short name of images
+     */
+    public static boolean isShortName(String image) {
+        return image.indexOf('/') == -1 && image.indexOf(':') == -1 && image.indexOf('@') == -1;
+    }
+
+    public String getRegistry() {
+        return registry;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return the normalized reference, e.g. 'docker.io/library/nginx:1.25'
+     */
+    @Override
+    public String toString() {
+        StringBuilder reference = new StringBuilder(getName());
+        if(Objects.nonNull(tag)) {
+            reference.append(':').append(tag);
+        }
+        if(Objects.nonNull(digest)) {
+            reference.append('@').append(digest);
+        }
+        return reference.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+import java.util.Objects;
+
+@Data
+public class InjectionJob {
+
+    private TemplateType templateType;
+    private String templateFileLocation;
+    private String yamlFileLocation;
+    private String containerImageName;
+    private String outputFileLocation;
+
+    public InjectionJob(TemplateType templateType, String templateFileLocation, String yamlFileLocation, String containerImageName) {
+        this(templateType, templateFileLocation, yamlFileLocation, containerImageName, null);
+    }
+
+    /**
+     * @param outputFileLocation file where the injected template is written, or null for the template with an -injected suffix
+     */
+    public InjectionJob(TemplateType templateType, String templateFileLocation, String yamlFileLocation, String containerImageName, String outputFileLocation) {
+        this.templateType = templateType;
+        this.templateFileLocation = templateFileLocation;
+        this.yamlFileLocation = yamlFileLocation;
+        this.containerImageName = containerImageName;
+        this.outputFileLocation = outputFileLocation;
+    }
+
+    public TemplateType getTemplateType() {
+        return templateType;
+    }
+
+    public String getTemplateFileLocation() {
+        return templateFileLocation;
+    }
+
+    public String getYamlFileLocation() {
+        return yamlFileLocation;
+    }
+
+    public String getContainerImageName() {
+        return containerImageName;
+    }
+
+    /**
+     * @return file where the injected template is written
+     */
+    public String getOutputFileLocation() {
+        return Objects.nonNull(outputFileLocation) ? outputFileLocation : templateFileLocation + "-injected";
+    }
+}
@@ -0,0 +1,70 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Objects;
+
+@Data
+public class InjectionResult {
+
+    private InjectionJob job;
+    private int invalidEntries;
+    private int injectedEntries;
+    private int secretEntries;
+    private int notInYamlEntries;
+    private int addedFromYamlEntries;
+    private String errorMessage;
+    // true if the job was not run because its inputs and output did not change since the last run
+    private boolean upToDate;
+    // bytes of the -injected file written by the job, 0 if the file already had the same content and was left untouched
+    @EqualsAndHashCode.Exclude
+    private long bytesWritten;
+
+    public InjectionResult(InjectionJob job) {
+        this.job = job;
+    }
+
+    public InjectionJob getJob() {
+        return job;
+    }
+
+    public boolean isFailed() {
+        return Objects.nonNull(errorMessage);
+    }
+
+    /**
+     * Counts a populated entry of an application.properties file.
+     */
+    public void countEntry(PropertiesFileEntry entry) {
+        if(!entry.isValid()) {
+            invalidEntries++;
+            return;
+        }
+        if(entry.isInjected()) {
+            injectedEntries++;
+        } else if(entry.isEnvValueSecret()) {
+            secretEntries++;
+        }
+        if(entry.isValueInjected() && !entry.isPresentInYaml()) {
+            notInYamlEntries++;
+        }
+    }
+
+    /**
+     * Counts a populated entry of a .env file, including the ones added from the yaml file.
+     */
+    public void countEntry(EnvFileEntry entry) {
+        if(!entry.isValid()) {
+            invalidEntries++;
+        } else if(entry.isFromYamlEnv()) {
+            addedFromYamlEntries++;
+        } else if(entry.isInjected()) {
+            injectedEntries++;
+        } else if(entry.isEnvValueSecret()) {
+            secretEntries++;
+        } else if(!entry.isPresentInYaml()) {
+            notInYamlEntries++;
+        }
+    }
+}
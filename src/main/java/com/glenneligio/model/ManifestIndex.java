@@ -0,0 +1,222 @@
+package com.glenneligio.model;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+
+/**
+ * Containers of all the workloads in a yaml file, keyed by container image and name.
+ * Built from a single pass over the yaml file so any number of images can be looked up without reading it again.
+ * An image is matched after normalization, so 'client-service' matches 'registry.example.com/team/client-service:1.2'
+ * and 'nginx:1.25' matches 'docker.io/library/nginx:1.25@sha256:...'. A container can also be looked up by its name.
+ * When more than one container matches, the first one in the yaml file is used, with containers coming before
+ * init containers.
+ * The ConfigMaps of the yaml file are kept only for the keys referenced by a container, and the env of a container
+ * is resolved against them when it is looked up.
+ */
+public class ManifestIndex {
+
+    private final String yamlFileLocation;
+    private final boolean containersPresent;
+    private final List<YamlContainer> containers;
+    private final Map<String, Map<String, String>> configMaps;
+    private final Map<String, Integer> containersByImage = new HashMap<>();
+    private final Map<String, Integer> containersByShortName = new HashMap<>();
+    private final Map<String, Integer> containersByName = new HashMap<>();
+
+    public ManifestIndex(String yamlFileLocation, boolean containersPresent, List<YamlContainer> containers) {
+        this(yamlFileLocation, containersPresent, containers, Collections.emptyMap());
+    }
+
+    /**
+     * @param configMaps data of the ConfigMaps of the yaml file, keyed by ConfigMap name
+     */
+    public ManifestIndex(String yamlFileLocation, boolean containersPresent, List<YamlContainer> containers, Map<String, Map<String, String>> configMaps) {
+        this.yamlFileLocation = yamlFileLocation;
+        this.containersPresent = containersPresent;
+        this.containers = new ArrayList<>(containers);
+        this.configMaps = getReferencedData(this.containers, configMaps);
+        for(int i = 0; i < this.containers.size(); i++) {
+            YamlContainer container = this.containers.get(i);
+            if(StringUtils.isNotBlank(container.getImage())) {
+                ImageReference image = ImageReference.parse(container.getImage());
+                for(String key : image.getLookupKeys()) {
+                    putIfBetter(containersByImage, key, i);
+                }
+                putIfBetter(containersByShortName, image.getShortName(), i);
+            }
+            if(Objects.nonNull(container.getName())) {
+                putIfBetter(containersByName, container.getName(), i);
+            }
+        }
+    }
+
+    /**
+     * @param imageOrName image of the container, with or without its registry, tag or digest, or name of the container
+     * @return the matching container, or null if there is none
+     */
+    public YamlContainer findContainer(String imageOrName) {
+        Integer match = containersByImage.get(ImageReference.parse(imageOrName).toString());
+        if(ImageReference.isShortName(imageOrName)) {
+            match = better(match, containersByShortName.get(imageOrName));
+        }
+        match = better(match, containersByName.get(imageOrName));
+        return Objects.isNull(match) ? null : containers.get(match);
+    }
+
+    /**
+     * Checks a single container the same way as {@link #findContainer(String)}, for scans that stop at the first match.
+     */
+    public static boolean matches(YamlContainer container, String imageOrName) {
+        if(imageOrName.equals(container.getName())) {
+            return true;
+        }
+        if(StringUtils.isBlank(container.getImage())) {
+            return false;
+        }
+        ImageReference image = ImageReference.parse(container.getImage());
+        if(image.getLookupKeys().contains(ImageReference.parse(imageOrName).toString())) {
+            return true;
+        }
+        return ImageReference.isShortName(imageOrName) && image.getShortName().equals(imageOrName);
+    }
+
+    /**
+     * Resolves the env of the container against the ConfigMaps. The keys of the 'envFrom' ConfigMaps come first,
+     * so the env entries of the container are used over them, the same as k8s.
+     * An entry referencing a ConfigMap or key that is not in the yaml file is kept as a secret, since its value is unknown.
+     * @param configMaps data of the ConfigMaps, keyed by ConfigMap name
+     */
+    public static List<YamlFileEnvEntry> resolveEnv(YamlContainer container, Map<String, Map<String, String>> configMaps) {
+        if(container.getEnvFrom().isEmpty() && container.getEnv().stream().allMatch(entry -> Objects.isNull(entry.getConfigMapKeyRef()))) {
+            return container.getEnv();
+        }
+
+        List<YamlFileEnvEntry> env = new ArrayList<>();
+        for(ConfigMapReference reference : container.getEnvFrom()) {
+            Map<String, String> data = configMaps.getOrDefault(reference.getName(), Collections.emptyMap());
+            String prefix = StringUtils.defaultString(reference.getPrefix());
+            data.forEach((key, value) -> env.add(new YamlFileEnvEntry(prefix + key, value, false)));
+        }
+        for(YamlFileEnvEntry entry : container.getEnv()) {
+            ConfigMapReference reference = entry.getConfigMapKeyRef();
+            if(Objects.isNull(reference)) {
+                env.add(entry);
+                continue;
+            }
+            String value = configMaps.getOrDefault(reference.getName(), Collections.emptyMap()).get(reference.getKey());
+            env.add(Objects.nonNull(value)
+                    ? new YamlFileEnvEntry(entry.getEnvName(), value, false)
+                    : new YamlFileEnvEntry(entry.getEnvName(), null, true));
+        }
+        return env;
+    }
+
+    /**
+     * @return names of the ConfigMaps referenced by the container
+     */
+    public static Set<String> getConfigMapNames(YamlContainer container) {
+        Set<String> names = new HashSet<>();
+        for(ConfigMapReference reference : container.getEnvFrom()) {
+            names.add(reference.getName());
+        }
+        for(YamlFileEnvEntry entry : container.getEnv()) {
+            if(Objects.nonNull(entry.getConfigMapKeyRef())) {
+                names.add(entry.getConfigMapKeyRef().getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param containerImageName image or name of the container
+     * @return the env entries of the matching container
+     * @throws RuntimeException if the yaml file have no containers, or no matching container
+     */
+    public List<YamlFileEnvEntry> getYamlFileEnvEntries(String containerImageName) {
+        if(!containersPresent) {
+            throw new RuntimeException("Container array field is missing.");
+        }
+        YamlContainer container = findContainer(containerImageName);
+        if(Objects.isNull(container)) {
+            throw new RuntimeException("Container with image name " + containerImageName + " does not exist.");
+        }
+        return resolveEnv(container, configMaps);
+    }
+
+    public boolean isContainersPresent() {
+        return containersPresent;
+    }
+
+    public String getYamlFileLocation() {
+        return yamlFileLocation;
+    }
+
+    /**
+     * @return all the containers and init containers, in order of the yaml file
+     */
+    public Collection<YamlContainer> getContainers() {
+        return Collections.unmodifiableList(containers);
+    }
+
+    /**
+     * @return data of the ConfigMaps referenced by the containers, in order of the yaml file
+     */
+    public Map<String, Map<String, String>> getConfigMaps() {
+        return Collections.unmodifiableMap(configMaps);
+    }
+
+    /**
+     * Keeps the ConfigMaps referenced by the containers, with all their keys when used in 'envFrom'
+     * and only the keys referenced otherwise, so unused data is not held in memory or in the cache.
+     */
+    private static Map<String, Map<String, String>> getReferencedData(List<YamlContainer> containers, Map<String, Map<String, String>> configMaps) {
+        if(configMaps.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<String> fullyReferenced = new HashSet<>();
+        Map<String, Set<String>> referencedKeys = new HashMap<>();
+        for(YamlContainer container : containers) {
+            for(ConfigMapReference reference : container.getEnvFrom()) {
+                fullyReferenced.add(reference.getName());
+            }
+            for(YamlFileEnvEntry entry : container.getEnv()) {
+                ConfigMapReference reference = entry.getConfigMapKeyRef();
+                if(Objects.nonNull(reference)) {
+                    referencedKeys.computeIfAbsent(reference.getName(), name -> new HashSet<>()).add(reference.getKey());
+                }
+            }
+        }
+
+        Map<String, Map<String, String>> referencedData = new LinkedHashMap<>();
+        configMaps.forEach((name, data) -> {
+            if(fullyReferenced.contains(name)) {
+                referencedData.put(name, data);
+            } else if(referencedKeys.containsKey(name)) {
+                Map<String, String> keys = new LinkedHashMap<>(data);
+                keys.keySet().retainAll(referencedKeys.get(name));
+                referencedData.put(name, keys);
+            }
+        });
+        return referencedData;
+    }
+
+    private void putIfBetter(Map<String, Integer> index, String key, int containerIndex) {
+        index.put(key, better(index.get(key), containerIndex));
+    }
+
+    private Integer better(Integer containerIndex, Integer otherContainerIndex) {
+        if(Objects.isNull(containerIndex)) {
+            return otherContainerIndex;
+        }
+        if(Objects.isNull(otherContainerIndex)) {
+            return containerIndex;
+        }
+        boolean init = containers.get(containerIndex).isInitContainer();
+        boolean otherInit = containers.get(otherContainerIndex).isInitContainer();
+        if(init != otherInit) {
+            return init ? otherContainerIndex : containerIndex;
+        }
+        return Math.min(containerIndex, otherContainerIndex);
+    }
+}
@@ -0,0 +1,47 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Result of the injection of a template with the env of the yaml file of one environment.
+ */
+@Data
+public class MatrixResult {
+
+    private String environment;
+    private InjectionResult result;
+    private List<PropertiesFileEntry> entries = new ArrayList<>();
+    private Set<String> secretEnvNames = new HashSet<>();
+
+    public MatrixResult(String environment, InjectionResult result) {
+        this.environment = environment;
+        this.result = result;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public InjectionResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the populated entries of the template, empty if the injection failed
+     */
+    public List<PropertiesFileEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the env of the yaml file whose value is taken from a secret, even when the value was resolved
+     */
+    public Set<String> getSecretEnvNames() {
+        return secretEnvNames;
+    }
+}
@@ -0,0 +1,47 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+/**
+ * A ${NAME} or ${NAME:default} placeholder in the value of a property entry.
+ * The start and end are the indexes of the placeholder in the value, end being exclusive.
+ */
+@Data
+public class Placeholder {
+    private String envName;
+    private String defaultValue;
+    private int start;
+    private int end;
+    private String envValueToInject;
+
+    public Placeholder(String envName, String defaultValue, int start, int end) {
+        this.envName = envName;
+        this.defaultValue = defaultValue;
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getEnvName() {
+        return envName;
+    }
+
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getEnvValueToInject() {
+        return envValueToInject;
+    }
+
+    public void setEnvValueToInject(String envValueToInject) {
+        this.envValueToInject = envValueToInject;
+    }
+}
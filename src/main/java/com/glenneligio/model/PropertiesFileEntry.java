@@ -2,6 +2,10 @@ package com.glenneligio.model;
 
 import lombok.Data;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
 @Data
 public class PropertiesFileEntry {
 
@@ -15,6 +19,10 @@ public class PropertiesFileEntry {
     private int lineNumber;
     private boolean isInjected;
     private boolean isPresentInYaml;
+    // placeholders of a value that is not just a single placeholder, such as jdbc:postgresql://${DB_HOST}:${DB_PORT}/app
+    private List<Placeholder> placeholders;
+    // value as written in the template when it has placeholders, the envUsed and defaultValue are then null
+    private String rawValue;
 
     public PropertiesFileEntry(String name,
                                String envUsed,
@@ -111,4 +119,30 @@ public class PropertiesFileEntry {
     public void setPresentInYaml(boolean presentInYaml) {
         isPresentInYaml = presentInYaml;
     }
+
+    public List<Placeholder> getPlaceholders() {
+        return placeholders;
+    }
+
+    public void setPlaceholders(List<Placeholder> placeholders) {
+        this.placeholders = placeholders;
+    }
+
+    public String getRawValue() {
+        return rawValue;
+    }
+
+    public void setRawValue(String rawValue) {
+        this.rawValue = rawValue;
+    }
+
+    /**
+     * @return the env used by the entry, which are the env of each of its placeholders for a value with placeholders
+     */
+    public List<String> getEnvNames() {
+        if(Objects.nonNull(placeholders)) {
+            return placeholders.stream().map(Placeholder::getEnvName).collect(Collectors.toList());
+        }
+        return Objects.nonNull(envUsed) ? List.of(envUsed) : List.of();
+    }
 }
@@ -0,0 +1,101 @@
+package com.glenneligio.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A properties file read and parsed once, to be injected with the env of several yaml files without reading
+ * or parsing it again. It is not changed once parsed, so it can be injected from several threads at the same time:
+ * {@link #getEntry(int)} returns a copy of the parsed entry, which is populated by each injection on its own.
+ */
+public final class PropertiesTemplate {
+
+    private final String location;
+    private final byte[] content;
+    private final String lineSeparator;
+    private final List<PropertiesFileEntry> entries;
+    // byte offsets in the content of the start and of the end of the content (before the terminator) of each line
+    private final int[] lineStarts;
+    private final int[] lineContentEnds;
+
+    /**
+     * @param entries parsed entry of each line, in order of the file
+     */
+    public PropertiesTemplate(String location, byte[] content, String lineSeparator, List<PropertiesFileEntry> entries, int[] lineStarts, int[] lineContentEnds) {
+        if(entries.size() != lineStarts.length || entries.size() != lineContentEnds.length) {
+            throw new IllegalArgumentException("Expected the offsets of " + entries.size() + " lines");
+        }
+        this.location = location;
+        this.content = content.clone();
+        this.lineSeparator = lineSeparator;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.lineStarts = lineStarts.clone();
+        this.lineContentEnds = lineContentEnds.clone();
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    /**
+     * @return number of lines of the template
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return a copy of the parsed entry of the line, which can be populated without changing the template
+     */
+    public PropertiesFileEntry getEntry(int index) {
+        PropertiesFileEntry entry = entries.get(index);
+        PropertiesFileEntry copy = new PropertiesFileEntry(entry.getName(), entry.getEnvUsed(), entry.getDefaultValue(),
+                entry.isValid(), entry.isValueInjected(), entry.getLineNumber(), entry.isPresentInYaml());
+        if(Objects.nonNull(entry.getPlaceholders())) {
+            List<Placeholder> placeholders = new ArrayList<>(entry.getPlaceholders().size());
+            for(Placeholder placeholder : entry.getPlaceholders()) {
+                placeholders.add(new Placeholder(placeholder.getEnvName(), placeholder.getDefaultValue(), placeholder.getStart(), placeholder.getEnd()));
+            }
+            copy.setPlaceholders(placeholders);
+            copy.setRawValue(entry.getRawValue());
+        }
+        return copy;
+    }
+
+    public int getLineStart(int index) {
+        return lineStarts[index];
+    }
+
+    public int getLineContentEnd(int index) {
+        return lineContentEnds[index];
+    }
+
+    /**
+     * @return size of the template in bytes
+     */
+    public int getContentLength() {
+        return content.length;
+    }
+
+    /**
+     * @return true if the template is empty or its last line have a line terminator
+     */
+    public boolean isLastLineTerminated() {
+        return content.length == 0 || content[content.length - 1] == '\n';
+    }
+
+    /**
+     * Writes the bytes of the template from the start offset, inclusive, to the end offset, exclusive.
+     */
+    public void writeContent(OutputStream out, int start, int end) throws IOException {
+        out.write(content, start, end - start);
+    }
+}
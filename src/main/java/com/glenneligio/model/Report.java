@@ -0,0 +1,81 @@
+package com.glenneligio.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entries of a template grouped in sections such as invalid, injected or secret entries.
+ * The sections are filled in a single pass over the entries, and an entry can be in more than one section.
+ * Sections are kept in the order they are added, and entries in the order of the template.
+ */
+public class Report {
+
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+
+    /**
+     * @param name key of the section in the JSON report
+     * @param heading heading of the section in the log report
+     */
+    public Section addSection(String name, String heading) {
+        Section section = new Section(name, heading);
+        sections.put(name, section);
+        return section;
+    }
+
+    public Section getSection(String name) {
+        return sections.get(name);
+    }
+
+    public Collection<Section> getSections() {
+        return Collections.unmodifiableCollection(sections.values());
+    }
+
+    public static class Section {
+        private final String name;
+        private final String heading;
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Section(String name, String heading) {
+            this.name = name;
+            this.heading = heading;
+        }
+
+        public void add(int lineNumber, String entryName) {
+            entries.add(new Entry(lineNumber, entryName));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHeading() {
+            return heading;
+        }
+
+        public List<Entry> getEntries() {
+            return Collections.unmodifiableList(entries);
+        }
+    }
+
+    public static class Entry {
+        private final int lineNumber;
+        private final String name;
+
+        private Entry(int lineNumber, String name) {
+            this.lineNumber = lineNumber;
+            this.name = name;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.glenneligio.model;
+
+public enum ReportFormat {
+    // one log line per heading and entry, as printed since the first version
+    LOG,
+    // a single JSON document on the standard output
+    JSON,
+    // no report at all
+    NONE
+}
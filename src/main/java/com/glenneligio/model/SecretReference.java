@@ -0,0 +1,25 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+/**
+ * Reference of an env entry to a key of a secret, through 'valueFrom.secretKeyRef'.
+ */
+@Data
+public class SecretReference {
+    private String name;
+    private String key;
+
+    public SecretReference(String name, String key) {
+        this.name = name;
+        this.key = key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
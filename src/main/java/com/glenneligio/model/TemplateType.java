@@ -0,0 +1,6 @@
+package com.glenneligio.model;
+
+public enum TemplateType {
+    PROPERTIES,
+    ENV
+}
@@ -0,0 +1,49 @@
+package com.glenneligio.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class YamlContainer {
+    private String name;
+    private String image;
+    private List<YamlFileEnvEntry> env;
+    private boolean initContainer;
+    private List<ConfigMapReference> envFrom = new ArrayList<>();
+
+    public YamlContainer(String image, List<YamlFileEnvEntry> env) {
+        this(null, image, env, false);
+    }
+
+    public YamlContainer(String name, String image, List<YamlFileEnvEntry> env, boolean initContainer) {
+        this.name = name;
+        this.image = image;
+        this.env = env;
+        this.initContainer = initContainer;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public List<YamlFileEnvEntry> getEnv() {
+        return env;
+    }
+
+    public boolean isInitContainer() {
+        return initContainer;
+    }
+
+    /**
+     * @return the ConfigMaps whose keys are all added to the env of the container, before its env entries
+     */
+    public List<ConfigMapReference> getEnvFrom() {
+        return envFrom;
+    }
+}
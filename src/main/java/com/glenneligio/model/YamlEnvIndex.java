@@ -0,0 +1,49 @@
+package com.glenneligio.model;
+
+import java.util.*;
+
+/**
+ * Hash index of the env entries from the yaml file, keyed by env name.
+ * Built once and shared by the populate and add-missing steps so matching is linear.
+ * When an env name is declared more than once, the last declaration wins (same as k8s)
+ * and the name is recorded in the duplicate env names.
+ */
+public class YamlEnvIndex {
+
+    private final Map<String, YamlFileEnvEntry> entries = new LinkedHashMap<>();
+    private final Set<String> duplicateEnvNames = new LinkedHashSet<>();
+
+    public YamlEnvIndex(List<YamlFileEnvEntry> yamlFileEnvEntries) {
+        for(YamlFileEnvEntry yamlEntry : yamlFileEnvEntries) {
+            if(Objects.isNull(yamlEntry.getEnvName())) {
+                continue;
+            }
+            if(Objects.nonNull(entries.put(yamlEntry.getEnvName(), yamlEntry))) {
+                duplicateEnvNames.add(yamlEntry.getEnvName());
+            }
+        }
+    }
+
+    public YamlFileEnvEntry get(String envName) {
+        return Objects.isNull(envName) ? null : entries.get(envName);
+    }
+
+    public boolean contains(String envName) {
+        return Objects.nonNull(envName) && entries.containsKey(envName);
+    }
+
+    /**
+     * @return the entries in order of first declaration in the yaml file
+     */
+    public Collection<YamlFileEnvEntry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public Set<String> getDuplicateEnvNames() {
+        return Collections.unmodifiableSet(duplicateEnvNames);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -1,12 +1,18 @@
 package com.glenneligio.model;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 @Data
 public class YamlFileEnvEntry {
     private String envName;
     private String envValue;
     private boolean isSecret;
+    // set while the value is still to be taken from a ConfigMap of the yaml file
+    private ConfigMapReference configMapKeyRef;
+    // where the value of a secret can be looked up, the entry is the same secret entry with or without it
+    @EqualsAndHashCode.Exclude
+    private SecretReference secretKeyRef;
 
     public YamlFileEnvEntry(String envName, String envValue, boolean isSecret) {
         this.envName = envName;
@@ -14,6 +20,22 @@ public class YamlFileEnvEntry {
         this.isSecret = isSecret;
     }
 
+    /**
+     * Entry whose value is taken from a ConfigMap key. Until resolved, it is treated the same as a secret.
+     */
+    public YamlFileEnvEntry(String envName, ConfigMapReference configMapKeyRef) {
+        this(envName, null, true);
+        this.configMapKeyRef = configMapKeyRef;
+    }
+
+    /**
+     * Entry whose value is taken from a key of a secret, which is only known when a secret provider is used.
+     */
+    public YamlFileEnvEntry(String envName, SecretReference secretKeyRef) {
+        this(envName, null, true);
+        this.secretKeyRef = secretKeyRef;
+    }
+
     public String getEnvName() {
         return envName;
     }
@@ -25,4 +47,12 @@ public class YamlFileEnvEntry {
     public boolean isSecret() {
         return isSecret;
     }
+
+    public ConfigMapReference getConfigMapKeyRef() {
+        return configMapKeyRef;
+    }
+
+    public SecretReference getSecretKeyRef() {
+        return secretKeyRef;
+    }
 }
@@ -0,0 +1,121 @@
+package com.glenneligio.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Output stream that hands the bytes written to a background thread, so the caller does not wait on the target stream.
+ * Used for the log output, since slf4j-simple writes and flushes each log line on the thread that logged it.
+ * The target is flushed by the background thread whenever it runs out of bytes to write.
+ * When the queue is full, the caller waits for the background thread to catch up, so no log line is dropped.
+ * Writes and close check and enqueue under the same lock, so nothing is enqueued after the end of the stream.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+    private static final byte[] END = new byte[0];
+
+    private final OutputStream target;
+    private final BlockingQueue<byte[]> queue;
+    private final Thread writerThread;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * @param capacity number of writes that can be waiting for the background thread
+     */
+    public AsyncOutputStream(OutputStream target, int capacity) {
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::drain, "async-output-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        byte[] bytes = Arrays.copyOfRange(b, off, off + len);
+        synchronized (this) {
+            if(closed) {
+                throw new IOException("Stream closed");
+            }
+            if(len == 0) {
+                return;
+            }
+            enqueue(bytes);
+        }
+    }
+
+    /**
+     * Does not wait for the bytes to be written, the background thread flushes the target once the queue is empty.
+     * Use {@link #close()} to wait for all the bytes to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits for the bytes written so far to reach the target, then flushes it. The target is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            enqueue(END);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the output to be written", e);
+        }
+        if(failure != null) {
+            throw failure;
+        }
+        target.flush();
+    }
+
+    private void enqueue(byte[] bytes) throws IOException {
+        try {
+            queue.put(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the output to be written", e);
+        }
+    }
+
+    private void drain() {
+        try {
+            byte[] bytes;
+            while((bytes = queue.take()) != END) {
+                // after a failure, the queue is still emptied so writers are never blocked
+                if(failure != null) {
+                    continue;
+                }
+                try {
+                    target.write(bytes);
+                    if(queue.isEmpty()) {
+                        target.flush();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface BatchService {
+    List<InjectionJob> readMappingFile(String mappingFileLocation) throws IOException;
+    List<InjectionResult> runJobs(List<InjectionJob> jobs);
+    void printReport(List<InjectionResult> results);
+    void printReport(List<InjectionResult> results, ReportFormat reportFormat);
+    Report buildReport(List<InjectionResult> results);
+}
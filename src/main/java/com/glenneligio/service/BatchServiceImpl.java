@@ -0,0 +1,211 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchServiceImpl implements BatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchServiceImpl.class);
+    private static final String DIRECTORY_NAME_TOKEN = "{dir}";
+
+    private final InjectionEngine injectionEngine;
+
+    public BatchServiceImpl() {
+        this(new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 1));
+    }
+
+    public BatchServiceImpl(InjectionEngine injectionEngine) {
+        this.injectionEngine = injectionEngine;
+    }
+
+    @Override
+    public List<InjectionJob> readMappingFile(String mappingFileLocation) throws IOException {
+        logger.info("Reading mapping file {}", mappingFileLocation);
+        File mappingFile = new File(mappingFileLocation);
+        if(!mappingFile.exists() || !mappingFile.isFile()) {
+            throw new FileNotFoundException("Mapping file does not exist: " + mappingFileLocation);
+        }
+
+        Object mapping;
+        try (Reader reader = new InputStreamReader(new FileInputStream(mappingFile), StandardCharsets.UTF_8)) {
+            mapping = new Yaml().load(reader);
+        }
+        if(!(mapping instanceof Map) || !(((Map<?, ?>) mapping).get("jobs") instanceof List)) {
+            throw new RuntimeException("Mapping file have no jobs list.");
+        }
+
+        Path baseDirectory = mappingFile.getAbsoluteFile().toPath().getParent();
+        List<InjectionJob> jobs = new ArrayList<>();
+        int jobNumber = 1;
+        for(Object item : (List<?>) ((Map<?, ?>) mapping).get("jobs")) {
+            if(!(item instanceof Map)) {
+                throw new RuntimeException("Invalid job entry " + jobNumber + " in mapping file.");
+            }
+            jobs.addAll(toJobs((Map<?, ?>) item, jobNumber, baseDirectory));
+            jobNumber++;
+        }
+        logger.info("{} jobs read from mapping file", jobs.size());
+        return jobs;
+    }
+
+    @Override
+    public List<InjectionResult> runJobs(List<InjectionJob> jobs) {
+        return injectionEngine.run(jobs);
+    }
+
+    @Override
+    public void printReport(List<InjectionResult> results) {
+        if(results.isEmpty()) {
+            logger.info("Empty list of results. Will not be printing report");
+            return;
+        }
+
+        logger.info("***************** Batch report ******************************************************");
+        int injected = 0, secret = 0, notInYaml = 0, addedFromYaml = 0, invalid = 0, failed = 0, upToDate = 0;
+        for(InjectionResult result : results) {
+            InjectionJob job = result.getJob();
+            if(result.isFailed()) {
+                failed++;
+                logger.info("FAILED {} [{} of {}]: {}", job.getTemplateFileLocation(), job.getContainerImageName(), job.getYamlFileLocation(), result.getErrorMessage());
+                continue;
+            }
+            if(result.isUpToDate()) {
+                upToDate++;
+            }
+            injected += result.getInjectedEntries();
+            secret += result.getSecretEntries();
+            notInYaml += result.getNotInYamlEntries();
+            addedFromYaml += result.getAddedFromYamlEntries();
+            invalid += result.getInvalidEntries();
+            logger.info("{} {} [{} of {}]: injected {}, secret {}, not in yaml {}, added from yaml {}, invalid or empty {}",
+                    result.isUpToDate() ? "SKIP  " : "OK    ", job.getTemplateFileLocation(), job.getContainerImageName(), job.getYamlFileLocation(),
+                    result.getInjectedEntries(), result.getSecretEntries(), result.getNotInYamlEntries(),
+                    result.getAddedFromYamlEntries(), result.getInvalidEntries());
+        }
+        logger.info("***************** Total *************************************************************");
+        logger.info("Files: {}, failed: {}, up to date: {}, injected {}, secret {}, not in yaml {}, added from yaml {}, invalid or empty {}",
+                results.size(), failed, upToDate, injected, secret, notInYaml, addedFromYaml, invalid);
+    }
+
+    /**
+     * Prints the report in the log format of {@link #printReport(List)}, or the report of {@link #buildReport(List)} in the other formats.
+     */
+    @Override
+    public void printReport(List<InjectionResult> results, ReportFormat reportFormat) {
+        switch (reportFormat) {
+            case LOG:
+                printReport(results);
+                break;
+            case NONE:
+                break;
+            default:
+                ReportWriter.write(buildReport(results), reportFormat, logger);
+        }
+    }
+
+    /**
+     * Lists the files injected, up to date and failed, numbered in the order of the jobs, with the counts of each file.
+     */
+    @Override
+    public Report buildReport(List<InjectionResult> results) {
+        Report report = new Report();
+        Report.Section injected = report.addSection("injected", "********** Files injected *********************************************************");
+        Report.Section upToDate = report.addSection("upToDate", "********** Files up to date, not injected again ***********************************");
+        Report.Section failed = report.addSection("failed", "********** Files that failed to be injected ***************************************");
+        for(int i = 0; i < results.size(); i++) {
+            InjectionResult result = results.get(i);
+            InjectionJob job = result.getJob();
+            String file = job.getTemplateFileLocation() + " [" + job.getContainerImageName() + " of " + job.getYamlFileLocation() + "]";
+            if(result.isFailed()) {
+                failed.add(i + 1, file + ": " + result.getErrorMessage());
+                continue;
+            }
+            String counts = String.format("injected %d, secret %d, not in yaml %d, added from yaml %d, invalid or empty %d",
+                    result.getInjectedEntries(), result.getSecretEntries(), result.getNotInYamlEntries(),
+                    result.getAddedFromYamlEntries(), result.getInvalidEntries());
+            (result.isUpToDate() ? upToDate : injected).add(i + 1, file + ": " + counts);
+        }
+        return report;
+    }
+
+    /**
+     * Converts a job entry of the mapping file to jobs. The template path can be a glob pattern,
+     * in which case a job is created for each matching file, and {dir} in the yaml and image
+     * is replaced with the name of the directory of the matching file.
+     */
+    private List<InjectionJob> toJobs(Map<?, ?> item, int jobNumber, Path baseDirectory) throws IOException {
+        TemplateType templateType;
+        Object template;
+        if(Objects.nonNull(item.get("properties"))) {
+            templateType = TemplateType.PROPERTIES;
+            template = item.get("properties");
+        } else if(Objects.nonNull(item.get("env"))) {
+            templateType = TemplateType.ENV;
+            template = item.get("env");
+        } else {
+            throw new RuntimeException("Job entry " + jobNumber + " in mapping file have no properties or env file.");
+        }
+        Object yaml = item.get("yaml");
+        Object image = item.get("image");
+        if(Objects.isNull(yaml) || Objects.isNull(image)) {
+            throw new RuntimeException("Job entry " + jobNumber + " in mapping file have no yaml file or image.");
+        }
+
+        List<Path> templatePaths = resolveTemplatePaths(baseDirectory, template.toString());
+        if(templatePaths.isEmpty()) {
+            logger.warn("No file matches {} of job entry {}", template, jobNumber);
+        }
+
+        List<InjectionJob> jobs = new ArrayList<>();
+        for(Path templatePath : templatePaths) {
+            String directoryName = Objects.nonNull(templatePath.getParent()) && Objects.nonNull(templatePath.getParent().getFileName())
+                    ? templatePath.getParent().getFileName().toString()
+                    : "";
+            String yamlFileLocation = baseDirectory.resolve(yaml.toString().replace(DIRECTORY_NAME_TOKEN, directoryName)).normalize().toString();
+            String containerImageName = image.toString().replace(DIRECTORY_NAME_TOKEN, directoryName);
+            jobs.add(new InjectionJob(templateType, templatePath.toString(), yamlFileLocation, containerImageName));
+        }
+        return jobs;
+    }
+
+    private List<Path> resolveTemplatePaths(Path baseDirectory, String template) throws IOException {
+        int globIndex = indexOfGlobCharacter(template);
+        if(globIndex == -1) {
+            return Collections.singletonList(baseDirectory.resolve(template).normalize());
+        }
+
+        // walk only the part of the path that have no glob characters, and match the rest against the pattern
+        String normalizedTemplate = template.replace('\\', '/');
+        int separatorIndex = normalizedTemplate.lastIndexOf('/', globIndex);
+        Path walkRoot = baseDirectory.resolve(normalizedTemplate.substring(0, separatorIndex + 1)).normalize();
+        if(!Files.isDirectory(walkRoot)) {
+            return Collections.emptyList();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalizedTemplate.substring(separatorIndex + 1));
+        try (Stream<Path> paths = Files.walk(walkRoot)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(walkRoot.relativize(path)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private int indexOfGlobCharacter(String path) {
+        for(int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if(c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.ImageReference;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.ManifestIndex;
+import com.glenneligio.model.TemplateType;
+import com.glenneligio.model.YamlContainer;
+
+import java.util.*;
+
+/**
+ * Plans the jobs injecting several containers of the same yaml file, so the yaml file is read once for all of them.
+ * Each container is injected either in its own template, given in the same order as the containers,
+ * or in a template shared by all the containers and written to a file per container,
+ * e.g. 'application.properties-client-service-injected'.
+ */
+public class ContainerJobPlanner {
+
+    private ContainerJobPlanner() {
+    }
+
+    /**
+     * @param templateFileLocations a single template for all the containers, or one template per container
+     * @param containerImageNames images or names of the containers
+     * @throws RuntimeException if the number of templates does not match the containers, or two containers would write the same file
+     */
+    public static List<InjectionJob> planJobs(TemplateType templateType, List<String> templateFileLocations, String yamlFileLocation, List<String> containerImageNames) {
+        if(containerImageNames.isEmpty()) {
+            throw new RuntimeException("No container to inject");
+        }
+        boolean sharedTemplate = templateFileLocations.size() == 1;
+        if(!sharedTemplate && templateFileLocations.size() != containerImageNames.size()) {
+            throw new RuntimeException("Expected a single template or one template per container, but got "
+                    + templateFileLocations.size() + " templates for " + containerImageNames.size() + " containers");
+        }
+
+        List<InjectionJob> jobs = new ArrayList<>();
+        Map<String, String> containersByOutput = new HashMap<>();
+        for(int i = 0; i < containerImageNames.size(); i++) {
+            String containerImageName = containerImageNames.get(i);
+            String templateFileLocation = templateFileLocations.get(sharedTemplate ? 0 : i);
+            String outputFileLocation = sharedTemplate && containerImageNames.size() > 1
+                    ? templateFileLocation + "-" + getLabel(containerImageName) + "-injected"
+                    : null;
+            InjectionJob job = new InjectionJob(templateType, templateFileLocation, yamlFileLocation, containerImageName, outputFileLocation);
+            String otherContainer = containersByOutput.putIfAbsent(job.getOutputFileLocation(), containerImageName);
+            if(Objects.nonNull(otherContainer)) {
+                throw new RuntimeException("Containers " + otherContainer + " and " + containerImageName + " would both write "
+                        + job.getOutputFileLocation() + ", use one template per container");
+            }
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    /**
+     * @return names of the containers of the yaml file, or their image if they have no name, without the init containers
+     * @throws RuntimeException if the yaml file have no containers
+     */
+    public static List<String> getContainerImageNames(ManifestIndex manifestIndex) {
+        List<String> containerImageNames = new ArrayList<>();
+        for(YamlContainer container : manifestIndex.getContainers()) {
+            if(container.isInitContainer()) {
+                continue;
+            }
+            String containerImageName = Objects.nonNull(container.getName()) ? container.getName() : container.getImage();
+            if(Objects.nonNull(containerImageName) && !containerImageNames.contains(containerImageName)) {
+                containerImageNames.add(containerImageName);
+            }
+        }
+        if(containerImageNames.isEmpty()) {
+            throw new RuntimeException("No containers in yaml file " + manifestIndex.getYamlFileLocation());
+        }
+        return containerImageNames;
+    }
+
+    /**
+     * @return the container name, or the short name of the image, e.g. 'nginx' for 'docker.io/library/nginx:1.25'
+     */
+    private static String getLabel(String containerImageName) {
+        return ImageReference.isShortName(containerImageName)
+                ? containerImageName
+                : ImageReference.parse(containerImageName).getShortName();
+    }
+}
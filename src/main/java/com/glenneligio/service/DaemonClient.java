@@ -0,0 +1,73 @@
+package com.glenneligio.service;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Sends the command arguments to a running {@link DaemonServer} and streams back its output.
+ */
+public class DaemonClient {
+
+    private final int port;
+    private final Path stateDirectory;
+    private final Path workingDirectory;
+
+    public DaemonClient(int port, Path stateDirectory) {
+        this(port, stateDirectory, Paths.get("").toAbsolutePath());
+    }
+
+    /**
+     * @param workingDirectory directory the relative paths of the command are resolved against
+     */
+    public DaemonClient(int port, Path stateDirectory, Path workingDirectory) {
+        this.port = port;
+        this.stateDirectory = stateDirectory;
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * @return the exit code of the command run by the daemon
+     */
+    public int send(List<String> args, OutputStream output) throws IOException {
+        Path tokenFile = DaemonServer.getTokenFile(stateDirectory, port);
+        if(!Files.isReadable(tokenFile)) {
+            throw new ConnectException("No daemon running on port " + port + ", start one using 'setup daemon'");
+        }
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(DaemonServer.PROTOCOL_VERSION);
+            out.writeUTF(token);
+            out.writeUTF(workingDirectory.toAbsolutePath().toString());
+            out.writeInt(args.size());
+            for(String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            int length;
+            while((length = in.readInt()) != -1) {
+                while(length > 0) {
+                    int read = in.read(buffer, 0, Math.min(buffer.length, length));
+                    if(read == -1) {
+                        throw new EOFException("Daemon closed the connection before sending the exit code");
+                    }
+                    output.write(buffer, 0, read);
+                    length -= read;
+                }
+                output.flush();
+            }
+            return in.readInt();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.glenneligio.service;
+
+import com.github.rvesse.airline.Cli;
+import com.github.rvesse.airline.model.CommandGroupMetadata;
+import com.github.rvesse.airline.model.CommandMetadata;
+import com.github.rvesse.airline.model.OptionMetadata;
+import com.github.rvesse.airline.parser.errors.ParseException;
+import com.glenneligio.Main;
+import com.glenneligio.commands.LoggingOptions;
+import com.glenneligio.commands.PathOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Resident process that runs the setup commands sent by {@link DaemonClient}, so the JVM startup and
+ * class loading is paid once and the code paths stay warm between runs.
+ * Listens on the loopback address only, and each request must carry the token written in the state directory,
+ * which is only readable by the current user.
+ * Requests are run one at a time, as the output of the command (stdout and stderr, where the logs are written)
+ * is streamed back to the client.
+ */
+public class DaemonServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DaemonServer.class);
+    public static final int DEFAULT_PORT = 47615;
+    public static final Path DEFAULT_STATE_DIRECTORY = Paths.get(System.getProperty("user.home"), ".cache", "properties-env-setup");
+    public static final String STOP_REQUEST = "--stop";
+    static final int PROTOCOL_VERSION = 1;
+
+    private final int port;
+    private final Duration idleTimeout;
+    private final Path stateDirectory;
+    private final Cli<Runnable> cli = new Cli<>(Main.class);
+    private ServerSocket serverSocket;
+    private Path tokenFile;
+    private String token;
+
+    public DaemonServer(int port, Duration idleTimeout, Path stateDirectory) {
+        this.port = port;
+        this.idleTimeout = idleTimeout;
+        this.stateDirectory = stateDirectory;
+    }
+
+    /**
+     * Binds the server socket and writes the token file of the port used.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        serverSocket.setSoTimeout((int) idleTimeout.toMillis());
+        byte[] tokenBytes = new byte[32];
+        new SecureRandom().nextBytes(tokenBytes);
+        token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        tokenFile = writeTokenFile(stateDirectory, getPort(), token);
+        logger.info("Daemon listening on {}:{}, stops after {} seconds of inactivity", serverSocket.getInetAddress().getHostAddress(), getPort(), idleTimeout.getSeconds());
+    }
+
+    /**
+     * Handles requests until the idle timeout is reached or a stop request is received.
+     */
+    public void serve() throws IOException {
+        try {
+            while(true) {
+                try (Socket socket = serverSocket.accept()) {
+                    if(!handle(socket)) {
+                        logger.info("Stop request received");
+                        break;
+                    }
+                } catch (SocketTimeoutException e) {
+                    logger.info("No request received in the last {} seconds", idleTimeout.getSeconds());
+                    break;
+                } catch (IOException e) {
+                    logger.warn("Failed to handle request: {}", e.toString());
+                }
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    public void stop() throws IOException {
+        if(Objects.nonNull(serverSocket) && !serverSocket.isClosed()) {
+            serverSocket.close();
+        }
+        if(Objects.nonNull(tokenFile)) {
+            Files.deleteIfExists(tokenFile);
+        }
+        logger.info("Daemon stopped");
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public static Path getTokenFile(Path stateDirectory, int port) {
+        return stateDirectory.resolve("daemon-" + port + ".token");
+    }
+
+    /**
+     * @return false if the request is a stop request
+     */
+    private boolean handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        int version = in.readInt();
+        String requestToken = in.readUTF();
+        String workingDirectory = in.readUTF();
+        List<String> args = new ArrayList<>();
+        int argCount = in.readInt();
+        for(int i = 0; i < argCount; i++) {
+            args.add(in.readUTF());
+        }
+
+        if(version != PROTOCOL_VERSION || !isValidToken(requestToken)) {
+            logger.warn("Rejected request with invalid protocol version or token");
+            writeOutput(out, "Rejected request with invalid protocol version or token\n");
+            writeExitCode(out, 2);
+            return true;
+        }
+        if(args.size() == 1 && args.get(0).equals(STOP_REQUEST)) {
+            writeOutput(out, "Daemon stopped\n");
+            writeExitCode(out, 0);
+            return false;
+        }
+
+        Optional<String> loggingOption = args.stream().filter(LoggingOptions::isLoggingOption).findFirst();
+        if(loggingOption.isPresent()) {
+            writeOutput(out, "Option '" + loggingOption.get() + "' is not applied to a single request, pass it to 'setup daemon' instead\n");
+            writeExitCode(out, 2);
+            return true;
+        }
+
+        logger.info("Running request {}", args);
+        int exitCode = run(resolvePaths(args, Paths.get(workingDirectory)), out);
+        writeExitCode(out, exitCode);
+        return true;
+    }
+
+    /**
+     * Compares the token in constant time, so the time taken does not tell how much of it matches.
+     */
+    private boolean isValidToken(String requestToken) {
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs the command with stdout and stderr redirected to the client.
+     */
+    private int run(List<String> args, DataOutputStream out) {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        PrintStream clientStream = new PrintStream(new FramedOutputStream(out), true, StandardCharsets.UTF_8);
+        System.setOut(clientStream);
+        System.setErr(clientStream);
+        try {
+            Runnable cmd = cli.parse(args.toArray(new String[0]));
+            cmd.run();
+            return 0;
+        } catch (ParseException e) {
+            clientStream.println(e.getMessage());
+            return 2;
+        } catch (Exception e) {
+            clientStream.println("Command failed: " + e);
+            return 1;
+        } finally {
+            clientStream.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+
+    /**
+     * Resolves the values of the options marked with {@link PathOption} in the command sent against the working
+     * directory of the client. Values of the other options are passed as they are.
+     */
+    private List<String> resolvePaths(List<String> args, Path workingDirectory) {
+        Set<String> pathOptions = getPathOptions(args);
+        List<String> result = new ArrayList<>(args);
+        for(int i = 0; i < result.size(); i++) {
+            String arg = result.get(i);
+            int equalsIndex = arg.indexOf('=');
+            if(equalsIndex != -1 && pathOptions.contains(arg.substring(0, equalsIndex))) {
+                result.set(i, arg.substring(0, equalsIndex + 1) + workingDirectory.resolve(arg.substring(equalsIndex + 1)));
+            } else if(pathOptions.contains(arg) && i + 1 < result.size()) {
+                result.set(i + 1, workingDirectory.resolve(result.get(i + 1)).toString());
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the names of the path options of the command named in the arguments, empty if no command is found
+     */
+    private Set<String> getPathOptions(List<String> args) {
+        List<CommandMetadata> commands = new ArrayList<>(cli.getMetadata().getDefaultGroupCommands());
+        for(CommandGroupMetadata group : cli.getMetadata().getCommandGroups()) {
+            commands.addAll(group.getCommands());
+        }
+        for(String arg : args) {
+            for(CommandMetadata command : commands) {
+                if(command.getName().equals(arg)) {
+                    Set<String> pathOptions = new HashSet<>();
+                    for(OptionMetadata option : command.getAllOptions()) {
+                        if(option.getAccessors().stream().anyMatch(accessor -> Objects.nonNull(accessor.getAnnotation(PathOption.class)))) {
+                            pathOptions.addAll(option.getOptions());
+                        }
+                    }
+                    return pathOptions;
+                }
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    private static Path writeTokenFile(Path stateDirectory, int port, String token) throws IOException {
+        Files.createDirectories(stateDirectory);
+        Path tokenFile = getTokenFile(stateDirectory, port);
+        Files.deleteIfExists(tokenFile);
+        if(FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.write(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+        return tokenFile;
+    }
+
+    private static void writeOutput(DataOutputStream out, String output) throws IOException {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeExitCode(DataOutputStream out, int exitCode) throws IOException {
+        out.writeInt(-1);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    /**
+     * Writes each chunk of output prefixed with its length, so the exit code can follow the output.
+     */
+    private static class FramedOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        private FramedOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if(len == 0) {
+                return;
+            }
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
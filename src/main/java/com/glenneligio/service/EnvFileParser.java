@@ -0,0 +1,165 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.EnvFileEntry;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Parses the entries of a .env file with a state machine that walks the bytes of each line once.
+ * Supports export NAME=value, single and double quoted values, escapes in double quoted values
+ * and quoted values spanning several lines. Only the name and value of each entry are decoded.
+ * Unquoted values end at the first #, the same as before quoting was supported.
+ */
+final class EnvFileParser {
+
+    private static final String EXPORT_KEYWORD = "export";
+
+    private final LineScanner scanner;
+    private LineScanner.Line line;
+    private int lineNumber;
+
+    EnvFileParser(LineScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    /**
+     * @return the next entry, or null if the end of the file is reached
+     */
+    EnvFileEntry next() throws IOException {
+        line = scanner.next();
+        if(Objects.isNull(line)) {
+            return null;
+        }
+        lineNumber++;
+        int firstLineNumber = lineNumber;
+        int length = line.length();
+
+        int index = skipWhitespace(0, length);
+        if(index == length || line.byteAt(index) == '#') {
+            return new EnvFileEntry(line.getText(), null, null, false, false, firstLineNumber, false, false, false);
+        }
+
+        boolean exported = false;
+        if(isExportKeyword(index, length)) {
+            exported = true;
+            index = skipWhitespace(index + EXPORT_KEYWORD.length(), length);
+        }
+
+        int nameStart = index;
+        while(index < length && line.byteAt(index) != '=' && line.byteAt(index) != '#') {
+            index++;
+        }
+        if(index == length || line.byteAt(index) == '#') {
+            String invalidEntry = index == length ? line.getText() : line.decode(0, index).trim();
+            return new EnvFileEntry(invalidEntry, null, null, false, false, firstLineNumber, false, false, false);
+        }
+        String name = line.decode(nameStart, index).trim();
+
+        index = skipWhitespace(index + 1, length);
+        char quote = 0;
+        String value;
+        if(index == length || line.byteAt(index) == '#') {
+            value = "";
+        } else if(line.byteAt(index) == '"' || line.byteAt(index) == '\'') {
+            String firstLine = line.getText();
+            quote = (char) line.byteAt(index);
+            value = readQuotedValue(index + 1, quote);
+            if(Objects.isNull(value)) {
+                EnvFileEntry unterminatedEntry = new EnvFileEntry(firstLine, null, null, false, false, firstLineNumber, false, false, false);
+                unterminatedEntry.setLineCount(lineNumber - firstLineNumber + 1);
+                return unterminatedEntry;
+            }
+        } else {
+            int valueEnd = line.indexOf('#', index, length);
+            value = line.decode(index, valueEnd == -1 ? length : valueEnd).trim();
+        }
+
+        EnvFileEntry entry = new EnvFileEntry(name, value, null, true, false, firstLineNumber, false, false, false);
+        entry.setExported(exported);
+        entry.setQuote(quote);
+        entry.setLineCount(lineNumber - firstLineNumber + 1);
+        return entry;
+    }
+
+    /**
+     * Reads the value up to the closing quote, moving to the next lines if the quote is not closed in the current line.
+     * Escapes are only handled in double quoted values. The rest of the line after the closing quote is ignored.
+     * @return the value, or null if the end of the file is reached before the closing quote
+     */
+    private String readQuotedValue(int fromIndex, char quote) throws IOException {
+        StringBuilder value = null;
+        int segmentStart = fromIndex;
+        int index = fromIndex;
+        int length = line.length();
+        while(true) {
+            while(index < length) {
+                byte b = line.byteAt(index);
+                if(b == quote) {
+                    String lastSegment = line.decode(segmentStart, index);
+                    return Objects.isNull(value) ? lastSegment : value.append(lastSegment).toString();
+                }
+                if(quote == '"' && b == '\\' && index + 1 < length) {
+                    char escaped = unescape(line.byteAt(index + 1));
+                    if(escaped != 0) {
+                        value = Objects.isNull(value) ? new StringBuilder() : value;
+                        value.append(line.decode(segmentStart, index)).append(escaped);
+                        index += 2;
+                        segmentStart = index;
+                        continue;
+                    }
+                }
+                index++;
+            }
+
+            value = Objects.isNull(value) ? new StringBuilder() : value;
+            value.append(line.decode(segmentStart, length)).append('\n');
+            line = scanner.next();
+            if(Objects.isNull(line)) {
+                return null;
+            }
+            lineNumber++;
+            length = line.length();
+            index = 0;
+            segmentStart = 0;
+        }
+    }
+
+    private static char unescape(byte b) {
+        switch (b) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '"':
+                return '"';
+            case '\\':
+                return '\\';
+            default:
+                return 0;
+        }
+    }
+
+    private boolean isExportKeyword(int index, int length) {
+        int end = index + EXPORT_KEYWORD.length();
+        if(end >= length) {
+            return false;
+        }
+        for(int i = 0; i < EXPORT_KEYWORD.length(); i++) {
+            if(line.byteAt(index + i) != EXPORT_KEYWORD.charAt(i)) {
+                return false;
+            }
+        }
+        byte next = line.byteAt(end);
+        return next == ' ' || next == '\t';
+    }
+
+    private int skipWhitespace(int index, int length) {
+        while(index < length && line.byteAt(index) >= 0 && line.byteAt(index) <= ' ') {
+            index++;
+        }
+        return index;
+    }
+}
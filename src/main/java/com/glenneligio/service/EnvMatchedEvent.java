@@ -0,0 +1,36 @@
+package com.glenneligio.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of the entries of an application.properties or .env file matched with the env of the yaml file.
+ */
+@Name("com.glenneligio.EnvMatched")
+@Label("Env Matched")
+@Category("Properties Env Setup")
+@Description("Entries of a template matched with the env of the yaml file")
+class EnvMatchedEvent extends Event {
+
+    @Label("Path")
+    @Description("Template file, or null if the entries were read before matching")
+    String path;
+
+    @Label("Template Type")
+    String templateType;
+
+    @Label("Yaml Env")
+    int yamlEnv;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Matched")
+    int matched;
+
+    @Label("Secret")
+    int secret;
+}
@@ -1,6 +1,9 @@
 package com.glenneligio.service;
 
 import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 
 import java.io.IOException;
@@ -9,8 +12,22 @@ import java.util.List;
 public interface EnvService {
 
     List<EnvFileEntry> readOrCreateEnvFile(String envFileLocation) throws IOException;
-    void injectEnvFound(List<EnvFileEntry> envFileEntries, String envFileLocation) throws IOException;
+
+    /**
+     * @return bytes written to the output file, or 0 if it already had the same content and was left untouched
+     */
+    long injectEnvFound(List<EnvFileEntry> envFileEntries, String envFileLocation) throws IOException;
+
+    /**
+     * Same as {@link #injectEnvFound(List, String)}, writing the injected file to the output file
+     * instead of the .env file with an -injected suffix.
+     */
+    long injectEnvFound(List<EnvFileEntry> envFileEntries, String envFileLocation, String outputFileLocation) throws IOException;
     void printReport(List<EnvFileEntry> envFileEntries);
+    void printReport(List<EnvFileEntry> envFileEntries, ReportFormat reportFormat);
+    Report buildReport(List<EnvFileEntry> envFileEntries);
     List<EnvFileEntry> addNewEnvFromYaml(List<EnvFileEntry> currentEnvFileEntries, List<YamlFileEnvEntry> yamlFileEnvEntries);
+    List<EnvFileEntry> addNewEnvFromYaml(List<EnvFileEntry> currentEnvFileEntries, YamlEnvIndex yamlEnvIndex);
     List<EnvFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<EnvFileEntry> currentEnvFileEnties, List<YamlFileEnvEntry> yamlFileEnvEntries);
+    List<EnvFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<EnvFileEntry> currentEnvFileEnties, YamlEnvIndex yamlEnvIndex);
 }
@@ -1,6 +1,10 @@
 package com.glenneligio.service;
 
 import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.TemplateType;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -8,10 +12,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -29,149 +35,251 @@ public class EnvServiceImpl implements EnvService {
            return envFileEntries;
         }
 
-        List<String> envFileLines = Files.readAllLines(Paths.get(envFileLocation));
-        int lineNumber = 1;
-
-        for(String envFileEntry : envFileLines) {
-            String envFileEntryValue = envFileEntry;
-            int commentCharIndex = envFileEntry.indexOf("#");
-            if(commentCharIndex != -1) {
-                logger.info("Cleaning the line by removing comment in line {}", lineNumber);
-                envFileEntryValue = envFileEntry.substring(0, commentCharIndex).trim();
-            }
-
-            if(envFileEntryValue.trim().length() == 0) {
-                logger.debug("Empty line, skipped");
-                EnvFileEntry entry = new EnvFileEntry(envFileEntry, null,null, false, false, lineNumber, false, false, false);
+        try (FileChannel channel = FileChannel.open(envFile.toPath(), StandardOpenOption.READ)) {
+            EnvFileParser parser = new EnvFileParser(new LineScanner(channel, StandardCharsets.UTF_8));
+            EnvFileEntry entry;
+            while(Objects.nonNull(entry = parser.next())) {
+                if(logger.isDebugEnabled()) {
+                    if(!entry.isValid()) {
+                        logger.debug("Invalid entry or empty line, skipped: {}", entry.getName());
+                    } else {
+                        logger.debug("envName: {}", entry.getName());
+                        logger.debug("envValue: {}", entry.getDefaultValue());
+                    }
+                }
                 envFileEntries.add(entry);
-                lineNumber++;
-                continue;
             }
+        }
 
-            int equalsIndex = envFileEntryValue.indexOf("=");
-            if(equalsIndex == -1) {
-                logger.debug("Invalid entry, skipped: {}", envFileEntryValue);
-                EnvFileEntry entry = new EnvFileEntry(envFileEntryValue, null, null, false, false, lineNumber, false, false, false);
-                envFileEntries.add(entry);
-                lineNumber++;
-                continue;
-            }
+        return envFileEntries;
+    }
 
-            String envName = envFileEntryValue.substring(0, equalsIndex).trim();
-            String envValue = envFileEntryValue.substring(equalsIndex + 1).trim();
-            logger.debug("envName: {}", envName);
-            logger.debug("envValue: {}", envValue);
+    @Override
+    public long injectEnvFound(List<EnvFileEntry> envFileEntries, String envFileLocation) throws IOException {
+        return injectEnvFound(envFileEntries, envFileLocation, envFileLocation + "-injected");
+    }
 
-            if(envValue.trim().length() == 0) {
-                logger.debug("Entry have no default value: {}", envName);
-                EnvFileEntry entry = new EnvFileEntry(envName, "", null, true, false, lineNumber, false, false, false);
-                envFileEntries.add(entry);
+    @Override
+    public long injectEnvFound(List<EnvFileEntry> envFileEntries, String envFileLocation, String outputFileLocation) throws IOException {
+        FileInjectedEvent event = new FileInjectedEvent();
+        event.begin();
+        Map<Integer, EnvFileEntry> fileContents = new TreeMap<>();
+        for(EnvFileEntry envFileEntry : envFileEntries) {
+            fileContents.put(envFileEntry.getLineNumber(), envFileEntry);
+        }
+
+        // lines of the .env file are copied as is unless their entry renders differently,
+        // and the entries after the last line (the ones added from the yaml file) are appended
+        Path outputFile = Paths.get(outputFileLocation);
+        Path tempFile = OutputFileWriter.createTempFile(outputFile);
+        try (FileChannel source = FileChannel.open(Paths.get(envFileLocation), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            LineScanner scanner = new LineScanner(source, StandardCharsets.UTF_8);
+            SpliceWriter writer = new SpliceWriter(source, target, StandardCharsets.UTF_8);
+            LineScanner.Line line;
+            // first line of an entry spanning several lines, and the lines read so far
+            LineScanner.Line spanStart = null;
+            StringBuilder spanText = null;
+            EnvFileEntry spanEntry = null;
+            int spanEnd = 0;
+            int lineNumber = 1;
+            while(Objects.nonNull(line = scanner.next())) {
+                if(Objects.nonNull(spanEntry)) {
+                    spanText.append('\n').append(line.getText());
+                    if(lineNumber == spanEnd) {
+                        if(replaceSpan(writer, spanStart, line, spanText.toString(), spanEntry, scanner.getLineSeparator())) {
+                            event.linesRewritten++;
+                        }
+                        spanEntry = null;
+                    }
+                    lineNumber++;
+                    continue;
+                }
+
+                EnvFileEntry envFileEntry = fileContents.remove(lineNumber);
+                if(Objects.isNull(envFileEntry)) {
+                    writer.remove(line);
+                    event.linesRewritten++;
+                } else if(envFileEntry.getLineCount() > 1) {
+                    // line of the env file is decided once all the lines of the entry are read
+                    spanStart = line;
+                    spanText = new StringBuilder(line.getText());
+                    spanEntry = envFileEntry;
+                    spanEnd = lineNumber + envFileEntry.getLineCount() - 1;
+                } else {
+                    String fileEntry = toFileEntry(envFileEntry);
+                    if(!fileEntry.equals(line.getText())) {
+                        writer.replace(line, fileEntry);
+                        event.linesRewritten++;
+                    }
+                }
                 lineNumber++;
-                continue;
             }
-
-            logger.debug("Entry have default value: {}", envName);
-            EnvFileEntry entry = new EnvFileEntry(envName, envValue, null, true, false, lineNumber, false, false, false);
-            envFileEntries.add(entry);
-            lineNumber++;
+            writer.finish(scanner.getLineSeparator());
+            for(EnvFileEntry envFileEntry : fileContents.values()) {
+                writer.appendLine(toFileEntry(envFileEntry), scanner.getLineSeparator());
+                event.linesRewritten++;
+            }
+            event.bytesRead = source.size();
+            event.bytesWritten = target.size();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        boolean replaced = OutputFileWriter.replaceIfChanged(tempFile, outputFile);
+        if(event.shouldCommit()) {
+            event.path = envFileLocation;
+            event.templateType = TemplateType.ENV.name();
+            event.replaced = replaced;
+            event.commit();
         }
+        return replaced ? event.bytesWritten : 0;
+    }
 
-        return envFileEntries;
+    /**
+     * @return true if the lines were replaced
+     */
+    private boolean replaceSpan(SpliceWriter writer, LineScanner.Line firstLine, LineScanner.Line lastLine, String spanText,
+                                EnvFileEntry envFileEntry, String lineSeparator) throws IOException {
+        // invalid entries spanning several lines (unterminated quotes) are kept as is
+        if(!envFileEntry.isValid()) {
+            return false;
+        }
+        String fileEntry = toFileEntry(envFileEntry);
+        if(fileEntry.equals(spanText)) {
+            return false;
+        }
+        writer.replace(firstLine, lastLine, fileEntry.replace("\n", lineSeparator));
+        return true;
     }
 
-    @Override
-    public void injectEnvFound(List<EnvFileEntry> envFileEntries, String envFileLocation) throws IOException {
-        Map<Integer, EnvFileEntry> fileContents = new HashMap<>();
+    private String toFileEntry(EnvFileEntry envFileEntry) {
+        logger.trace("Entry value: {}", envFileEntry);
+        if(!envFileEntry.isValid()) {
+            return envFileEntry.getName().trim();
+        }
 
-        envFileEntries.stream()
-                .sorted(Comparator.comparingInt(EnvFileEntry::getLineNumber))
-                .forEach(envFileEntry -> fileContents.put(envFileEntry.getLineNumber(), envFileEntry));
+        String envValue;
+        if(envFileEntry.isInjected() && !envFileEntry.isEnvValueSecret()) {
+            envValue = StringUtils.trimToEmpty(envFileEntry.getEnvValueToInject());
+        } else if(envFileEntry.isFromYamlEnv()) {
+            envValue = envFileEntry.isEnvValueSecret() ? "" : StringUtils.trimToEmpty(envFileEntry.getEnvValueToInject());
+        } else {
+            envValue = StringUtils.defaultString(envFileEntry.getDefaultValue());
+        }
+        String fileEntry = envFileEntry.getName() + "=" + quoteValue(envValue, envFileEntry);
+        return envFileEntry.isExported() ? "export " + fileEntry : fileEntry;
+    }
 
-        List<String> fileLineEntries = fileContents.entrySet()
-                .stream()
-                .sorted(Comparator.comparingInt(mapEntry -> mapEntry.getValue().getLineNumber()))
-                .map(entry -> {
-                    logger.info("Entry value: {}", entry.getValue());
-                    EnvFileEntry envFileEntry = entry.getValue();
-                    String fileEntry = entry.getValue().getName();
-                    String envName = "";
-                    String envValue = "";
-                    if(envFileEntry.isValid() && envFileEntry.isInjected() && !envFileEntry.isEnvValueSecret()) {
-                        envName = envFileEntry.getName();
-                        envValue = StringUtils.trimToEmpty(envFileEntry.getEnvValueToInject());
-                        fileEntry = envName + "=" + envValue;
-                    }
-                    if(envFileEntry.isValid() && !envFileEntry.isInjected()) {
-                        envName = envFileEntry.getName();
-                        envValue = envFileEntry.getDefaultValue();
-                        fileEntry = envName + "=" + envValue;
-                    }
-                    return fileEntry.trim();
-                })
-                .collect(Collectors.toList());
-        File injectedFile = new File(envFileLocation + "-injected");
-        // remove the existing injectedFile, and create new file
-        if(injectedFile.exists()) {
-            injectedFile.delete();
-            injectedFile.createNewFile();
+    /**
+     * Quotes the value the same way as in the .env file. Values that can not be written as is with the
+     * original quoting are written in double quotes, with new lines escaped unless the entry already spans several lines.
+     */
+    private String quoteValue(String envValue, EnvFileEntry envFileEntry) {
+        char quote = envFileEntry.getQuote();
+        boolean multiLine = envFileEntry.getLineCount() > 1;
+        if(quote == '\'' && envValue.indexOf('\'') == -1 && (multiLine || envValue.indexOf('\n') == -1)) {
+            return "'" + envValue + "'";
+        }
+        if(quote == 0 && !needsQuotes(envValue)) {
+            return envValue;
+        }
+
+        StringBuilder quotedValue = new StringBuilder(envValue.length() + 2).append('"');
+        for(int i = 0; i < envValue.length(); i++) {
+            char c = envValue.charAt(i);
+            if(c == '"' || c == '\\') {
+                quotedValue.append('\\').append(c);
+            } else if(c == '\n' && !multiLine) {
+                quotedValue.append("\\n");
+            } else if(c == '\r') {
+                quotedValue.append("\\r");
+            } else {
+                quotedValue.append(c);
+            }
         }
+        return quotedValue.append('"').toString();
+    }
 
-        Files.write(Paths.get(envFileLocation + "-injected"), fileLineEntries, StandardCharsets.UTF_8);
+    private static boolean needsQuotes(String envValue) {
+        if(envValue.isEmpty()) {
+            return false;
+        }
+        if(Character.isWhitespace(envValue.charAt(0)) || Character.isWhitespace(envValue.charAt(envValue.length() - 1))) {
+            return true;
+        }
+        char first = envValue.charAt(0);
+        return first == '"' || first == '\'' || envValue.indexOf('#') != -1 || envValue.indexOf('\n') != -1;
     }
 
     @Override
     public void printReport(List<EnvFileEntry> envFileEntries) {
-        if(envFileEntries.isEmpty()) {
+        printReport(envFileEntries, ReportFormat.LOG);
+    }
+
+    @Override
+    public void printReport(List<EnvFileEntry> envFileEntries, ReportFormat reportFormat) {
+        if(reportFormat == ReportFormat.NONE) {
+            return;
+        }
+        if(envFileEntries.isEmpty() && reportFormat == ReportFormat.LOG) {
             logger.info("Empty list of env file entries. Will not be printing report");
             return;
         }
+        ReportWriter.write(buildReport(envFileEntries), reportFormat, logger);
+    }
 
-        logger.info("***************** Invalid entries or empty lines ************************************");
-        envFileEntries.stream()
-                .filter(entry -> !entry.isValid())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("***************** Valid entries with no counterpart in .yml file ********************");
-        envFileEntries.stream()
-                .filter(EnvFileEntry::isValid)
-                .filter(entry -> !entry.isFromYamlEnv())
-                .filter(entry -> !entry.isPresentInYaml())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("***************** Valid entries that was injected with environment variables ********");
-        envFileEntries.stream()
-                .filter(EnvFileEntry::isValid)
-                .filter(EnvFileEntry::isInjected)
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("***************** Valid entries whose environment variable was a secret *************");
-        envFileEntries.stream()
-                .filter(EnvFileEntry::isValid)
-                .filter(EnvFileEntry::isEnvValueSecret)
-                .filter(entry -> !entry.isFromYamlEnv())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("***************** Entries in .yaml file that was not present in .env file ************");
-        envFileEntries.stream()
-                .filter(EnvFileEntry::isValid)
-                .filter(EnvFileEntry::isFromYamlEnv)
-                .filter(entry -> !entry.isEnvValueSecret())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("***************** Secret entries in .yaml file that was not present in .env file *****");
-        envFileEntries.stream()
-                .filter(EnvFileEntry::isValid)
-                .filter(EnvFileEntry::isFromYamlEnv)
-                .filter(EnvFileEntry::isEnvValueSecret)
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
+    @Override
+    public Report buildReport(List<EnvFileEntry> envFileEntries) {
+        Report report = new Report();
+        Report.Section invalid = report.addSection("invalid", "***************** Invalid entries or empty lines ************************************");
+        Report.Section notInYaml = report.addSection("notInYaml", "***************** Valid entries with no counterpart in .yml file ********************");
+        Report.Section injected = report.addSection("injected", "***************** Valid entries that was injected with environment variables ********");
+        Report.Section secret = report.addSection("secret", "***************** Valid entries whose environment variable was a secret *************");
+        Report.Section addedFromYaml = report.addSection("addedFromYaml", "***************** Entries in .yaml file that was not present in .env file ************");
+        Report.Section secretAddedFromYaml = report.addSection("secretAddedFromYaml", "***************** Secret entries in .yaml file that was not present in .env file *****");
+        for(EnvFileEntry entry : envFileEntries) {
+            if(!entry.isValid()) {
+                invalid.add(entry.getLineNumber(), entry.getName());
+                continue;
+            }
+            if(entry.isInjected()) {
+                injected.add(entry.getLineNumber(), entry.getName());
+            }
+            if(entry.isFromYamlEnv()) {
+                if(entry.isEnvValueSecret()) {
+                    secretAddedFromYaml.add(entry.getLineNumber(), entry.getName());
+                } else {
+                    addedFromYaml.add(entry.getLineNumber(), entry.getName());
+                }
+                continue;
+            }
+            if(!entry.isPresentInYaml()) {
+                notInYaml.add(entry.getLineNumber(), entry.getName());
+            }
+            if(entry.isEnvValueSecret()) {
+                secret.add(entry.getLineNumber(), entry.getName());
+            }
+        }
+        return report;
     }
 
     @Override
     public List<EnvFileEntry> addNewEnvFromYaml(List<EnvFileEntry> currentEnvFileEntries, List<YamlFileEnvEntry> yamlFileEnvEntries) {
+        return addNewEnvFromYaml(currentEnvFileEntries, new YamlEnvIndex(yamlFileEnvEntries));
+    }
+
+    @Override
+    public List<EnvFileEntry> addNewEnvFromYaml(List<EnvFileEntry> currentEnvFileEntries, YamlEnvIndex yamlEnvIndex) {
         // add new EnvFileEntry for env in yaml that is not present in .env file
-        List<String> envNames = currentEnvFileEntries.stream().map(EnvFileEntry::getName).collect(Collectors.toList());
-        AtomicInteger lineNumbersForNewEnv = new AtomicInteger(currentEnvFileEntries.size() + 1);
-        return yamlFileEnvEntries
+        Set<String> envNames = currentEnvFileEntries.stream().map(EnvFileEntry::getName).collect(Collectors.toSet());
+        // entries spanning several lines take more than one line number
+        int lastLineNumber = currentEnvFileEntries.stream()
+                .mapToInt(entry -> entry.getLineNumber() + entry.getLineCount() - 1)
+                .max()
+                .orElse(0);
+        AtomicInteger lineNumbersForNewEnv = new AtomicInteger(lastLineNumber + 1);
+        return yamlEnvIndex.getEntries()
                 .stream()
                 .filter(yamlFileEnvEntry -> !envNames.contains(yamlFileEnvEntry.getEnvName()))
                 .map(yamlFileEnvEntry -> new EnvFileEntry(yamlFileEnvEntry.getEnvName(),
@@ -189,22 +297,36 @@ public class EnvServiceImpl implements EnvService {
 
     @Override
     public List<EnvFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<EnvFileEntry> currentEnvFileEnties, List<YamlFileEnvEntry> yamlFileEnvEntries) {
+        return populateEnvFileEntriesWithValuesFromYaml(currentEnvFileEnties, new YamlEnvIndex(yamlFileEnvEntries));
+    }
+
+    @Override
+    public List<EnvFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<EnvFileEntry> currentEnvFileEnties, YamlEnvIndex yamlEnvIndex) {
+        EnvMatchedEvent event = new EnvMatchedEvent();
+        event.begin();
         // populate the EnvFileEntry with the values present in yaml file
         for(EnvFileEntry entry : currentEnvFileEnties) {
-            for(YamlFileEnvEntry yamlEntry : yamlFileEnvEntries) {
-                if(Objects.nonNull(entry.getName()) && Objects.nonNull(yamlEntry.getEnvName())) {
-                    if(entry.getName().equals(yamlEntry.getEnvName()) && !yamlEntry.isSecret()) {
-                        entry.setEnvValueToInject(yamlEntry.getEnvValue());
-                        entry.setEnvValueSecret(false);
-                        entry.setInjected(true);
-                        entry.setPresentInYaml(true);
-                    }
-                    if(entry.getName().equals(yamlEntry.getEnvName()) && yamlEntry.isSecret()) {
-                        entry.setEnvValueSecret(true);
-                        entry.setPresentInYaml(true);
-                    }
-                }
+            event.entries++;
+            YamlFileEnvEntry yamlEntry = yamlEnvIndex.get(entry.getName());
+            if(Objects.isNull(yamlEntry)) {
+                continue;
             }
+            if(!yamlEntry.isSecret()) {
+                event.matched++;
+                entry.setEnvValueToInject(yamlEntry.getEnvValue());
+                entry.setEnvValueSecret(false);
+                entry.setInjected(true);
+                entry.setPresentInYaml(true);
+            } else {
+                event.secret++;
+                entry.setEnvValueSecret(true);
+                entry.setPresentInYaml(true);
+            }
+        }
+        if(event.shouldCommit()) {
+            event.templateType = TemplateType.ENV.name();
+            event.yamlEnv = yamlEnvIndex.size();
+            event.commit();
         }
         return currentEnvFileEnties;
     }
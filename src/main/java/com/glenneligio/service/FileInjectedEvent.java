@@ -0,0 +1,39 @@
+package com.glenneligio.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of the -injected file of an application.properties or .env file being written.
+ */
+@Name("com.glenneligio.FileInjected")
+@Label("File Injected")
+@Category("Properties Env Setup")
+@Description("Template file streamed to its -injected file")
+class FileInjectedEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Template Type")
+    String templateType;
+
+    @Label("Bytes Read")
+    @DataAmount(DataAmount.BYTES)
+    long bytesRead;
+
+    @Label("Bytes Written")
+    @DataAmount(DataAmount.BYTES)
+    long bytesWritten;
+
+    @Label("Lines Rewritten")
+    int linesRewritten;
+
+    @Label("Replaced")
+    @Description("False if the -injected file had the same content and was kept as is")
+    boolean replaced;
+}
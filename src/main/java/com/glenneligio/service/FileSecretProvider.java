@@ -0,0 +1,89 @@
+package com.glenneligio.service;
+
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Takes the values of the secrets from a local yaml file, which is read again on each lookup so edits are picked up.
+ * The file can map each secret name to its keys and values:
+ * <pre>
+ * db-credentials:
+ *   password: s3cret
+ * </pre>
+ * or hold k8s Secret documents, such as the output of 'kubectl get secret -o yaml',
+ * whose 'data' values are base64 decoded and 'stringData' values taken as is.
+ */
+public class FileSecretProvider implements SecretProvider {
+
+    private static final String SECRET_KIND = "Secret";
+
+    private final Path secretsFile;
+
+    public FileSecretProvider(Path secretsFile) {
+        this.secretsFile = secretsFile;
+    }
+
+    @Override
+    public Map<String, String> getSecret(String secretName) throws IOException {
+        if(!Files.isRegularFile(secretsFile)) {
+            throw new FileNotFoundException("Secrets file does not exist: " + secretsFile);
+        }
+
+        try (Reader reader = Files.newBufferedReader(secretsFile, StandardCharsets.UTF_8)) {
+            for(Object document : new Yaml().loadAll(reader)) {
+                if(!(document instanceof Map)) {
+                    continue;
+                }
+                Map<?, ?> mapping = (Map<?, ?>) document;
+                Map<String, String> secret = SECRET_KIND.equals(mapping.get("kind"))
+                        ? readSecretDocument(mapping, secretName)
+                        : toStringMap(mapping.get(secretName));
+                if(Objects.nonNull(secret)) {
+                    return secret;
+                }
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    private static Map<String, String> readSecretDocument(Map<?, ?> document, String secretName) {
+        Object metadata = document.get("metadata");
+        if(!(metadata instanceof Map) || !secretName.equals(((Map<?, ?>) metadata).get("name"))) {
+            return null;
+        }
+        Map<String, String> secret = new LinkedHashMap<>();
+        Map<String, String> data = toStringMap(document.get("data"));
+        if(Objects.nonNull(data)) {
+            data.forEach((key, value) -> secret.put(key, new String(Base64.getMimeDecoder().decode(value), StandardCharsets.UTF_8)));
+        }
+        Map<String, String> stringData = toStringMap(document.get("stringData"));
+        if(Objects.nonNull(stringData)) {
+            secret.putAll(stringData);
+        }
+        return secret;
+    }
+
+    private static Map<String, String> toStringMap(Object value) {
+        if(!(value instanceof Map)) {
+            return null;
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        ((Map<?, ?>) value).forEach((key, entryValue) -> {
+            if(Objects.nonNull(key) && Objects.nonNull(entryValue)) {
+                result.put(key.toString(), entryValue.toString());
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,11 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.FixtureSpec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public interface FixtureService {
+    List<Path> generateFixtures(FixtureSpec spec, String outputDirectory) throws IOException;
+}
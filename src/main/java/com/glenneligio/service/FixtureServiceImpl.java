@@ -0,0 +1,183 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.FixtureSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates a k8s yaml file with the application.properties and .env templates matching one of its containers,
+ * and a mapping file to run them in batch.
+ * Files are written with '\n' line terminators and the values are only drawn from a Random created with the seed,
+ * so the same spec gives the same files on any machine.
+ */
+public class FixtureServiceImpl implements FixtureService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixtureServiceImpl.class);
+    static final String YAML_FILE_NAME = "deployment.yml";
+    static final String PROPERTIES_FILE_NAME = "application.properties";
+    static final String ENV_FILE_NAME = ".env";
+    static final String MAPPING_FILE_NAME = "mapping.yml";
+    private static final String[] ENV_PREFIXES = {"DB", "CACHE", "KAFKA", "API", "AUTH", "FEATURE", "HTTP", "LOG"};
+    private static final String[] ENV_SUFFIXES = {"HOST", "PORT", "URL", "TIMEOUT", "USERNAME", "PASSWORD", "ENABLED", "LEVEL"};
+    // the templates use their own sequence of values, so changing the size of the templates does not change the yaml file
+    private static final long TEMPLATE_SEED_SALT = 0x5DEECE66DL;
+
+    @Override
+    public List<Path> generateFixtures(FixtureSpec spec, String outputDirectory) throws IOException {
+        checkSpec(spec);
+        Path directory = Paths.get(outputDirectory);
+        Files.createDirectories(directory);
+
+        List<Path> files = new ArrayList<>();
+        files.add(writeYamlFile(spec, directory.resolve(YAML_FILE_NAME)));
+        Random templateRandom = new Random(spec.getSeed() ^ TEMPLATE_SEED_SALT);
+        files.add(writePropertiesFile(spec, directory.resolve(PROPERTIES_FILE_NAME), templateRandom));
+        files.add(writeEnvFile(spec, directory.resolve(ENV_FILE_NAME), templateRandom));
+        files.add(writeMappingFile(spec, directory.resolve(MAPPING_FILE_NAME)));
+        for(Path file : files) {
+            logger.info("Generated {} ({} bytes)", file, Files.size(file));
+        }
+        return files;
+    }
+
+    private void checkSpec(FixtureSpec spec) {
+        if(spec.getDocumentCount() < 1 || spec.getContainersPerDocument() < 1) {
+            throw new RuntimeException("Yaml file should have at least one document and one container per document.");
+        }
+        if(spec.getEnvPerContainer() < 0 || spec.getTemplateKeys() < 0) {
+            throw new RuntimeException("Number of env and template keys should not be negative.");
+        }
+        if(spec.getSecretRatio() < 0 || spec.getSecretRatio() > 1 || spec.getPlaceholderDensity() < 0 || spec.getPlaceholderDensity() > 1) {
+            throw new RuntimeException("Secret ratio and placeholder density should be between 0 and 1.");
+        }
+    }
+
+    /**
+     * Env names are the same in all containers, the same as services sharing the same configuration.
+     */
+    static String envName(int index) {
+        return ENV_PREFIXES[index % ENV_PREFIXES.length] + "_" + ENV_SUFFIXES[(index / ENV_PREFIXES.length) % ENV_SUFFIXES.length] + "_" + index;
+    }
+
+    private static String envValue(int index, Random random) {
+        switch (ENV_SUFFIXES[(index / ENV_PREFIXES.length) % ENV_SUFFIXES.length]) {
+            case "HOST":
+                return "host-" + random.nextInt(1000) + ".internal.example.com";
+            case "PORT":
+                return String.valueOf(1024 + random.nextInt(64511));
+            case "URL":
+                return "https://api-" + random.nextInt(100) + ".example.com/v" + (1 + random.nextInt(3)) + "/resource?page=" + random.nextInt(50);
+            case "TIMEOUT":
+                return random.nextInt(120) + "s";
+            case "ENABLED":
+                return String.valueOf(random.nextBoolean());
+            case "LEVEL":
+                return random.nextBoolean() ? "INFO" : "DEBUG";
+            default:
+                return "value-" + Long.toHexString(random.nextLong());
+        }
+    }
+
+    private Path writeYamlFile(FixtureSpec spec, Path file) throws IOException {
+        Random random = new Random(spec.getSeed());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int document = 0; document < spec.getDocumentCount(); document++) {
+                String name = "service-" + document;
+                writer.write("---\napiVersion: v1\nkind: ConfigMap\nmetadata:\n  name: " + name + "-config\ndata:\n");
+                for(int i = 0; i < 5; i++) {
+                    writer.write("  " + envName(i).toLowerCase(Locale.ROOT) + ": \"" + envValue(i, random) + "\"\n");
+                }
+
+                writer.write("---\napiVersion: apps/v1\nkind: Deployment\nmetadata:\n  name: " + name + "\n  labels:\n    app: " + name + "\n");
+                writer.write("spec:\n  replicas: " + (1 + random.nextInt(5)) + "\n  selector:\n    matchLabels:\n      app: " + name + "\n");
+                writer.write("  template:\n    metadata:\n      labels:\n        app: " + name + "\n    spec:\n      containers:\n");
+                for(int container = 0; container < spec.getContainersPerDocument(); container++) {
+                    boolean target = document == spec.getDocumentCount() - 1 && container == spec.getContainersPerDocument() - 1;
+                    String image = target ? spec.getContainerImageName() : "registry.example.com/" + name + "-" + container + ":1." + random.nextInt(20);
+                    writer.write("        - name: " + name + "-" + container + "\n          image: " + image + "\n");
+                    writer.write("          ports:\n            - containerPort: " + (8080 + container) + "\n");
+                    writer.write("          resources:\n            limits:\n              memory: \"" + (256 << random.nextInt(4)) + "Mi\"\n");
+                    writer.write("          env:\n");
+                    for(int i = 0; i < spec.getEnvPerContainer(); i++) {
+                        writer.write("            - name: " + envName(i) + "\n");
+                        if(random.nextDouble() < spec.getSecretRatio()) {
+                            writer.write("              valueFrom:\n                secretKeyRef:\n                  name: " + name + "-secret\n" +
+                                    "                  key: " + envName(i).toLowerCase(Locale.ROOT) + "\n");
+                        } else {
+                            writer.write("              value: \"" + envValue(i, random) + "\"\n");
+                        }
+                    }
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Key i of the templates uses the env i of the containers, so keys past the env of the container are not in the yaml file.
+     * One in ten of the keys using an env is a value mixing two placeholders with text.
+     */
+    private Path writePropertiesFile(FixtureSpec spec, Path file, Random random) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < spec.getTemplateKeys(); i++) {
+                writeTemplateComment(writer, i);
+                String key = "app." + envName(i).toLowerCase(Locale.ROOT).replace('_', '.');
+                if(random.nextDouble() >= spec.getPlaceholderDensity()) {
+                    writer.write(key + "=" + envValue(i, random) + "\n");
+                } else if(random.nextInt(10) == 0) {
+                    writer.write(key + "=https://${" + envName(i) + "}:${" + envName(i + 1) + ":8080}/context\n");
+                } else if(random.nextBoolean()) {
+                    writer.write(key + "=${" + envName(i) + ":" + envValue(i, random) + "}\n");
+                } else {
+                    writer.write(key + "=${" + envName(i) + "}\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    private Path writeEnvFile(FixtureSpec spec, Path file, Random random) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < spec.getTemplateKeys(); i++) {
+                writeTemplateComment(writer, i);
+                if(random.nextDouble() >= spec.getPlaceholderDensity()) {
+                    writer.write("STATIC_" + i + "=" + envValue(i, random) + "\n");
+                } else if(random.nextBoolean()) {
+                    writer.write(envName(i) + "=" + envValue(i, random) + "\n");
+                } else {
+                    writer.write(envName(i) + "=\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    private static void writeTemplateComment(Writer writer, int index) throws IOException {
+        if(index % 100 == 0 && index > 0) {
+            writer.write("\n");
+        }
+        if(index % 25 == 0) {
+            writer.write("# section " + (index / 25) + "\n");
+        }
+    }
+
+    private Path writeMappingFile(FixtureSpec spec, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("jobs:\n");
+            writer.write("  - properties: " + PROPERTIES_FILE_NAME + "\n    yaml: " + YAML_FILE_NAME + "\n    image: \"" + spec.getContainerImageName() + "\"\n");
+            writer.write("  - env: " + ENV_FILE_NAME + "\n    yaml: " + YAML_FILE_NAME + "\n    image: \"" + spec.getContainerImageName() + "\"\n");
+        }
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package com.glenneligio.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Takes the values of the secrets from a local stand-in service, which returns the keys and values
+ * of a secret as a JSON object on 'GET {baseUri}/secrets/{name}', or 404 if the secret is not known.
+ * Only loopback addresses are allowed, so secret values never leave the machine.
+ */
+public class HttpSecretProvider implements SecretProvider {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final TypeReference<Map<String, String>> SECRET_TYPE = new TypeReference<>() {};
+
+    private final URI baseUri;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @throws IllegalArgumentException if the host of the uri is not a loopback address
+     */
+    public HttpSecretProvider(URI baseUri) {
+        if(!isLoopback(baseUri)) {
+            throw new IllegalArgumentException("Secrets url should be on a loopback address: " + baseUri);
+        }
+        this.baseUri = baseUri;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(TIMEOUT)
+                .build();
+    }
+
+    @Override
+    public Map<String, String> getSecret(String secretName) throws IOException {
+        String base = baseUri.toString().endsWith("/") ? baseUri.toString() : baseUri + "/";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "secrets/" + URLEncoder.encode(secretName, StandardCharsets.UTF_8)))
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while looking up secret " + secretName, e);
+        }
+
+        if(response.statusCode() == 404) {
+            return Collections.emptyMap();
+        }
+        if(response.statusCode() != 200) {
+            throw new IOException("Secrets service returned status " + response.statusCode() + " for secret " + secretName);
+        }
+        Map<String, String> secret = objectMapper.readValue(response.body(), SECRET_TYPE);
+        return Objects.nonNull(secret) ? secret : Collections.emptyMap();
+    }
+
+    private static boolean isLoopback(URI uri) {
+        if(Objects.isNull(uri.getHost()) || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+            return false;
+        }
+        try {
+            for(InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                if(!address.isLoopbackAddress()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.ManifestIndex;
+import com.glenneligio.model.YamlEnvIndex;
+import com.glenneligio.model.YamlFileEnvEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs injection jobs on a bounded pool of worker threads.
+ * Each yaml file is read once and its index is shared between the jobs that use it.
+ * Jobs writing the same file run one after the other in the order given, and results are
+ * returned in the order of the jobs, so the output does not depend on thread scheduling.
+ * With a manifest store, jobs whose inputs and output did not change since the last run are skipped.
+ * With a secret resolver, the values of the env referencing a secret are looked up and injected.
+ */
+public class InjectionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(InjectionEngine.class);
+
+    private final YamlService yamlService;
+    private final InjectionService injectionService;
+    private final int parallelism;
+    private final InjectionManifestStore manifestStore;
+    private final SecretResolver secretResolver;
+
+    public InjectionEngine(YamlService yamlService, InjectionService injectionService, int parallelism) {
+        this(yamlService, injectionService, parallelism, null);
+    }
+
+    /**
+     * @param manifestStore store of the inputs of the -injected files, or null to always run the jobs
+     */
+    public InjectionEngine(YamlService yamlService, InjectionService injectionService, int parallelism, InjectionManifestStore manifestStore) {
+        this(yamlService, injectionService, parallelism, manifestStore, null);
+    }
+
+    /**
+     * @param manifestStore store of the inputs of the -injected files, or null to always run the jobs.
+     *                      Not used with a secret resolver, since the secret values are not part of the inputs
+     * @param secretResolver resolver of the secret values, or null to keep the env referencing a secret as secrets
+     */
+    public InjectionEngine(YamlService yamlService, InjectionService injectionService, int parallelism, InjectionManifestStore manifestStore, SecretResolver secretResolver) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be at least 1");
+        }
+        this.yamlService = yamlService;
+        this.injectionService = injectionService;
+        this.parallelism = parallelism;
+        this.manifestStore = Objects.isNull(secretResolver) ? manifestStore : null;
+        this.secretResolver = secretResolver;
+    }
+
+    public List<InjectionResult> run(List<InjectionJob> jobs) {
+        // jobs writing the same file are grouped together, so they never write it at the same time
+        Map<String, List<Integer>> jobsByOutput = new LinkedHashMap<>();
+        for(int i = 0; i < jobs.size(); i++) {
+            jobsByOutput.computeIfAbsent(jobs.get(i).getOutputFileLocation(), key -> new ArrayList<>()).add(i);
+        }
+
+        logger.info("Running {} jobs with parallelism of {}", jobs.size(), parallelism);
+        InjectionResult[] results = new InjectionResult[jobs.size()];
+        ConcurrentMap<String, CompletableFuture<ManifestIndex>> manifestIndexes = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(jobsByOutput.size(), 1)));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(List<Integer> jobIndexes : jobsByOutput.values()) {
+                futures.add(executor.submit(() -> {
+                    for(int jobIndex : jobIndexes) {
+                        results[jobIndex] = runJob(jobs.get(jobIndex), manifestIndexes);
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running jobs", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected failure while running jobs", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(results);
+    }
+
+    private InjectionResult runJob(InjectionJob job, ConcurrentMap<String, CompletableFuture<ManifestIndex>> manifestIndexes) {
+        if(Objects.nonNull(manifestStore)) {
+            InjectionResult upToDateResult = manifestStore.getUpToDateResult(job);
+            if(Objects.nonNull(upToDateResult)) {
+                return upToDateResult;
+            }
+        }
+        try {
+            ManifestIndex manifestIndex = getManifestIndex(job.getYamlFileLocation(), manifestIndexes);
+            List<YamlFileEnvEntry> yamlEnvEntries = manifestIndex.getYamlFileEnvEntries(job.getContainerImageName());
+            if(Objects.nonNull(secretResolver)) {
+                yamlEnvEntries = secretResolver.resolve(yamlEnvEntries);
+            }
+            YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+            if(!yamlEnvIndex.getDuplicateEnvNames().isEmpty()) {
+                logger.warn("Env declared more than once for image {} in {}, last declaration is used: {}",
+                        job.getContainerImageName(), job.getYamlFileLocation(), yamlEnvIndex.getDuplicateEnvNames());
+            }
+            InjectionResult result = injectionService.inject(job, yamlEnvIndex);
+            if(Objects.nonNull(manifestStore)) {
+                manifestStore.record(job, result);
+            }
+            return result;
+        } catch (Exception e) {
+            logger.error("Failed to inject {}: {}", job.getTemplateFileLocation(), e.toString());
+            InjectionResult result = new InjectionResult(job);
+            result.setErrorMessage(Objects.nonNull(e.getMessage()) ? e.getMessage() : e.toString());
+            return result;
+        }
+    }
+
+    /**
+     * Reads the yaml file on the first request, while later requests for the same file wait for it to be read.
+     */
+    private ManifestIndex getManifestIndex(String yamlFileLocation, ConcurrentMap<String, CompletableFuture<ManifestIndex>> manifestIndexes) throws Exception {
+        CompletableFuture<ManifestIndex> newManifestIndex = new CompletableFuture<>();
+        CompletableFuture<ManifestIndex> manifestIndex = manifestIndexes.putIfAbsent(yamlFileLocation, newManifestIndex);
+        if(Objects.isNull(manifestIndex)) {
+            manifestIndex = newManifestIndex;
+            try {
+                newManifestIndex.complete(yamlService.getManifestIndex(yamlFileLocation));
+            } catch (Exception e) {
+                newManifestIndex.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return manifestIndex.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a manifest next to each -injected file, holding the inputs it was generated from (template, yaml file,
+ * image, charset and tool version) and the counts of the run. A job whose inputs and output did not change since
+ * the manifest was written is not run again, and its counts are taken from the manifest.
+ * Files are compared by size and modified time first, and by content hash only if the modified time changed
+ * or is too close to the time the manifest was written. A file found unchanged by its hash has its modified time
+ * re-stamped in the manifest, so the next run compares it by modified time only.
+ */
+public class InjectionManifestStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InjectionManifestStore.class);
+    public static final String MANIFEST_FILE_SUFFIX = ".manifest";
+    private static final String FORMAT_VERSION = "1";
+    private static final String DEVELOPMENT_VERSION = "development";
+    // a file modified this close to the time it was recorded can be modified again with the same modified time
+    private static final long MODIFIED_TIME_GRANULARITY_MICROS = TimeUnit.SECONDS.toMicros(2);
+
+    private final String toolVersion;
+    private final Charset charset;
+
+    public InjectionManifestStore() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param charset charset the properties templates are read and written with
+     */
+    public InjectionManifestStore(Charset charset) {
+        this(getToolVersion(), charset);
+    }
+
+    public InjectionManifestStore(String toolVersion) {
+        this(toolVersion, StandardCharsets.UTF_8);
+    }
+
+    public InjectionManifestStore(String toolVersion, Charset charset) {
+        this.toolVersion = toolVersion;
+        this.charset = charset;
+    }
+
+    /**
+     * @return the result recorded in the manifest of the job's output, or null if the job needs to run again
+     */
+    public InjectionResult getUpToDateResult(InjectionJob job) {
+        Path outputFile = getOutputFile(job);
+        Path manifestFile = getManifestFile(outputFile);
+        if(!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+
+        try {
+            Map<String, String> manifest = readManifest(manifestFile);
+            if(!FORMAT_VERSION.equals(manifest.get("format"))
+                    || !toolVersion.equals(manifest.get("tool"))
+                    || !charset.name().equals(manifest.get("charset"))
+                    || !job.getTemplateType().name().equals(manifest.get("templateType"))
+                    || !job.getContainerImageName().equals(manifest.get("image"))
+                    || !job.getYamlFileLocation().equals(manifest.get("yaml"))) {
+                return null;
+            }
+            long recordedTime = Long.parseLong(manifest.get("recordedTime"));
+            long checkTime = getCurrentTimeMicros();
+            Map<String, String> restamped = new LinkedHashMap<>(manifest);
+            if(!isUnchanged(Paths.get(job.getTemplateFileLocation()), "template", manifest, recordedTime, restamped)
+                    || !isUnchanged(Paths.get(job.getYamlFileLocation()), "yaml", manifest, recordedTime, restamped)
+                    || !isUnchanged(outputFile, "output", manifest, recordedTime, restamped)) {
+                return null;
+            }
+            restamp(manifestFile, manifest, restamped, recordedTime, checkTime);
+
+            InjectionResult result = new InjectionResult(job);
+            result.setInvalidEntries(Integer.parseInt(manifest.get("result.invalid")));
+            result.setInjectedEntries(Integer.parseInt(manifest.get("result.injected")));
+            result.setSecretEntries(Integer.parseInt(manifest.get("result.secret")));
+            result.setNotInYamlEntries(Integer.parseInt(manifest.get("result.notInYaml")));
+            result.setAddedFromYamlEntries(Integer.parseInt(manifest.get("result.addedFromYaml")));
+            result.setUpToDate(true);
+            logger.info("{} is up to date, skipped", outputFile);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read manifest {}: {}", manifestFile, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Records the inputs and output of a successful job in the manifest of its output.
+     */
+    public void record(InjectionJob job, InjectionResult result) {
+        if(result.isFailed()) {
+            return;
+        }
+        Path outputFile = getOutputFile(job);
+        Path manifestFile = getManifestFile(outputFile);
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add("format=" + FORMAT_VERSION);
+            lines.add("tool=" + toolVersion);
+            lines.add("templateType=" + job.getTemplateType().name());
+            lines.add("image=" + job.getContainerImageName());
+            lines.add("yaml=" + job.getYamlFileLocation());
+            lines.add("charset=" + charset.name());
+            lines.add("recordedTime=" + getCurrentTimeMicros());
+            addFileEntries(lines, Paths.get(job.getTemplateFileLocation()), "template");
+            addFileEntries(lines, Paths.get(job.getYamlFileLocation()), "yaml");
+            addFileEntries(lines, outputFile, "output");
+            lines.add("result.invalid=" + result.getInvalidEntries());
+            lines.add("result.injected=" + result.getInjectedEntries());
+            lines.add("result.secret=" + result.getSecretEntries());
+            lines.add("result.notInYaml=" + result.getNotInYamlEntries());
+            lines.add("result.addedFromYaml=" + result.getAddedFromYamlEntries());
+            OutputFileWriter.writeIfChanged(manifestFile, lines);
+        } catch (IOException e) {
+            logger.warn("Failed to write manifest {}: {}", manifestFile, e.toString());
+        }
+    }
+
+    public static Path getManifestFile(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + MANIFEST_FILE_SUFFIX);
+    }
+
+    private static Path getOutputFile(InjectionJob job) {
+        return Paths.get(job.getOutputFileLocation());
+    }
+
+    private static void addFileEntries(List<String> lines, Path file, String name) throws IOException {
+        ManifestCache.FileStamp stamp = ManifestCache.FileStamp.of(file.toFile());
+        lines.add(name + ".size=" + stamp.getSize());
+        lines.add(name + ".modifiedTime=" + stamp.getModifiedTime());
+        lines.add(name + ".hash=" + toHex(ManifestCache.hash(file.toFile())));
+    }
+
+    /**
+     * @param restamped entries of the manifest, where the modified time of a file found unchanged by its hash is updated
+     */
+    private static boolean isUnchanged(Path file, String name, Map<String, String> manifest, long recordedTime,
+                                       Map<String, String> restamped) throws IOException {
+        File fileToCheck = file.toFile();
+        if(!fileToCheck.isFile()) {
+            return false;
+        }
+        ManifestCache.FileStamp stamp = ManifestCache.FileStamp.of(fileToCheck);
+        if(stamp.getSize() != Long.parseLong(manifest.get(name + ".size"))) {
+            return false;
+        }
+        if(stamp.getModifiedTime() == Long.parseLong(manifest.get(name + ".modifiedTime"))
+                && stamp.getModifiedTime() < recordedTime - MODIFIED_TIME_GRANULARITY_MICROS) {
+            return true;
+        }
+        if(!toHex(ManifestCache.hash(fileToCheck)).equals(manifest.get(name + ".hash"))) {
+            return false;
+        }
+        restamped.put(name + ".modifiedTime", String.valueOf(stamp.getModifiedTime()));
+        return true;
+    }
+
+    /**
+     * Rewrites the manifest with the modified times of the files and the time they were checked, if any of them
+     * was checked by hash and all of them are now out of the modified time granularity, so the next run compares
+     * them by modified time only. Until then the files are hashed again on each run.
+     */
+    private static void restamp(Path manifestFile, Map<String, String> manifest, Map<String, String> restamped,
+                                long recordedTime, long checkTime) throws IOException {
+        boolean hashed = false;
+        for(String name : Arrays.asList("template", "yaml", "output")) {
+            long recordedModifiedTime = Long.parseLong(manifest.get(name + ".modifiedTime"));
+            long modifiedTime = Long.parseLong(restamped.get(name + ".modifiedTime"));
+            if(modifiedTime >= checkTime - MODIFIED_TIME_GRANULARITY_MICROS) {
+                return;
+            }
+            hashed |= modifiedTime != recordedModifiedTime || recordedModifiedTime >= recordedTime - MODIFIED_TIME_GRANULARITY_MICROS;
+        }
+        if(!hashed) {
+            return;
+        }
+        restamped.put("recordedTime", String.valueOf(checkTime));
+        List<String> lines = new ArrayList<>();
+        restamped.forEach((key, value) -> lines.add(key + "=" + value));
+        OutputFileWriter.writeIfChanged(manifestFile, lines);
+        logger.debug("Manifest {} re-stamped", manifestFile);
+    }
+
+    private static long getCurrentTimeMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    private static Map<String, String> readManifest(Path manifestFile) throws IOException {
+        Map<String, String> manifest = new LinkedHashMap<>();
+        for(String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+            int separatorIndex = line.indexOf('=');
+            if(separatorIndex > 0) {
+                manifest.put(line.substring(0, separatorIndex), line.substring(separatorIndex + 1));
+            }
+        }
+        return manifest;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static String getToolVersion() {
+        String version = InjectionManifestStore.class.getPackage().getImplementationVersion();
+        return Objects.nonNull(version) ? version : DEVELOPMENT_VERSION;
+    }
+}
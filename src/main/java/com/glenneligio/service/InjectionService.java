@@ -0,0 +1,11 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.YamlEnvIndex;
+
+import java.io.IOException;
+
+public interface InjectionService {
+    InjectionResult inject(InjectionJob job, YamlEnvIndex yamlEnvIndex) throws IOException;
+}
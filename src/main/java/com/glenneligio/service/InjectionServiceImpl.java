@@ -0,0 +1,58 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs the whole read, populate and inject pipeline of a single properties or .env file,
+ * without printing the per file report.
+ */
+public class InjectionServiceImpl implements InjectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InjectionServiceImpl.class);
+
+    private final PropertiesService propertiesService;
+    private final EnvService envService;
+
+    public InjectionServiceImpl() {
+        this(new PropertiesServiceImpl(), new EnvServiceImpl());
+    }
+
+    public InjectionServiceImpl(PropertiesService propertiesService, EnvService envService) {
+        this.propertiesService = propertiesService;
+        this.envService = envService;
+    }
+
+    @Override
+    public InjectionResult inject(InjectionJob job, YamlEnvIndex yamlEnvIndex) throws IOException {
+        logger.info("Injecting {} using image {} of {}", job.getTemplateFileLocation(), job.getContainerImageName(), job.getYamlFileLocation());
+        if(job.getTemplateType() == TemplateType.PROPERTIES) {
+            return injectPropertiesFile(job, yamlEnvIndex);
+        }
+        return injectEnvFile(job, yamlEnvIndex);
+    }
+
+    private InjectionResult injectPropertiesFile(InjectionJob job, YamlEnvIndex yamlEnvIndex) throws IOException {
+        InjectionResult result = new InjectionResult(job);
+        result.setBytesWritten(propertiesService.injectEnvFromYaml(job.getTemplateFileLocation(), job.getOutputFileLocation(), yamlEnvIndex, result::countEntry));
+        return result;
+    }
+
+    private InjectionResult injectEnvFile(InjectionJob job, YamlEnvIndex yamlEnvIndex) throws IOException {
+        List<EnvFileEntry> envFileEntries = envService.readOrCreateEnvFile(job.getTemplateFileLocation());
+        envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvIndex);
+        envFileEntries.addAll(envService.addNewEnvFromYaml(envFileEntries, yamlEnvIndex));
+        long bytesWritten = envService.injectEnvFound(envFileEntries, job.getTemplateFileLocation(), job.getOutputFileLocation());
+
+        InjectionResult result = new InjectionResult(job);
+        result.setBytesWritten(bytesWritten);
+        for(EnvFileEntry entry : envFileEntries) {
+            result.countEntry(entry);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+package com.glenneligio.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Finds the lines of a file by scanning the bytes of a memory mapped window of the file, keeping the byte offsets of each line.
+ * Lines are split on \n, and a \r before it is treated as part of the line terminator.
+ * The content of a line is only decoded when asked for, and only the part asked for, so the file is never copied to the heap as a whole.
+ * The charset should encode \n, \r, # and = as their single ASCII byte, such as UTF-8 or ISO-8859-1.
+ */
+class LineScanner {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final byte[] ASCII_DELIMITERS = {'\n', '\r', '#', '='};
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final long fileSize;
+    private ByteBuffer window;
+    // offset in the file of the first byte of the window
+    private long windowOffset;
+    // index in the window where the next line starts
+    private int nextLineIndex;
+    private String lineSeparator;
+
+    LineScanner(FileChannel channel, Charset charset) throws IOException {
+        if(!Arrays.equals(ASCII_DELIMITERS, new String(ASCII_DELIMITERS, StandardCharsets.US_ASCII).getBytes(charset))) {
+            throw new IllegalArgumentException("Charset " + charset.name() + " is not supported, it should be ASCII compatible");
+        }
+        this.channel = channel;
+        this.charset = charset;
+        this.fileSize = channel.size();
+        this.window = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * @return the next line, or null if the end of the file is reached
+     */
+    Line next() throws IOException {
+        int searchIndex = nextLineIndex;
+        while(true) {
+            int limit = window.limit();
+            for(int i = searchIndex; i < limit; i++) {
+                if(window.get(i) == '\n') {
+                    int contentEnd = i > nextLineIndex && window.get(i - 1) == '\r' ? i - 1 : i;
+                    return toLine(contentEnd, i + 1);
+                }
+            }
+            if(windowOffset + limit >= fileSize) {
+                return nextLineIndex < limit ? toLine(limit, limit) : null;
+            }
+            searchIndex = limit - nextLineIndex;
+            mapNextWindow();
+        }
+    }
+
+    /**
+     * @return the line terminator of the first line that have one, or the system line separator if none have
+     */
+    String getLineSeparator() {
+        return Objects.nonNull(lineSeparator) ? lineSeparator : System.lineSeparator();
+    }
+
+    private Line toLine(int contentEnd, int end) {
+        if(Objects.isNull(lineSeparator) && end > contentEnd) {
+            lineSeparator = end - contentEnd == 2 ? "\r\n" : "\n";
+        }
+        Line line = new Line(window, nextLineIndex, contentEnd - nextLineIndex, windowOffset, end - contentEnd, charset);
+        nextLineIndex = end;
+        return line;
+    }
+
+    /**
+     * Maps the window starting at the line being scanned. The window is made bigger if the line does not fit in it.
+     */
+    private void mapNextWindow() throws IOException {
+        long lineOffset = windowOffset + nextLineIndex;
+        long lineLength = window.limit() - nextLineIndex;
+        long size = Math.min(Math.max(WINDOW_SIZE, lineLength * 2), fileSize - lineOffset);
+        if(size > Integer.MAX_VALUE) {
+            throw new IOException("Line at offset " + lineOffset + " is too long");
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, lineOffset, size);
+        windowOffset = lineOffset;
+        nextLineIndex = 0;
+    }
+
+    /**
+     * A line of the file. Offsets are in bytes, and indexes are relative to the start of the line.
+     * The window the line was found in stays mapped as long as the line is referenced, so its content can be decoded later.
+     */
+    static class Line {
+        private final ByteBuffer window;
+        private final int windowIndex;
+        private final int length;
+        private final long windowOffset;
+        private final int terminatorLength;
+        private final Charset charset;
+        private String text;
+
+        private Line(ByteBuffer window, int windowIndex, int length, long windowOffset, int terminatorLength, Charset charset) {
+            this.window = window;
+            this.windowIndex = windowIndex;
+            this.length = length;
+            this.windowOffset = windowOffset;
+            this.terminatorLength = terminatorLength;
+            this.charset = charset;
+        }
+
+        long getStart() {
+            return windowOffset + windowIndex;
+        }
+
+        long getContentEnd() {
+            return getStart() + length;
+        }
+
+        long getEnd() {
+            return getContentEnd() + terminatorLength;
+        }
+
+        /**
+         * @return the length of the content of the line in bytes
+         */
+        int length() {
+            return length;
+        }
+
+        byte byteAt(int index) {
+            return window.get(windowIndex + index);
+        }
+
+        /**
+         * @return the index of the first occurrence of the ASCII character from the given index, or -1 if there is none
+         */
+        int indexOf(char c, int fromIndex, int toIndex) {
+            for(int i = fromIndex; i < toIndex; i++) {
+                if(window.get(windowIndex + i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return true if the part of the line only contains whitespace, the same way as {@link String#trim()} sees it
+         */
+        boolean isBlank(int fromIndex, int toIndex) {
+            for(int i = fromIndex; i < toIndex; i++) {
+                int b = window.get(windowIndex + i);
+                if(b < 0 || b > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String decode(int fromIndex, int toIndex) {
+            ByteBuffer slice = window.duplicate();
+            slice.limit(windowIndex + toIndex).position(windowIndex + fromIndex);
+            return charset.decode(slice).toString();
+        }
+
+        String getText() {
+            if(Objects.isNull(text)) {
+                text = decode(0, length);
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.ConfigMapReference;
+import com.glenneligio.model.ManifestIndex;
+import com.glenneligio.model.SecretReference;
+import com.glenneligio.model.YamlContainer;
+import com.glenneligio.model.YamlFileEnvEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of the manifest index of yaml files, so a yaml file that did not change is not parsed again.
+ * Each yaml file have a cache file named after the hash of its path, holding its size, modified time,
+ * content hash and manifest index in binary form.
+ * A cache file is used if the size and modified time of the yaml file did not change. If only the modified
+ * time changed, the content hash is checked instead. The least recently used cache files are removed when the
+ * total size of the cache goes beyond the max size.
+ */
+public class ManifestCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManifestCache.class);
+    public static final Path DEFAULT_CACHE_DIRECTORY = DaemonServer.DEFAULT_STATE_DIRECTORY.resolve("manifests");
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    private static final int MAGIC = 0x50455343;
+    private static final int FORMAT_VERSION = 4;
+    private static final String CACHE_FILE_SUFFIX = ".bin";
+    // a file modified this close to the time it was cached can be modified again with the same modified time
+    private static final long MODIFIED_TIME_GRANULARITY_MICROS = TimeUnit.SECONDS.toMicros(2);
+
+    private final Path cacheDirectory;
+    private final long maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ManifestCache() {
+        this(DEFAULT_CACHE_DIRECTORY, DEFAULT_MAX_SIZE);
+    }
+
+    public ManifestCache(Path cacheDirectory, long maxSize) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cached manifest index of the yaml file, or null if there is none or the yaml file changed
+     */
+    public ManifestIndex get(File yamlFile) {
+        ManifestIndex manifestIndex = readCacheFile(yamlFile);
+        if(Objects.isNull(manifestIndex)) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return manifestIndex;
+    }
+
+    /**
+     * @return number of calls to get that returned a cached manifest index
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of calls to get where the yaml file had to be read
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private ManifestIndex readCacheFile(File yamlFile) {
+        Path cacheFile = getCacheFile(yamlFile);
+        if(!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            long modifiedTime = in.readLong();
+            long cachedTime = in.readLong();
+            byte[] contentHash = new byte[in.readInt()];
+            in.readFully(contentHash);
+
+            FileStamp stamp = FileStamp.of(yamlFile);
+            if(stamp.size != size) {
+                return null;
+            }
+            if(stamp.modifiedTime != modifiedTime || modifiedTime >= cachedTime - MODIFIED_TIME_GRANULARITY_MICROS) {
+                if(!Arrays.equals(contentHash, hash(yamlFile))) {
+                    return null;
+                }
+            }
+
+            ManifestIndex manifestIndex = readManifestIndex(in, yamlFile.getPath());
+            // the modified time of the cache file is used as its last access time
+            Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+            logger.info("Using cached index of yaml file {}", yamlFile.getPath());
+            return manifestIndex;
+        } catch (IOException e) {
+            logger.warn("Failed to read cache file {}: {}", cacheFile, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the manifest index of the yaml file.
+     * @param stamp size and modified time of the yaml file before it was read
+     * @param contentHash hash of the content read from the yaml file
+     */
+    public void put(File yamlFile, FileStamp stamp, byte[] contentHash, ManifestIndex manifestIndex) {
+        Path cacheFile = getCacheFile(yamlFile);
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path tempFile = Files.createTempFile(cacheDirectory, "manifest", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(stamp.size);
+                out.writeLong(stamp.modifiedTime);
+                out.writeLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+                out.writeInt(contentHash.length);
+                out.write(contentHash);
+                writeManifestIndex(out, manifestIndex);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            logger.warn("Failed to write cache file {}: {}", cacheFile, e.toString());
+        }
+    }
+
+    public static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Removes the least recently used cache files until the total size is within the max size.
+     */
+    private void evict() throws IOException {
+        List<Path> cacheFiles;
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            cacheFiles = files.filter(file -> file.getFileName().toString().endsWith(CACHE_FILE_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long totalSize = 0;
+        for(Path cacheFile : cacheFiles) {
+            try {
+                BasicFileAttributes fileAttributes = Files.readAttributes(cacheFile, BasicFileAttributes.class);
+                attributes.put(cacheFile, fileAttributes);
+                totalSize += fileAttributes.size();
+            } catch (NoSuchFileException e) {
+                // removed by another process
+            }
+        }
+
+        List<Path> leastRecentlyUsed = attributes.keySet().stream()
+                .sorted(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()))
+                .collect(Collectors.toList());
+        for(Path cacheFile : leastRecentlyUsed) {
+            if(totalSize <= maxSize) {
+                break;
+            }
+            Files.deleteIfExists(cacheFile);
+            totalSize -= attributes.get(cacheFile).size();
+            logger.debug("Removed cache file {}", cacheFile);
+        }
+    }
+
+    private Path getCacheFile(File yamlFile) {
+        MessageDigest digest = newContentDigest();
+        byte[] pathHash = digest.digest(yamlFile.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        StringBuilder fileName = new StringBuilder();
+        for(int i = 0; i < 16; i++) {
+            fileName.append(String.format("%02x", pathHash[i]));
+        }
+        return cacheDirectory.resolve(fileName.append(CACHE_FILE_SUFFIX).toString());
+    }
+
+    static byte[] hash(File file) throws IOException {
+        MessageDigest digest = newContentDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void writeManifestIndex(DataOutputStream out, ManifestIndex manifestIndex) throws IOException {
+        out.writeBoolean(manifestIndex.isContainersPresent());
+        out.writeInt(manifestIndex.getContainers().size());
+        for(YamlContainer container : manifestIndex.getContainers()) {
+            writeString(out, container.getName());
+            writeString(out, container.getImage());
+            out.writeBoolean(container.isInitContainer());
+            out.writeInt(container.getEnv().size());
+            for(YamlFileEnvEntry envEntry : container.getEnv()) {
+                writeString(out, envEntry.getEnvName());
+                writeString(out, envEntry.getEnvValue());
+                out.writeBoolean(envEntry.isSecret());
+                ConfigMapReference configMapKeyRef = envEntry.getConfigMapKeyRef();
+                out.writeBoolean(Objects.nonNull(configMapKeyRef));
+                if(Objects.nonNull(configMapKeyRef)) {
+                    writeString(out, configMapKeyRef.getName());
+                    writeString(out, configMapKeyRef.getKey());
+                }
+                SecretReference secretKeyRef = envEntry.getSecretKeyRef();
+                out.writeBoolean(Objects.nonNull(secretKeyRef));
+                if(Objects.nonNull(secretKeyRef)) {
+                    writeString(out, secretKeyRef.getName());
+                    writeString(out, secretKeyRef.getKey());
+                }
+            }
+            out.writeInt(container.getEnvFrom().size());
+            for(ConfigMapReference envFrom : container.getEnvFrom()) {
+                writeString(out, envFrom.getName());
+                writeString(out, envFrom.getPrefix());
+            }
+        }
+
+        out.writeInt(manifestIndex.getConfigMaps().size());
+        for(Map.Entry<String, Map<String, String>> configMap : manifestIndex.getConfigMaps().entrySet()) {
+            writeString(out, configMap.getKey());
+            out.writeInt(configMap.getValue().size());
+            for(Map.Entry<String, String> data : configMap.getValue().entrySet()) {
+                writeString(out, data.getKey());
+                writeString(out, data.getValue());
+            }
+        }
+    }
+
+    private static ManifestIndex readManifestIndex(DataInputStream in, String yamlFileLocation) throws IOException {
+        boolean containersPresent = in.readBoolean();
+        int containerCount = in.readInt();
+        List<YamlContainer> containers = new ArrayList<>(containerCount);
+        for(int i = 0; i < containerCount; i++) {
+            String name = readString(in);
+            String image = readString(in);
+            boolean initContainer = in.readBoolean();
+            int envCount = in.readInt();
+            List<YamlFileEnvEntry> env = new ArrayList<>(envCount);
+            for(int j = 0; j < envCount; j++) {
+                YamlFileEnvEntry envEntry = new YamlFileEnvEntry(readString(in), readString(in), in.readBoolean());
+                if(in.readBoolean()) {
+                    envEntry.setConfigMapKeyRef(ConfigMapReference.keyRef(readString(in), readString(in)));
+                }
+                if(in.readBoolean()) {
+                    envEntry.setSecretKeyRef(new SecretReference(readString(in), readString(in)));
+                }
+                env.add(envEntry);
+            }
+            YamlContainer container = new YamlContainer(name, image, env, initContainer);
+            int envFromCount = in.readInt();
+            for(int j = 0; j < envFromCount; j++) {
+                container.getEnvFrom().add(ConfigMapReference.envFrom(readString(in), readString(in)));
+            }
+            containers.add(container);
+        }
+
+        int configMapCount = in.readInt();
+        Map<String, Map<String, String>> configMaps = new LinkedHashMap<>();
+        for(int i = 0; i < configMapCount; i++) {
+            String configMapName = readString(in);
+            int dataCount = in.readInt();
+            Map<String, String> data = new LinkedHashMap<>();
+            for(int j = 0; j < dataCount; j++) {
+                data.put(readString(in), readString(in));
+            }
+            configMaps.put(configMapName, data);
+        }
+        return new ManifestIndex(yamlFileLocation, containersPresent, containers, configMaps);
+    }
+
+    // writeUTF is limited to 64KB, which env values can go beyond
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if(Objects.isNull(value)) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Size and modified time of a file, in microseconds.
+     */
+    public static class FileStamp {
+        private final long size;
+        private final long modifiedTime;
+
+        private FileStamp(long size, long modifiedTime) {
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+        }
+
+        public static FileStamp of(File file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new FileStamp(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModifiedTime() {
+            return modifiedTime;
+        }
+    }
+}
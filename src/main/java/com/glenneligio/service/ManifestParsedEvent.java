@@ -0,0 +1,43 @@
+package com.glenneligio.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of a k8s yaml file read for the env of a container, or indexed for all of its containers.
+ */
+@Name("com.glenneligio.ManifestParsed")
+@Label("Manifest Parsed")
+@Category("Properties Env Setup")
+@Description("K8s yaml file read or taken from the manifest cache")
+class ManifestParsedEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Image")
+    @Description("Image of the container looked up, or null if all the containers were indexed")
+    String image;
+
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    long size;
+
+    @Label("From Cache")
+    boolean fromCache;
+
+    @Label("Containers")
+    int containers;
+
+    @Label("Env")
+    @Description("Number of env of the container looked up")
+    int env;
+
+    @Label("ConfigMaps Read")
+    @Description("Number of ConfigMaps whose data was read, the ones no container references are skipped")
+    int configMapsRead;
+}
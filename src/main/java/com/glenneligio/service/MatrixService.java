@@ -0,0 +1,18 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.MatrixResult;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface MatrixService {
+    /**
+     * Injects the properties file with the env of the container in each yaml file, writing a file per environment.
+     * @return result of each environment, in the order of the yaml files
+     */
+    List<MatrixResult> run(String propertiesFileLocation, List<String> yamlFileLocations, String containerImageName) throws IOException;
+    Report buildDiffReport(List<MatrixResult> results);
+    void printReport(List<MatrixResult> results, ReportFormat reportFormat);
+}
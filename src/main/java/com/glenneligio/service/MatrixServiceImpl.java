@@ -0,0 +1,235 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.*;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Injects one properties file with the env of the yaml files of several environments, such as dev, staging
+ * and each prod region. The properties file is parsed once and injected with each yaml file at the same time,
+ * writing application-&lt;environment&gt;.properties next to it, where the environment is the name of the yaml file
+ * without its extension. The diff report lists the entries whose value is not the same in all the environments.
+ * Values taken from a secret are not printed in the report, even when resolved by the {@link SecretResolver}.
+ */
+public class MatrixServiceImpl implements MatrixService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixServiceImpl.class);
+    private static final String SECRET_VALUE = "<secret>";
+
+    private final YamlService yamlService;
+    private final PropertiesService propertiesService;
+    private final int parallelism;
+    private final SecretResolver secretResolver;
+
+    public MatrixServiceImpl(YamlService yamlService, PropertiesService propertiesService, int parallelism) {
+        this(yamlService, propertiesService, parallelism, null);
+    }
+
+    /**
+     * @param secretResolver resolver of the secret values, or null to keep the env referencing a secret as secrets
+     */
+    public MatrixServiceImpl(YamlService yamlService, PropertiesService propertiesService, int parallelism, SecretResolver secretResolver) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be at least 1");
+        }
+        this.yamlService = yamlService;
+        this.propertiesService = propertiesService;
+        this.parallelism = parallelism;
+        this.secretResolver = secretResolver;
+    }
+
+    @Override
+    public List<MatrixResult> run(String propertiesFileLocation, List<String> yamlFileLocations, String containerImageName) throws IOException {
+        Map<String, String> yamlFilesByEnvironment = new LinkedHashMap<>();
+        for(String yamlFileLocation : yamlFileLocations) {
+            String otherYamlFile = yamlFilesByEnvironment.putIfAbsent(getEnvironment(yamlFileLocation), yamlFileLocation);
+            if(Objects.nonNull(otherYamlFile)) {
+                throw new RuntimeException("Yaml files " + otherYamlFile + " and " + yamlFileLocation + " have the same environment name");
+            }
+        }
+
+        PropertiesTemplate template = propertiesService.parseTemplate(propertiesFileLocation);
+        logger.info("Injecting {} with {} environments and parallelism of {}", propertiesFileLocation, yamlFilesByEnvironment.size(), parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(yamlFilesByEnvironment.size(), 1)));
+        try {
+            List<Future<MatrixResult>> futures = new ArrayList<>();
+            yamlFilesByEnvironment.forEach((environment, yamlFileLocation) -> {
+                InjectionJob job = new InjectionJob(TemplateType.PROPERTIES, propertiesFileLocation, yamlFileLocation, containerImageName,
+                        getOutputFileLocation(propertiesFileLocation, environment));
+                futures.add(executor.submit(() -> inject(template, environment, job)));
+            });
+            List<MatrixResult> results = new ArrayList<>();
+            for(Future<MatrixResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while injecting environments", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unexpected failure while injecting environments", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MatrixResult inject(PropertiesTemplate template, String environment, InjectionJob job) {
+        MatrixResult matrixResult = new MatrixResult(environment, new InjectionResult(job));
+        try {
+            List<YamlFileEnvEntry> yamlEnvEntries = yamlService.getManifestIndex(job.getYamlFileLocation())
+                    .getYamlFileEnvEntries(job.getContainerImageName());
+            for(YamlFileEnvEntry yamlEnvEntry : yamlEnvEntries) {
+                if(Objects.nonNull(yamlEnvEntry.getSecretKeyRef())) {
+                    matrixResult.getSecretEnvNames().add(yamlEnvEntry.getEnvName());
+                }
+            }
+            if(Objects.nonNull(secretResolver)) {
+                yamlEnvEntries = secretResolver.resolve(yamlEnvEntries);
+            }
+            YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+            if(!yamlEnvIndex.getDuplicateEnvNames().isEmpty()) {
+                logger.warn("Env declared more than once for image {} in {}, last declaration is used: {}",
+                        job.getContainerImageName(), job.getYamlFileLocation(), yamlEnvIndex.getDuplicateEnvNames());
+            }
+            long bytesWritten = propertiesService.injectEnvFromYaml(template, job.getOutputFileLocation(), yamlEnvIndex, entry -> {
+                matrixResult.getEntries().add(entry);
+                matrixResult.getResult().countEntry(entry);
+            });
+            matrixResult.getResult().setBytesWritten(bytesWritten);
+        } catch (Exception e) {
+            logger.error("Failed to inject {} for {}: {}", job.getTemplateFileLocation(), environment, e.toString());
+            matrixResult.getEntries().clear();
+            matrixResult.getResult().setErrorMessage(Objects.nonNull(e.getMessage()) ? e.getMessage() : e.toString());
+        }
+        return matrixResult;
+    }
+
+    /**
+     * Lists the entries using env whose value is not the same in all the environments, and the entries using env
+     * that is missing from the yaml file of some of the environments. Environments that failed are left out.
+     */
+    @Override
+    public Report buildDiffReport(List<MatrixResult> results) {
+        Report report = new Report();
+        Report.Section differing = report.addSection("differing", "********** Entries with a different value between environments ********************");
+        Report.Section missing = report.addSection("missing", "********** Entries with env missing from the yaml file of some environments *******");
+
+        List<MatrixResult> succeeded = results.stream()
+                .filter(result -> !result.getResult().isFailed())
+                .collect(Collectors.toList());
+        if(succeeded.isEmpty()) {
+            return report;
+        }
+        // all the environments are injected from the same template, so their entries are on the same lines
+        int lineCount = succeeded.get(0).getEntries().size();
+        for(int i = 0; i < lineCount; i++) {
+            PropertiesFileEntry firstEntry = succeeded.get(0).getEntries().get(i);
+            if(!firstEntry.isValid() || !firstEntry.isValueInjected()) {
+                continue;
+            }
+            Map<String, String> values = new LinkedHashMap<>();
+            List<String> missingEnvironments = new ArrayList<>();
+            boolean secret = false;
+            for(MatrixResult result : succeeded) {
+                PropertiesFileEntry entry = result.getEntries().get(i);
+                if(!entry.isPresentInYaml()) {
+                    missingEnvironments.add(result.getEnvironment());
+                }
+                values.put(result.getEnvironment(), getValue(entry));
+                secret |= usesSecret(entry, result.getSecretEnvNames());
+            }
+
+            if(!missingEnvironments.isEmpty()) {
+                missing.add(firstEntry.getLineNumber(), firstEntry.getName() + " (missing in " + String.join(", ", missingEnvironments) + ")");
+            }
+            if(new HashSet<>(values.values()).size() > 1) {
+                // the values of a secret are compared, but only the fact that they differ is reported
+                boolean masked = secret;
+                String valuesByEnvironment = values.entrySet().stream()
+                        .map(value -> value.getKey() + "=" + (masked ? SECRET_VALUE : value.getValue()))
+                        .collect(Collectors.joining(", "));
+                differing.add(firstEntry.getLineNumber(), firstEntry.getName() + " (" + valuesByEnvironment + ")");
+            }
+        }
+        return report;
+    }
+
+    @Override
+    public void printReport(List<MatrixResult> results, ReportFormat reportFormat) {
+        logger.info("***************** Matrix report *****************************************************");
+        for(MatrixResult matrixResult : results) {
+            InjectionResult result = matrixResult.getResult();
+            if(result.isFailed()) {
+                logger.info("FAILED {} [{}]: {}", matrixResult.getEnvironment(), result.getJob().getYamlFileLocation(), result.getErrorMessage());
+                continue;
+            }
+            logger.info("OK     {} [{}] to {}: injected {}, secret {}, not in yaml {}, invalid or empty {}",
+                    matrixResult.getEnvironment(), result.getJob().getYamlFileLocation(), result.getJob().getOutputFileLocation(),
+                    result.getInjectedEntries(), result.getSecretEntries(), result.getNotInYamlEntries(), result.getInvalidEntries());
+        }
+        ReportWriter.write(buildDiffReport(results), reportFormat, logger);
+    }
+
+    /**
+     * @return name of the yaml file without its extension, e.g. 'prod-eu' for 'overlays/prod-eu.yml'
+     */
+    public static String getEnvironment(String yamlFileLocation) {
+        return removeExtension(Paths.get(yamlFileLocation).getFileName().toString());
+    }
+
+    /**
+     * @return the properties file with the environment added before its extension, e.g. 'application-dev.properties'
+     */
+    public static String getOutputFileLocation(String propertiesFileLocation, String environment) {
+        Path propertiesFile = Paths.get(propertiesFileLocation);
+        String fileName = propertiesFile.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        String outputFileName = extensionIndex > 0
+                ? fileName.substring(0, extensionIndex) + "-" + environment + fileName.substring(extensionIndex)
+                : fileName + "-" + environment;
+        return propertiesFile.resolveSibling(outputFileName).toString();
+    }
+
+    private static String removeExtension(String fileName) {
+        int extensionIndex = fileName.lastIndexOf('.');
+        return extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+    }
+
+    /**
+     * @return true if the entry uses an env whose value is taken from a secret, in itself or in one of its placeholders
+     */
+    private static boolean usesSecret(PropertiesFileEntry entry, Set<String> secretEnvNames) {
+        return entry.isEnvValueSecret() || entry.getEnvNames().stream().anyMatch(secretEnvNames::contains);
+    }
+
+    /**
+     * @return the value injected in the entry, with the value of each of its placeholders, or the default value if none is injected
+     */
+    private static String getValue(PropertiesFileEntry entry) {
+        if(entry.isEnvValueSecret()) {
+            return SECRET_VALUE;
+        }
+        if(Objects.isNull(entry.getPlaceholders())) {
+            return StringUtils.defaultString(entry.isInjected() ? entry.getEnvValueToInject() : entry.getDefaultValue());
+        }
+        String value = entry.getRawValue();
+        StringBuilder resolvedValue = new StringBuilder(value.length());
+        int valueIndex = 0;
+        for(Placeholder placeholder : entry.getPlaceholders()) {
+            if(Objects.isNull(placeholder.getEnvValueToInject())) {
+                continue;
+            }
+            resolvedValue.append(value, valueIndex, placeholder.getStart()).append(placeholder.getEnvValueToInject());
+            valueIndex = placeholder.getEnd();
+        }
+        return resolvedValue.append(value, valueIndex, value.length()).toString();
+    }
+}
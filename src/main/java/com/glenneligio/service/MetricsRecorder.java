@@ -0,0 +1,210 @@
+package com.glenneligio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.glenneligio.model.InjectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Records the wall time and bytes read and written of each phase of a command, along with counters such as
+ * the number of entries injected and the manifest cache hits. Phases with the same name are added together.
+ * The metrics are written as JSON, or in the Prometheus text format when the file name ends with .prom,
+ * so the file can be read by the node exporter textfile collector.
+ */
+public class MetricsRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRecorder.class);
+    private static final String PROMETHEUS_FILE_SUFFIX = ".prom";
+    private static final String METRIC_PREFIX = "properties_env_setup_";
+
+    private final String command;
+    private final long startTime = System.nanoTime();
+    private final long startEpochMillis = System.currentTimeMillis();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    public MetricsRecorder(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Starts timing a phase, which stops when the phase is closed.
+     */
+    public Phase startPhase(String name) {
+        Phase phase = phases.computeIfAbsent(name, Phase::new);
+        phase.startTime = System.nanoTime();
+        return phase;
+    }
+
+    public void count(String name, long value) {
+        counters.merge(name, value, Long::sum);
+    }
+
+    public void countResult(InjectionResult result) {
+        count("injected", result.getInjectedEntries());
+        count("secret", result.getSecretEntries());
+        count("notInYaml", result.getNotInYamlEntries());
+        count("addedFromYaml", result.getAddedFromYamlEntries());
+        count("invalid", result.getInvalidEntries());
+    }
+
+    /**
+     * @param manifestCache cache used by the command, or null if the cache was disabled
+     */
+    public void countCache(ManifestCache manifestCache) {
+        if(Objects.nonNull(manifestCache)) {
+            count("cacheHits", manifestCache.getHits());
+            count("cacheMisses", manifestCache.getMisses());
+        }
+    }
+
+    public Map<String, Phase> getPhases() {
+        return phases;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public void write(String metricsFileLocation) throws IOException {
+        Path metricsFile = Paths.get(metricsFileLocation);
+        long totalNanos = System.nanoTime() - startTime;
+        byte[] content = metricsFileLocation.endsWith(PROMETHEUS_FILE_SUFFIX)
+                ? toPrometheusText(totalNanos).getBytes(StandardCharsets.UTF_8)
+                : toJson(totalNanos);
+        OutputFileWriter.writeIfChanged(metricsFile, content);
+        logger.info("Metrics written to {}", metricsFile);
+    }
+
+    private byte[] toJson(long totalNanos) throws IOException {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("command", command);
+        metrics.put("timestamp", startEpochMillis);
+        metrics.put("timeMillis", toMillis(totalNanos));
+        Map<String, Object> phaseMetrics = new LinkedHashMap<>();
+        for(Phase phase : phases.values()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("timeMillis", toMillis(phase.nanos));
+            values.put("bytesRead", phase.bytesRead);
+            values.put("bytesWritten", phase.bytesWritten);
+            phaseMetrics.put(phase.name, values);
+        }
+        metrics.put("phases", phaseMetrics);
+        metrics.put("counters", counters);
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(metrics);
+    }
+
+    private String toPrometheusText(long totalNanos) {
+        StringBuilder text = new StringBuilder();
+        String commandLabel = "command=\"" + command + "\"";
+        appendMetricHeader(text, "duration_seconds", "Wall time of the command");
+        appendMetric(text, "duration_seconds", commandLabel, toSeconds(totalNanos));
+        appendMetricHeader(text, "last_run_timestamp_seconds", "Time the command was started");
+        appendMetric(text, "last_run_timestamp_seconds", commandLabel, toSeconds(startEpochMillis * 1_000_000));
+
+        appendMetricHeader(text, "phase_duration_seconds", "Wall time of each phase of the command");
+        for(Phase phase : phases.values()) {
+            appendMetric(text, "phase_duration_seconds", commandLabel + ",phase=\"" + phase.name + "\"", toSeconds(phase.nanos));
+        }
+        appendMetricHeader(text, "phase_read_bytes", "Bytes read by each phase of the command");
+        for(Phase phase : phases.values()) {
+            appendMetric(text, "phase_read_bytes", commandLabel + ",phase=\"" + phase.name + "\"", String.valueOf(phase.bytesRead));
+        }
+        appendMetricHeader(text, "phase_written_bytes", "Bytes written by each phase of the command");
+        for(Phase phase : phases.values()) {
+            appendMetric(text, "phase_written_bytes", commandLabel + ",phase=\"" + phase.name + "\"", String.valueOf(phase.bytesWritten));
+        }
+        appendMetricHeader(text, "count", "Counters of the command, such as the entries injected and the manifest cache hits");
+        for(Map.Entry<String, Long> counter : counters.entrySet()) {
+            appendMetric(text, "count", commandLabel + ",name=\"" + counter.getKey() + "\"", String.valueOf(counter.getValue()));
+        }
+        return text.toString();
+    }
+
+    private static void appendMetricHeader(StringBuilder text, String name, String help) {
+        text.append("# HELP ").append(METRIC_PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(METRIC_PREFIX).append(name).append(" gauge\n");
+    }
+
+    private static void appendMetric(StringBuilder text, String name, String labels, String value) {
+        text.append(METRIC_PREFIX).append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String toSeconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1_000_000_000.0);
+    }
+
+    /**
+     * Phase of a command, timed from its start until it is closed.
+     */
+    public static class Phase implements AutoCloseable {
+        private final String name;
+        private long startTime;
+        private long nanos;
+        private long bytesRead;
+        private long bytesWritten;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        public void addBytesRead(long bytes) {
+            bytesRead += bytes;
+        }
+
+        public void addBytesWritten(long bytes) {
+            bytesWritten += bytes;
+        }
+
+        /**
+         * Adds the size of the file to the bytes read, if the file exists.
+         */
+        public void addFileRead(String fileLocation) {
+            addBytesRead(new File(fileLocation).length());
+        }
+
+        /**
+         * Adds the template read and the bytes of the -injected file written by the job of the result,
+         * unless it failed or was up to date.
+         */
+        public void addResultFiles(InjectionResult result) {
+            if(result.isFailed() || result.isUpToDate()) {
+                return;
+            }
+            addFileRead(result.getJob().getTemplateFileLocation());
+            addBytesWritten(result.getBytesWritten());
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public void close() {
+            nanos += System.nanoTime() - startTime;
+        }
+    }
+}
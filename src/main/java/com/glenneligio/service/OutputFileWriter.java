@@ -0,0 +1,125 @@
+package com.glenneligio.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes the -injected files. A file whose content did not change is left untouched, so its modified time
+ * stays the same and file watchers or builds depending on it are not triggered.
+ * New content is written to a temporary file in the same directory and moved in place, so the file is
+ * never seen half written. The temporary file takes the permissions of the file it replaces, or the default
+ * permissions of a new file, so the move does not change who can read the file.
+ */
+final class OutputFileWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutputFileWriter.class);
+
+    private OutputFileWriter() {
+    }
+
+    /**
+     * Writes the lines the same way as {@link Files#write(Path, Iterable, java.nio.charset.Charset, java.nio.file.OpenOption...)},
+     * each line followed by the line separator.
+     * @return true if the file was written, false if it already has the same content
+     */
+    static boolean writeIfChanged(Path file, List<String> lines) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        for(String line : lines) {
+            content.write(line.getBytes(StandardCharsets.UTF_8));
+            content.write(lineSeparator);
+        }
+        return writeIfChanged(file, content.toByteArray());
+    }
+
+    static boolean writeIfChanged(Path file, byte[] content) throws IOException {
+        if(Files.isRegularFile(file) && Files.size(file) == content.length
+                && Arrays.equals(Files.readAllBytes(file), content)) {
+            logger.info("{} is unchanged, not written", file);
+            return false;
+        }
+
+        Path tempFile = createTempFile(file);
+        try {
+            Files.write(tempFile, content);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return true;
+    }
+
+    /**
+     * Creates the temporary file where the new content of the file is streamed to, before calling {@link #replaceIfChanged(Path, Path)}.
+     */
+    static Path createTempFile(Path file) throws IOException {
+        Path directory = Objects.nonNull(file.toAbsolutePath().getParent()) ? file.toAbsolutePath().getParent() : file.toAbsolutePath();
+        while(true) {
+            // Files.createTempFile would make the file owner-only, Files.createFile applies the umask like any new file
+            Path tempFile = directory.resolve(file.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.createFile(tempFile);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            copyPermissions(file, tempFile);
+            return tempFile;
+        }
+    }
+
+    private static void copyPermissions(Path file, Path tempFile) throws IOException {
+        if(Files.isRegularFile(file) && Files.getFileStore(tempFile).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(tempFile, Files.getPosixFilePermissions(file));
+        }
+    }
+
+    /**
+     * Moves the temporary file in place of the file if their content differ, otherwise the temporary file is deleted.
+     * @return true if the file was replaced
+     */
+    static boolean replaceIfChanged(Path tempFile, Path file) throws IOException {
+        try {
+            if(hasSameContent(tempFile, file)) {
+                logger.info("{} is unchanged, not written", file);
+                return false;
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static boolean hasSameContent(Path tempFile, Path file) throws IOException {
+        if(!Files.isRegularFile(file) || Files.size(file) != Files.size(tempFile)) {
+            return false;
+        }
+        byte[] tempBuffer = new byte[64 * 1024];
+        byte[] fileBuffer = new byte[64 * 1024];
+        try (InputStream tempIn = Files.newInputStream(tempFile);
+             InputStream fileIn = Files.newInputStream(file)) {
+            int read;
+            while((read = tempIn.readNBytes(tempBuffer, 0, tempBuffer.length)) > 0) {
+                if(fileIn.readNBytes(fileBuffer, 0, read) != read
+                        || !Arrays.equals(tempBuffer, 0, read, fileBuffer, 0, read)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
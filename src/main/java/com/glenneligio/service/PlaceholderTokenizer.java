@@ -0,0 +1,81 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.Placeholder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds the Spring style ${NAME} and ${NAME:default} placeholders of a property value in a single pass.
+ * The default value is everything after the first colon up to the matching closing brace, so it can contain
+ * = and : characters, and nested placeholders such as ${A:${B:x}}.
+ * Env names should only have upper case letters, digits and underscores.
+ */
+final class PlaceholderTokenizer {
+
+    private PlaceholderTokenizer() {
+    }
+
+    /**
+     * @return the placeholders of the value in order, an empty list if there are none,
+     * or null if a placeholder have an invalid env name or is not closed
+     */
+    static List<Placeholder> tokenize(String value) {
+        List<Placeholder> placeholders = null;
+        int index = value.indexOf("${");
+        while(index != -1) {
+            int nameStart = index + 2;
+            int nameEnd = nameStart;
+            while(nameEnd < value.length() && isEnvNameCharacter(value.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            if(nameEnd == nameStart || nameEnd == value.length()) {
+                return null;
+            }
+
+            Placeholder placeholder;
+            char delimiter = value.charAt(nameEnd);
+            if(delimiter == '}') {
+                placeholder = new Placeholder(value.substring(nameStart, nameEnd), null, index, nameEnd + 1);
+            } else if(delimiter == ':') {
+                int defaultEnd = findClosingBrace(value, nameEnd + 1);
+                if(defaultEnd == -1) {
+                    return null;
+                }
+                placeholder = new Placeholder(value.substring(nameStart, nameEnd), value.substring(nameEnd + 1, defaultEnd), index, defaultEnd + 1);
+            } else {
+                return null;
+            }
+
+            if(Objects.isNull(placeholders)) {
+                placeholders = new ArrayList<>(2);
+            }
+            placeholders.add(placeholder);
+            index = value.indexOf("${", placeholder.getEnd());
+        }
+        return Objects.isNull(placeholders) ? Collections.emptyList() : placeholders;
+    }
+
+    /**
+     * @return the index of the brace closing the placeholder whose default value starts at the given index, or -1 if it is not closed
+     */
+    private static int findClosingBrace(String value, int fromIndex) {
+        int depth = 1;
+        for(int i = fromIndex; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '$' && i + 1 < value.length() && value.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if(c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isEnvNameCharacter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -1,15 +1,58 @@
 package com.glenneligio.service;
 
 import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.PropertiesTemplate;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PropertiesService {
     List<PropertiesFileEntry> getPropertiesFileEntriesFromPropertiesFile(String propertiesFileLocation) throws IOException;
 
-    void injectEnvFound(List<PropertiesFileEntry> propertiesFileEntries, String propertiesFileLocation) throws IOException;
+    /**
+     * @return bytes written to the output file, or 0 if it already had the same content and was left untouched
+     */
+    long injectEnvFound(List<PropertiesFileEntry> propertiesFileEntries, String propertiesFileLocation) throws IOException;
+
+    /**
+     * Reads, populates and injects the properties file in a single pass, so only one line is held in memory at a time.
+     * Each entry is passed to the entry consumer once populated.
+     * @return bytes written to the output file, or 0 if it already had the same content and was left untouched
+     */
+    long injectEnvFromYaml(String propertiesFileLocation, YamlEnvIndex yamlEnvIndex, Consumer<PropertiesFileEntry> entryConsumer) throws IOException;
+
+    /**
+     * Same as {@link #injectEnvFromYaml(String, YamlEnvIndex, Consumer)}, writing the injected file to the output file
+     * instead of the properties file with an -injected suffix.
+     */
+    long injectEnvFromYaml(String propertiesFileLocation, String outputFileLocation, YamlEnvIndex yamlEnvIndex, Consumer<PropertiesFileEntry> entryConsumer) throws IOException;
+
+    /**
+     * Reads and parses the properties file once, so it can be injected with the env of several yaml files.
+     */
+    PropertiesTemplate parseTemplate(String propertiesFileLocation) throws IOException;
+
+    /**
+     * Same as {@link #injectEnvFromYaml(String, String, YamlEnvIndex, Consumer)}, using the parsed template instead of
+     * reading the properties file. Can be called from several threads with the same template.
+     */
+    long injectEnvFromYaml(PropertiesTemplate template, String outputFileLocation, YamlEnvIndex yamlEnvIndex, Consumer<PropertiesFileEntry> entryConsumer) throws IOException;
     void printReport(List<PropertiesFileEntry> propertiesFileEntries);
+    void printReport(List<PropertiesFileEntry> propertiesFileEntries, ReportFormat reportFormat);
+    Report buildReport(List<PropertiesFileEntry> propertiesFileEntries);
+
+    /**
+     * Creates a report with no entry, so it can be filled with {@link #addToReport(Report, PropertiesFileEntry)} while
+     * the entries are injected instead of keeping them all until the end.
+     */
+    Report createReport();
+    void addToReport(Report report, PropertiesFileEntry entry);
+    void printReport(Report report, ReportFormat reportFormat);
     List<PropertiesFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<PropertiesFileEntry> currentEnvFileEntries, List<YamlFileEnvEntry> yamlFileEnvEntries);
+    List<PropertiesFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<PropertiesFileEntry> currentEnvFileEntries, YamlEnvIndex yamlEnvIndex);
 }
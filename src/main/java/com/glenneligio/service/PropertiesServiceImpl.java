@@ -1,210 +1,487 @@
 package com.glenneligio.service;
 
+import com.glenneligio.model.Placeholder;
 import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.PropertiesTemplate;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.TemplateType;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class PropertiesServiceImpl implements PropertiesService{
 
     private static final Logger logger = LoggerFactory.getLogger(PropertiesServiceImpl.class);
 
+    private final Charset charset;
+
+    public PropertiesServiceImpl() {
+        this(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param charset charset of the properties files, which should be ASCII compatible such as UTF-8 or ISO-8859-1
+     */
+    public PropertiesServiceImpl(Charset charset) {
+        this.charset = charset;
+    }
+
     @Override
     public List<PropertiesFileEntry> getPropertiesFileEntriesFromPropertiesFile(String propertiesFileLocation) throws IOException {
         logger.info("Reading {}", propertiesFileLocation);
-        List<PropertiesFileEntry> result = new ArrayList<>();
+        File file = new File(propertiesFileLocation);
+        if(!file.isFile()) {
+            throw new FileNotFoundException(propertiesFileLocation);
+        }
 
-        String fileContent;
-        try (InputStream inputStream = new FileInputStream(propertiesFileLocation)) {
-            fileContent = new String(convert(inputStream));
-            logger.debug("File content {}", fileContent);
-            String[] entries = fileContent.split("\n");
+        List<PropertiesFileEntry> result = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            LineScanner scanner = new LineScanner(channel, charset);
+            LineScanner.Line line;
             int lineNumberIndex = 1;
+            while(Objects.nonNull(line = scanner.next())) {
+                result.add(parseLine(line, lineNumberIndex));
+                lineNumberIndex++;
+            }
+        }
+        return result;
+    }
 
-            for (String entry : entries) {
-                String entryValue = entry;
-                int commentCharIndex = entryValue.indexOf("#");
-                if(commentCharIndex != -1) {
-                    logger.info("Cleaning the line by removing comment in line {}", entryValue);
-                    entryValue = entryValue.substring(0, commentCharIndex).trim();
-                }
+    @Override
+    public long injectEnvFound(List<PropertiesFileEntry> propertiesFileEntries, String propertiesFileLocation) throws IOException {
+        File file = new File(propertiesFileLocation);
+        if(!file.exists() || !file.isFile()) {
+            throw new RuntimeException("Properties file does not exist");
+        }
+        Map<Integer, PropertiesFileEntry> entriesToBeInjected = new HashMap<>();
+        for(PropertiesFileEntry entry : propertiesFileEntries) {
+            if(isToBeInjected(entry)) {
+                entriesToBeInjected.put(entry.getLineNumber(), entry);
+            }
+        }
 
-                if(entryValue.trim().length() == 0) {
-                    logger.debug("Newline, skipped");
-                    PropertiesFileEntry newLineEntry = new PropertiesFileEntry(null, null, null, false, false, lineNumberIndex,false);
-                    result.add(newLineEntry);
-                    lineNumberIndex++;
-                    continue;
-                }
+        return writeInjectedFile(file, Paths.get(propertiesFileLocation + "-injected"), (line, lineNumber) -> {
+            PropertiesFileEntry propEntry = entriesToBeInjected.get(lineNumber);
+            if(Objects.isNull(propEntry)) {
+                return null;
+            }
+            propEntry.setInjected(true);
+            return toInjectedLine(propEntry);
+        });
+    }
 
-                int equalsIndex = entryValue.indexOf("=");
-                if (equalsIndex == -1) {
-                    logger.debug("Invalid property entry: {}", entryValue);
-                    PropertiesFileEntry invalidEntry = new PropertiesFileEntry(StringUtils.trimToEmpty(entryValue), null, null, false, false, lineNumberIndex, false);
-                    result.add(invalidEntry);
-                    lineNumberIndex++;
-                    continue;
-                }
+    @Override
+    public long injectEnvFromYaml(String propertiesFileLocation, YamlEnvIndex yamlEnvIndex, Consumer<PropertiesFileEntry> entryConsumer) throws IOException {
+        return injectEnvFromYaml(propertiesFileLocation, propertiesFileLocation + "-injected", yamlEnvIndex, entryConsumer);
+    }
+
+    @Override
+    public long injectEnvFromYaml(String propertiesFileLocation, String outputFileLocation, YamlEnvIndex yamlEnvIndex, Consumer<PropertiesFileEntry> entryConsumer) throws IOException {
+        logger.info("Injecting {}", propertiesFileLocation);
+        File file = new File(propertiesFileLocation);
+        if(!file.exists() || !file.isFile()) {
+            throw new RuntimeException("Properties file does not exist");
+        }
 
-                String propName = entryValue.substring(0, equalsIndex).trim();
-                String propValue = entryValue.substring(equalsIndex + 1).trim();
-                logger.debug("propName: {}", propName);
-                logger.debug("propValue: {}", propValue);
+        EnvMatchedEvent event = new EnvMatchedEvent();
+        event.begin();
+        long bytesWritten = writeInjectedFile(file, Paths.get(outputFileLocation), (line, lineNumber) -> {
+            PropertiesFileEntry entry = parseLine(line, lineNumber);
+            populateEntry(entry, yamlEnvIndex);
+            countMatch(entry, event);
+            entryConsumer.accept(entry);
+            return isToBeInjected(entry) ? toInjectedLine(entry) : null;
+        });
+        // entries are matched while the file is streamed, so the event spans the whole injection
+        commitEnvMatched(event, propertiesFileLocation, yamlEnvIndex);
+        return bytesWritten;
+    }
 
-                if (!propValue.startsWith("${")) {
-                    logger.debug("Property entry is not being injected with environment variable, skipped");
-                    PropertiesFileEntry skippedEntry = new PropertiesFileEntry(propName, null, propValue, true, false, lineNumberIndex, false);
-                    result.add(skippedEntry);
-                    lineNumberIndex++;
-                    continue;
-                }
+    @Override
+    public PropertiesTemplate parseTemplate(String propertiesFileLocation) throws IOException {
+        logger.info("Parsing template {}", propertiesFileLocation);
+        File file = new File(propertiesFileLocation);
+        if(!file.isFile()) {
+            throw new FileNotFoundException(propertiesFileLocation);
+        }
 
-                if(!propValue.matches("^\\s*\\$\\{[A-Z0-9_]+(:[^}]+)?\\}\\s*$")) {
-                    logger.info("Invalid syntax for property entry value: {}", entryValue);
-                    PropertiesFileEntry invalidEntry = new PropertiesFileEntry(StringUtils.trimToEmpty(entryValue), null, null, false, false, lineNumberIndex, false);
-                    logger.info("Property entry: {}", invalidEntry);
-                    result.add(invalidEntry);
-                    lineNumberIndex++;
-                    continue;
-                }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Properties file is too large to be used as a template: " + propertiesFileLocation);
+            }
+            List<PropertiesFileEntry> entries = new ArrayList<>();
+            List<int[]> offsets = new ArrayList<>();
+            LineScanner scanner = new LineScanner(channel, charset);
+            LineScanner.Line line;
+            int lineNumber = 1;
+            while(Objects.nonNull(line = scanner.next())) {
+                entries.add(parseLine(line, lineNumber));
+                offsets.add(new int[] {(int) line.getStart(), (int) line.getContentEnd()});
+                lineNumber++;
+            }
 
-                int colonIndex = propValue.indexOf(":");
-                if (colonIndex == -1) {
-                    logger.debug("Property entry does not have default value and is just injected, to be processed");
-                    String injectedEnv = propValue.substring(2, propValue.length() - 1).trim();
-                    PropertiesFileEntry injectedEntryWithNoDefaultValue = new PropertiesFileEntry(propName, injectedEnv, null, true, true, lineNumberIndex, false);
-                    result.add(injectedEntryWithNoDefaultValue);
-                    lineNumberIndex++;
-                    continue;
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            while(content.hasRemaining()) {
+                if(channel.read(content, content.position()) < 0) {
+                    throw new IOException("Properties file changed while being read: " + propertiesFileLocation);
                 }
+            }
+            int[] lineStarts = new int[offsets.size()];
+            int[] lineContentEnds = new int[offsets.size()];
+            for(int i = 0; i < offsets.size(); i++) {
+                lineStarts[i] = offsets.get(i)[0];
+                lineContentEnds[i] = offsets.get(i)[1];
+            }
+            return new PropertiesTemplate(propertiesFileLocation, content.array(), scanner.getLineSeparator(), entries, lineStarts, lineContentEnds);
+        }
+    }
 
-                String injectedEnv = propValue.substring(2, colonIndex).trim();
-                String defaultValue = propValue.substring(colonIndex + 1, propValue.length() - 1);
-                logger.debug("Property entry does have default value and is injected, to be processed");
-                PropertiesFileEntry injectedEntryWithDefaultValue = new PropertiesFileEntry(propName, injectedEnv, defaultValue, true, true, lineNumberIndex, false);
-                result.add(injectedEntryWithDefaultValue);
-                lineNumberIndex++;
+    @Override
+    public long injectEnvFromYaml(PropertiesTemplate template, String outputFileLocation, YamlEnvIndex yamlEnvIndex, Consumer<PropertiesFileEntry> entryConsumer) throws IOException {
+        logger.info("Injecting {} to {}", template.getLocation(), outputFileLocation);
+        EnvMatchedEvent matchedEvent = new EnvMatchedEvent();
+        matchedEvent.begin();
+        FileInjectedEvent event = new FileInjectedEvent();
+        event.begin();
+        Path outputFile = Paths.get(outputFileLocation);
+        Path tempFile = OutputFileWriter.createTempFile(outputFile);
+        int linesRewritten = 0;
+        // only the lines that are rewritten are encoded, while the rest of the template is copied as is
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+            int position = 0;
+            for(int i = 0; i < template.size(); i++) {
+                PropertiesFileEntry entry = template.getEntry(i);
+                populateEntry(entry, yamlEnvIndex);
+                countMatch(entry, matchedEvent);
+                entryConsumer.accept(entry);
+                if(isToBeInjected(entry)) {
+                    template.writeContent(out, position, template.getLineStart(i));
+                    out.write(toInjectedLine(entry).getBytes(charset));
+                    position = template.getLineContentEnd(i);
+                    linesRewritten++;
+                }
             }
-            return result;
+            template.writeContent(out, position, template.getContentLength());
+            if(!template.isLastLineTerminated()) {
+                out.write(template.getLineSeparator().getBytes(charset));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        long bytesWritten = Files.size(tempFile);
+        boolean replaced = OutputFileWriter.replaceIfChanged(tempFile, outputFile);
+        commitEnvMatched(matchedEvent, template.getLocation(), yamlEnvIndex);
+        if(event.shouldCommit()) {
+            event.path = template.getLocation();
+            event.templateType = TemplateType.PROPERTIES.name();
+            event.bytesWritten = bytesWritten;
+            event.linesRewritten = linesRewritten;
+            event.replaced = replaced;
+            event.commit();
         }
+        return replaced ? bytesWritten : 0;
     }
 
+    @Override
+    public void printReport(List<PropertiesFileEntry> propertiesFileEntries) {
+        printReport(propertiesFileEntries, ReportFormat.LOG);
+    }
 
+    @Override
+    public void printReport(List<PropertiesFileEntry> propertiesFileEntries, ReportFormat reportFormat) {
+        if(reportFormat == ReportFormat.NONE) {
+            return;
+        }
+        printReport(buildReport(propertiesFileEntries), reportFormat);
+    }
 
     @Override
-    public void injectEnvFound(List<PropertiesFileEntry> propertiesFileEntries, String propertiesFileLocation) throws IOException {
-        File file = new File(propertiesFileLocation);
-        if(!file.exists() || !file.isFile()) {
-            throw new RuntimeException("Properties file does not exist");
+    public Report buildReport(List<PropertiesFileEntry> propertiesFileEntries) {
+        Report report = createReport();
+        for(PropertiesFileEntry entry : propertiesFileEntries) {
+            addToReport(report, entry);
         }
-        List<Integer> linesToBeInjected = propertiesFileEntries.stream()
-                .filter(PropertiesFileEntry::isValid)
-                .filter(PropertiesFileEntry::isValueInjected)
-                .filter(entry -> !entry.isEnvValueSecret())
-                .filter(PropertiesFileEntry::isInjected)
-                .sorted(Comparator.comparingInt(PropertiesFileEntry::getLineNumber))
-                .map(PropertiesFileEntry::getLineNumber)
-                .collect(Collectors.toList());
-
-        List<String> fileContents = Files.readAllLines(Paths.get(propertiesFileLocation));
-        for(int i = 1; i <= fileContents.size(); i++) {
-            if(linesToBeInjected.contains(i)) {
-                PropertiesFileEntry propEntry = propertiesFileEntries.get(i-1);
-                String fileEntry = propEntry.getName() +
-                        "=" +
-                        "${" +
-                        propEntry.getEnvUsed() +
-                        ":" +
-                        StringUtils.trimToEmpty(propEntry.getEnvValueToInject()) +
-                        "}";
-                fileContents.set(i-1, fileEntry);
-                propEntry.setInjected(true);
-            }
+        return report;
+    }
+
+    @Override
+    public Report createReport() {
+        Report report = new Report();
+        report.addSection("invalid", "********** Invalid entries or empty lines *****************************************");
+        report.addSection("notInjected", "********** Valid entries with no environment variable injected *********************");
+        report.addSection("notInYaml", "********** Valid entries whose environment variable is not present in yaml ********");
+        report.addSection("injected", "********** Valid entries that was injected with environment variables **************");
+        report.addSection("secret", "********** Valid entries whose environment variable was a secret *******************");
+        return report;
+    }
+
+    @Override
+    public void addToReport(Report report, PropertiesFileEntry entry) {
+        if(!entry.isValid()) {
+            report.getSection("invalid").add(entry.getLineNumber(), entry.getName());
+            return;
+        }
+        if(!entry.isValueInjected()) {
+            report.getSection("notInjected").add(entry.getLineNumber(), entry.getName());
+        } else if(!entry.isPresentInYaml()) {
+            report.getSection("notInYaml").add(entry.getLineNumber(), getReportName(entry));
         }
+        if(entry.isInjected()) {
+            report.getSection("injected").add(entry.getLineNumber(), getReportName(entry));
+        } else if(entry.isEnvValueSecret()) {
+            report.getSection("secret").add(entry.getLineNumber(), getReportName(entry));
+        }
+    }
 
-        File newFileToCreate = new File(propertiesFileLocation + "-injected");
-        if(newFileToCreate.exists()) {
-            newFileToCreate.delete();
-            newFileToCreate.createNewFile();
+    @Override
+    public void printReport(Report report, ReportFormat reportFormat) {
+        if(reportFormat == ReportFormat.NONE) {
+            return;
         }
+        ReportWriter.write(report, reportFormat, logger);
+    }
 
-        Files.write(Paths.get(propertiesFileLocation + "-injected"), fileContents, StandardCharsets.UTF_8);
+    /**
+     * @return the name of the entry, followed by the env of its placeholders for a value with placeholders
+     */
+    private static String getReportName(PropertiesFileEntry entry) {
+        if(Objects.isNull(entry.getPlaceholders())) {
+            return entry.getName();
+        }
+        return entry.getName() + " (" + String.join(", ", entry.getEnvNames()) + ")";
     }
 
     @Override
-    public void printReport(List<PropertiesFileEntry> propertiesFileEntries) {
-        logger.info("********** Invalid entries or empty lines *****************************************");
-        propertiesFileEntries.stream()
-                .filter(entry -> !entry.isValid())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("********** Valid entries with no environment variable injected *********************");
-        propertiesFileEntries.stream()
-                .filter(PropertiesFileEntry::isValid)
-                .filter(entry -> !entry.isValueInjected())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("********** Valid entries whose environment variable is not present in yaml ********");
-        propertiesFileEntries.stream()
-                .filter(PropertiesFileEntry::isValid)
-                .filter(PropertiesFileEntry::isValueInjected)
-                .filter(entry -> !entry.isPresentInYaml())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("********** Valid entries that was injected with environment variables **************");
-        propertiesFileEntries.stream()
-                .filter(PropertiesFileEntry::isValid)
-                .filter(PropertiesFileEntry::isInjected)
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
-
-        logger.info("********** Valid entries whose environment variable was a secret *******************");
-        propertiesFileEntries.stream()
-                .filter(PropertiesFileEntry::isValid)
-                .filter(PropertiesFileEntry::isEnvValueSecret)
-                .filter(entry -> !entry.isInjected())
-                .forEach(entry -> logger.info("{}. {}", entry.getLineNumber(), entry.getName()));
+    public List<PropertiesFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<PropertiesFileEntry> currentEnvFileEntries, List<YamlFileEnvEntry> yamlFileEnvEntries) {
+        return populateEnvFileEntriesWithValuesFromYaml(currentEnvFileEntries, new YamlEnvIndex(yamlFileEnvEntries));
     }
 
     @Override
-    public List<PropertiesFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<PropertiesFileEntry> currentEnvFileEntries, List<YamlFileEnvEntry> yamlFileEnvEntries) {
+    public List<PropertiesFileEntry> populateEnvFileEntriesWithValuesFromYaml(List<PropertiesFileEntry> currentEnvFileEntries, YamlEnvIndex yamlEnvIndex) {
+        EnvMatchedEvent event = new EnvMatchedEvent();
+        event.begin();
         for(PropertiesFileEntry entry : currentEnvFileEntries) {
-            for(YamlFileEnvEntry yamlEntry : yamlFileEnvEntries) {
-                if(Objects.nonNull(entry.getEnvUsed()) && Objects.nonNull(yamlEntry.getEnvName())) {
-                    if(entry.getEnvUsed().equals(yamlEntry.getEnvName()) && !yamlEntry.isSecret()) {
-                        entry.setEnvValueToInject(yamlEntry.getEnvValue());
-                        entry.setEnvValueSecret(false);
-                        entry.setPresentInYaml(true);
-                        entry.setInjected(true);
-                    }
-                    if(entry.getEnvUsed().equals(yamlEntry.getEnvName()) && yamlEntry.isSecret()) {
-                        entry.setEnvValueSecret(true);
-                        entry.setPresentInYaml(true);
-                    }
-                }
-            }
+            populateEntry(entry, yamlEnvIndex);
+            countMatch(entry, event);
         }
+        commitEnvMatched(event, null, yamlEnvIndex);
         return currentEnvFileEntries;
     }
 
-    private static byte[] convert(InputStream inputStream) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[1024];
-        int bytesRead;
+    private static void countMatch(PropertiesFileEntry entry, EnvMatchedEvent event) {
+        event.entries++;
+        if(entry.isInjected()) {
+            event.matched++;
+        } else if(entry.isEnvValueSecret()) {
+            event.secret++;
+        }
+    }
+
+    private static void commitEnvMatched(EnvMatchedEvent event, String path, YamlEnvIndex yamlEnvIndex) {
+        if(event.shouldCommit()) {
+            event.path = path;
+            event.templateType = TemplateType.PROPERTIES.name();
+            event.yamlEnv = yamlEnvIndex.size();
+            event.commit();
+        }
+    }
+
+    private void populateEntry(PropertiesFileEntry entry, YamlEnvIndex yamlEnvIndex) {
+        if(Objects.nonNull(entry.getPlaceholders())) {
+            populatePlaceholders(entry, yamlEnvIndex);
+            return;
+        }
+        YamlFileEnvEntry yamlEntry = yamlEnvIndex.get(entry.getEnvUsed());
+        if(Objects.isNull(yamlEntry)) {
+            return;
+        }
+        if(!yamlEntry.isSecret()) {
+            entry.setEnvValueToInject(yamlEntry.getEnvValue());
+            entry.setEnvValueSecret(false);
+            entry.setPresentInYaml(true);
+            entry.setInjected(true);
+        } else {
+            entry.setEnvValueSecret(true);
+            entry.setPresentInYaml(true);
+        }
+    }
+
+    /**
+     * Populates each placeholder of the entry. The entry is present in yaml if all of its placeholders are,
+     * injected if any of them is injected, and secret if any of them is a secret.
+     */
+    private void populatePlaceholders(PropertiesFileEntry entry, YamlEnvIndex yamlEnvIndex) {
+        boolean presentInYaml = true;
+        for(Placeholder placeholder : entry.getPlaceholders()) {
+            YamlFileEnvEntry yamlEntry = yamlEnvIndex.get(placeholder.getEnvName());
+            if(Objects.isNull(yamlEntry)) {
+                presentInYaml = false;
+            } else if(!yamlEntry.isSecret()) {
+                placeholder.setEnvValueToInject(yamlEntry.getEnvValue());
+                entry.setInjected(true);
+            } else {
+                entry.setEnvValueSecret(true);
+            }
+        }
+        entry.setPresentInYaml(presentInYaml);
+    }
+
+    /**
+     * Parses the line by scanning its bytes for the comment and equals character, so only the name and value are decoded.
+     */
+    private PropertiesFileEntry parseLine(LineScanner.Line line, int lineNumber) {
+        int contentEnd = line.length();
+        int commentCharIndex = line.indexOf('#', 0, contentEnd);
+        if(commentCharIndex != -1) {
+            logger.debug("Cleaning the line by removing comment in line {}", lineNumber);
+            contentEnd = commentCharIndex;
+        }
+
+        if(line.isBlank(0, contentEnd)) {
+            logger.debug("Newline, skipped");
+            return new PropertiesFileEntry(null, null, null, false, false, lineNumber, false);
+        }
+
+        int equalsIndex = line.indexOf('=', 0, contentEnd);
+        if (equalsIndex == -1) {
+            String entryValue = line.decode(0, contentEnd);
+            logger.debug("Invalid property entry: {}", entryValue);
+            return new PropertiesFileEntry(StringUtils.trimToEmpty(entryValue), null, null, false, false, lineNumber, false);
+        }
+
+        String propName = line.decode(0, equalsIndex).trim();
+        String propValue = line.decode(equalsIndex + 1, contentEnd).trim();
+        logger.debug("propName: {}", propName);
+        logger.debug("propValue: {}", propValue);
+
+        if (!propValue.contains("${")) {
+            logger.debug("Property entry is not being injected with environment variable, skipped");
+            return new PropertiesFileEntry(propName, null, propValue, true, false, lineNumber, false);
+        }
 
-        while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, bytesRead);
+        List<Placeholder> placeholders = PlaceholderTokenizer.tokenize(propValue);
+        if(Objects.isNull(placeholders)) {
+            String entryValue = line.decode(0, contentEnd);
+            logger.info("Invalid syntax for property entry value: {}", entryValue);
+            PropertiesFileEntry invalidEntry = new PropertiesFileEntry(StringUtils.trimToEmpty(entryValue), null, null, false, false, lineNumber, false);
+            logger.debug("Property entry: {}", invalidEntry);
+            return invalidEntry;
         }
 
-        buffer.flush();
-        return buffer.toByteArray();
+        Placeholder firstPlaceholder = placeholders.get(0);
+        if(placeholders.size() == 1 && firstPlaceholder.getStart() == 0 && firstPlaceholder.getEnd() == propValue.length()) {
+            logger.debug("Property entry is a single placeholder, to be processed");
+            return new PropertiesFileEntry(propName, firstPlaceholder.getEnvName(), firstPlaceholder.getDefaultValue(), true, true, lineNumber, false);
+        }
+
+        logger.debug("Property entry have {} placeholders mixed with text, to be processed", placeholders.size());
+        PropertiesFileEntry entryWithPlaceholders = new PropertiesFileEntry(propName, null, null, true, true, lineNumber, false);
+        entryWithPlaceholders.setRawValue(propValue);
+        entryWithPlaceholders.setPlaceholders(placeholders);
+        return entryWithPlaceholders;
+    }
+
+    private boolean isToBeInjected(PropertiesFileEntry entry) {
+        if(Objects.nonNull(entry.getPlaceholders())) {
+            // the placeholders that are not secret are injected even if others are
+            return entry.isValid() && entry.isInjected();
+        }
+        return entry.isValid() && entry.isValueInjected() && !entry.isEnvValueSecret() && entry.isInjected();
+    }
+
+    private String toInjectedLine(PropertiesFileEntry propEntry) {
+        if(Objects.nonNull(propEntry.getPlaceholders())) {
+            String value = propEntry.getRawValue();
+            StringBuilder line = new StringBuilder(propEntry.getName().length() + value.length() + 16)
+                    .append(propEntry.getName())
+                    .append('=');
+            int valueIndex = 0;
+            for(Placeholder placeholder : propEntry.getPlaceholders()) {
+                if(Objects.isNull(placeholder.getEnvValueToInject())) {
+                    continue;
+                }
+                line.append(value, valueIndex, placeholder.getStart())
+                        .append("${")
+                        .append(placeholder.getEnvName())
+                        .append(':')
+                        .append(StringUtils.trimToEmpty(placeholder.getEnvValueToInject()))
+                        .append('}');
+                valueIndex = placeholder.getEnd();
+            }
+            return line.append(value, valueIndex, value.length()).toString();
+        }
+        return propEntry.getName() +
+                "=" +
+                "${" +
+                propEntry.getEnvUsed() +
+                ":" +
+                StringUtils.trimToEmpty(propEntry.getEnvValueToInject()) +
+                "}";
+    }
+
+    /**
+     * Streams the lines of the properties file to the output file, one line at a time.
+     * Only the lines that are rewritten are written, while the rest of the file is copied as is.
+     * The output file is only replaced if its content changed.
+     * @return bytes written to the output file, or 0 if it was left untouched
+     */
+    private long writeInjectedFile(File file, Path outputFile, LineRewriter lineRewriter) throws IOException {
+        FileInjectedEvent event = new FileInjectedEvent();
+        event.begin();
+        Path tempFile = OutputFileWriter.createTempFile(outputFile);
+        int linesRewritten = 0;
+        try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            LineScanner scanner = new LineScanner(source, charset);
+            SpliceWriter writer = new SpliceWriter(source, target, charset);
+            LineScanner.Line line;
+            int lineNumber = 1;
+            while(Objects.nonNull(line = scanner.next())) {
+                String rewrittenLine = lineRewriter.rewrite(line, lineNumber);
+                if(Objects.nonNull(rewrittenLine)) {
+                    writer.replace(line, rewrittenLine);
+                    linesRewritten++;
+                }
+                lineNumber++;
+            }
+            writer.finish(scanner.getLineSeparator());
+            event.bytesRead = source.size();
+            event.bytesWritten = target.size();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        boolean replaced = OutputFileWriter.replaceIfChanged(tempFile, outputFile);
+        if(event.shouldCommit()) {
+            event.path = file.getPath();
+            event.templateType = TemplateType.PROPERTIES.name();
+            event.linesRewritten = linesRewritten;
+            event.replaced = replaced;
+            event.commit();
+        }
+        return replaced ? event.bytesWritten : 0;
+    }
+
+    private interface LineRewriter {
+        /**
+         * @return the new content of the line, or null to keep the line as is
+         */
+        String rewrite(LineScanner.Line line, int lineNumber);
     }
 }
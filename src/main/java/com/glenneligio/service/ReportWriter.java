@@ -0,0 +1,72 @@
+package com.glenneligio.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a report in the format asked for. The log format is written with the logger of the service
+ * the report is from, so it stays the same as when the services logged their report directly.
+ */
+final class ReportWriter {
+
+    private ReportWriter() {
+    }
+
+    static void write(Report report, ReportFormat format, Logger logger) {
+        switch (format) {
+            case LOG:
+                log(report, logger);
+                break;
+            case JSON:
+                try {
+                    writeJson(report, System.out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    static void log(Report report, Logger logger) {
+        for(Report.Section section : report.getSections()) {
+            logger.info(section.getHeading());
+            for(Report.Entry entry : section.getEntries()) {
+                logger.info("{}. {}", entry.getLineNumber(), entry.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes the report as a JSON object with an array of entries per section, streamed so the report is never held as a tree.
+     */
+    static void writeJson(Report report, OutputStream out) throws IOException {
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            for(Report.Section section : report.getSections()) {
+                generator.writeArrayFieldStart(section.getName());
+                for(Report.Entry entry : section.getEntries()) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("lineNumber", entry.getLineNumber());
+                    generator.writeStringField("name", entry.getName());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+        out.write('\n');
+        out.flush();
+    }
+}
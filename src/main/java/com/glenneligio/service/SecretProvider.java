@@ -0,0 +1,16 @@
+package com.glenneligio.service;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Source of the values of the secrets referenced by 'secretKeyRef', for local runs where the decrypted values
+ * are available, such as a developer-only file or a local stand-in service.
+ * A secret is looked up as a whole, so all its keys are returned by a single call.
+ */
+public interface SecretProvider {
+    /**
+     * @return the keys and values of the secret, or an empty map if the secret is not known
+     */
+    Map<String, String> getSecret(String secretName) throws IOException;
+}
@@ -0,0 +1,121 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.SecretReference;
+import com.glenneligio.model.YamlFileEnvEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills in the values of the env entries referencing a secret, using a {@link SecretProvider}.
+ * A secret is looked up as a whole the first time one of its keys is needed and kept in memory for the ttl,
+ * so all the entries and templates of a run using the same secret make a single call to the provider,
+ * even when they are injected at the same time. A secret that is not found, or whose lookup failed,
+ * is also kept for the ttl and its entries stay secrets, the same as without a provider.
+ * Safe to use from several threads.
+ */
+public class SecretResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecretResolver.class);
+
+    private final SecretProvider secretProvider;
+    private final Duration ttl;
+    private final Clock clock;
+    private final ConcurrentMap<String, CachedSecret> secrets = new ConcurrentHashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    public SecretResolver(SecretProvider secretProvider, Duration ttl) {
+        this(secretProvider, ttl, Clock.systemUTC());
+    }
+
+    public SecretResolver(SecretProvider secretProvider, Duration ttl, Clock clock) {
+        this.secretProvider = secretProvider;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the entries, with the entries whose secret value was found replaced by a non-secret entry with the value
+     */
+    public List<YamlFileEnvEntry> resolve(List<YamlFileEnvEntry> entries) {
+        // each secret is looked up once, whatever the number of its keys used by the entries
+        Map<String, CompletableFuture<Map<String, String>>> secretLookups = new HashMap<>();
+        for(YamlFileEnvEntry entry : entries) {
+            SecretReference reference = entry.getSecretKeyRef();
+            if(Objects.nonNull(reference)) {
+                secretLookups.computeIfAbsent(reference.getName(), this::lookup);
+            }
+        }
+        if(secretLookups.isEmpty()) {
+            return entries;
+        }
+
+        List<YamlFileEnvEntry> resolvedEntries = new ArrayList<>(entries.size());
+        for(YamlFileEnvEntry entry : entries) {
+            SecretReference reference = entry.getSecretKeyRef();
+            String value = Objects.nonNull(reference) ? getSecret(reference.getName(), secretLookups.get(reference.getName())).get(reference.getKey()) : null;
+            if(Objects.nonNull(value)) {
+                resolvedEntries.add(new YamlFileEnvEntry(entry.getEnvName(), value, false));
+            } else {
+                if(Objects.nonNull(reference)) {
+                    logger.debug("Secret key {} of {} not found for env {}", reference.getKey(), reference.getName(), entry.getEnvName());
+                }
+                resolvedEntries.add(entry);
+            }
+        }
+        return resolvedEntries;
+    }
+
+    /**
+     * @return number of calls made to the provider since the resolver was created
+     */
+    public int getLookups() {
+        return lookups.get();
+    }
+
+    private CompletableFuture<Map<String, String>> lookup(String secretName) {
+        Instant now = clock.instant();
+        CachedSecret newSecret = new CachedSecret(now.plus(ttl));
+        CachedSecret secret = secrets.compute(secretName,
+                (name, cachedSecret) -> Objects.nonNull(cachedSecret) && cachedSecret.expiry.isAfter(now) ? cachedSecret : newSecret);
+        if(secret == newSecret) {
+            lookups.incrementAndGet();
+            try {
+                newSecret.value.complete(secretProvider.getSecret(secretName));
+            } catch (Exception e) {
+                logger.warn("Failed to look up secret {}, its env are kept as secrets: {}", secretName, e.toString());
+                newSecret.value.complete(Collections.emptyMap());
+            }
+        }
+        return secret.value;
+    }
+
+    private static Map<String, String> getSecret(String secretName, CompletableFuture<Map<String, String>> lookup) {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while looking up secret " + secretName, e);
+        } catch (ExecutionException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static class CachedSecret {
+        private final Instant expiry;
+        private final CompletableFuture<Map<String, String>> value = new CompletableFuture<>();
+
+        private CachedSecret(Instant expiry) {
+            this.expiry = expiry;
+        }
+    }
+}
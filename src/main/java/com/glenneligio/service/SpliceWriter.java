@@ -0,0 +1,98 @@
+package com.glenneligio.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes a copy of a source file where only some of its lines are replaced.
+ * Byte ranges of the source file that are unchanged are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * without being decoded and encoded again, so only the replaced lines are written.
+ * A replaced line keeps the line terminator of the source line, so CRLF files stay CRLF.
+ */
+class SpliceWriter {
+
+    private final FileChannel source;
+    private final FileChannel target;
+    private final Charset charset;
+    // offset in the source file up to which the content was copied or replaced
+    private long sourcePosition;
+    private boolean endsWithLineTerminator = true;
+
+    SpliceWriter(FileChannel source, FileChannel target, Charset charset) {
+        this.source = source;
+        this.target = target;
+        this.charset = charset;
+    }
+
+    /**
+     * Replaces the content of the line, keeping its line terminator.
+     */
+    void replace(LineScanner.Line line, String content) throws IOException {
+        replace(line, line, content);
+    }
+
+    /**
+     * Replaces the content of the lines from the first line to the last line, keeping the line terminator of the last line.
+     */
+    void replace(LineScanner.Line firstLine, LineScanner.Line lastLine, String content) throws IOException {
+        copyUpTo(firstLine.getStart());
+        write(content);
+        sourcePosition = lastLine.getContentEnd();
+    }
+
+    /**
+     * Removes the line including its line terminator.
+     */
+    void remove(LineScanner.Line line) throws IOException {
+        copyUpTo(line.getStart());
+        sourcePosition = line.getEnd();
+    }
+
+    /**
+     * Copies the rest of the source file, then adds a line after it.
+     */
+    void appendLine(String content, String lineSeparator) throws IOException {
+        finish(lineSeparator);
+        write(content);
+        write(lineSeparator);
+    }
+
+    /**
+     * Copies the rest of the source file, and terminates the last line if it have no line terminator.
+     */
+    void finish(String lineSeparator) throws IOException {
+        copyUpTo(source.size());
+        if(!endsWithLineTerminator) {
+            write(lineSeparator);
+        }
+    }
+
+    private void copyUpTo(long position) throws IOException {
+        if(sourcePosition >= position) {
+            return;
+        }
+        while(sourcePosition < position) {
+            long transferred = source.transferTo(sourcePosition, position - sourcePosition, target);
+            if(transferred <= 0) {
+                throw new IOException("Source file ended before offset " + position);
+            }
+            sourcePosition += transferred;
+        }
+        ByteBuffer lastByte = ByteBuffer.allocate(1);
+        source.read(lastByte, position - 1);
+        endsWithLineTerminator = lastByte.get(0) == '\n';
+    }
+
+    private void write(String content) throws IOException {
+        if(content.isEmpty()) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(content.getBytes(charset));
+        while(bytes.hasRemaining()) {
+            target.write(bytes);
+        }
+        endsWithLineTerminator = content.endsWith("\n");
+    }
+}
@@ -0,0 +1,196 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Injects the files listed in a mapping file, then injects them again each time they or their yaml files change.
+ * The yaml files are kept indexed in memory between changes, and only the jobs using a changed file are run again:
+ * a changed template is injected using the yaml index already in memory, while a changed yaml file is read again
+ * and all the templates using it are injected. A change of the mapping file reads it again and runs all the jobs.
+ * Bursts of changes, such as an editor saving several files, are grouped together until no change is seen
+ * for the debounce time.
+ */
+public class TemplateWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateWatcher.class);
+
+    private final WarmYamlService yamlService;
+    private final BatchService batchService;
+    private final Duration debounce;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private Path mappingFile;
+    private List<InjectionJob> jobs = new ArrayList<>();
+
+    /**
+     * @param debounce time with no change to wait for before the changed files are injected
+     */
+    public TemplateWatcher(YamlService yamlService, InjectionService injectionService, int parallelism, Duration debounce) throws IOException {
+        this(yamlService, injectionService, parallelism, debounce, null);
+    }
+
+    /**
+     * @param secretResolver resolver of the secret values, or null to keep the env referencing a secret as secrets
+     */
+    public TemplateWatcher(YamlService yamlService, InjectionService injectionService, int parallelism, Duration debounce, SecretResolver secretResolver) throws IOException {
+        this(yamlService, injectionService, parallelism, debounce, null, secretResolver);
+    }
+
+    /**
+     * @param manifestStore store of the inputs of the -injected files, so the files that did not change since the
+     *                      last run are not injected again when the watch starts, or null to always inject them
+     * @param secretResolver resolver of the secret values, or null to keep the env referencing a secret as secrets
+     */
+    public TemplateWatcher(YamlService yamlService, InjectionService injectionService, int parallelism, Duration debounce,
+                           InjectionManifestStore manifestStore, SecretResolver secretResolver) throws IOException {
+        this.yamlService = new WarmYamlService(yamlService);
+        this.batchService = new BatchServiceImpl(new InjectionEngine(this.yamlService, injectionService, parallelism, manifestStore, secretResolver));
+        this.debounce = debounce;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Injects all the files of the mapping file, then waits for changes until the watcher is closed
+     * or the thread is interrupted.
+     */
+    public void watch(String mappingFileLocation) throws IOException {
+        batchService.printReport(start(mappingFileLocation));
+        logger.info("Watching {} files for changes", getWatchedFiles().size());
+        try {
+            while(true) {
+                Set<Path> changedFiles = awaitChanges();
+                try {
+                    List<InjectionResult> results = onChange(changedFiles);
+                    if(!results.isEmpty()) {
+                        batchService.printReport(results);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // e.g. a mapping file saved half edited, the next change is tried again
+                    logger.error("Failed to inject the changed files: {}", e.toString());
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.info("Watcher closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Watcher interrupted");
+        }
+    }
+
+    /**
+     * Reads the mapping file, registers the files to watch and runs all the jobs.
+     */
+    List<InjectionResult> start(String mappingFileLocation) throws IOException {
+        mappingFile = toKey(mappingFileLocation);
+        return reloadMappingFile();
+    }
+
+    /**
+     * Runs the jobs using any of the changed files. Changed files that are not watched are ignored.
+     * @return results of the jobs run, in the order of the mapping file
+     */
+    List<InjectionResult> onChange(Collection<Path> changedFiles) throws IOException {
+        Set<Path> changed = new HashSet<>();
+        for(Path changedFile : changedFiles) {
+            changed.add(changedFile.toAbsolutePath().normalize());
+        }
+        if(changed.contains(mappingFile)) {
+            logger.info("Mapping file {} changed", mappingFile);
+            yamlService.invalidateAll();
+            return reloadMappingFile();
+        }
+
+        List<InjectionJob> affectedJobs = new ArrayList<>();
+        for(InjectionJob job : jobs) {
+            boolean yamlChanged = changed.contains(toKey(job.getYamlFileLocation()));
+            if(yamlChanged) {
+                yamlService.invalidate(job.getYamlFileLocation());
+            }
+            if(yamlChanged || changed.contains(toKey(job.getTemplateFileLocation()))) {
+                affectedJobs.add(job);
+            }
+        }
+        if(affectedJobs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        logger.info("Injecting {} of {} files again", affectedJobs.size(), jobs.size());
+        return batchService.runJobs(affectedJobs);
+    }
+
+    /**
+     * Files watched for changes: the mapping file and the template and yaml files of its jobs.
+     */
+    Set<Path> getWatchedFiles() {
+        Set<Path> watchedFiles = new LinkedHashSet<>();
+        watchedFiles.add(mappingFile);
+        for(InjectionJob job : jobs) {
+            watchedFiles.add(toKey(job.getTemplateFileLocation()));
+            watchedFiles.add(toKey(job.getYamlFileLocation()));
+        }
+        return watchedFiles;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private List<InjectionResult> reloadMappingFile() throws IOException {
+        jobs = batchService.readMappingFile(mappingFile.toString());
+        // directories are watched rather than files, so files replaced by editors on save are still seen
+        for(Path watchedFile : getWatchedFiles()) {
+            Path directory = watchedFile.getParent();
+            if(Objects.nonNull(directory) && Files.isDirectory(directory) && !watchedDirectories.containsValue(directory)) {
+                WatchKey watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(watchKey, directory);
+            }
+        }
+        return batchService.runJobs(jobs);
+    }
+
+    /**
+     * Waits for the first change, then keeps collecting changes until none is seen for the debounce time.
+     * Changes of files that are not watched, such as the -injected files, are dropped.
+     */
+    private Set<Path> awaitChanges() throws InterruptedException {
+        Set<Path> watchedFiles = getWatchedFiles();
+        Set<Path> changedFiles = new LinkedHashSet<>();
+        while(changedFiles.isEmpty()) {
+            WatchKey watchKey = watchService.take();
+            do {
+                collectChanges(watchKey, watchedFiles, changedFiles);
+            } while(Objects.nonNull(watchKey = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)));
+        }
+        return changedFiles;
+    }
+
+    private void collectChanges(WatchKey watchKey, Set<Path> watchedFiles, Set<Path> changedFiles) {
+        Path directory = watchedDirectories.get(watchKey);
+        for(WatchEvent<?> event : watchKey.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, so any of the files could have changed
+                changedFiles.addAll(watchedFiles);
+            } else if(Objects.nonNull(directory)) {
+                Path changedFile = directory.resolve((Path) event.context());
+                if(watchedFiles.contains(changedFile)) {
+                    changedFiles.add(changedFile);
+                }
+            }
+        }
+        watchKey.reset();
+    }
+
+    private static Path toKey(String fileLocation) {
+        return Paths.get(fileLocation).toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,49 @@
+package com.glenneligio.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.glenneligio.model.ManifestIndex;
+import com.glenneligio.model.YamlFileEnvEntry;
+
+import java.io.FileNotFoundException;
+import java.nio.file.AccessDeniedException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the index of the yaml files read in memory until they are invalidated,
+ * so a yaml file looked up again, such as to list its containers before injecting them, is not read again.
+ */
+public class WarmYamlService implements YamlService {
+
+    private final YamlService yamlService;
+    private final Map<String, ManifestIndex> manifestIndexes = new ConcurrentHashMap<>();
+
+    public WarmYamlService(YamlService yamlService) {
+        this.yamlService = yamlService;
+    }
+
+    @Override
+    public List<YamlFileEnvEntry> getYamlFileEnvEntries(String yamlFileLocation, String containerImageName) throws FileNotFoundException, JsonProcessingException, AccessDeniedException {
+        return yamlService.getYamlFileEnvEntries(yamlFileLocation, containerImageName);
+    }
+
+    @Override
+    public ManifestIndex getManifestIndex(String yamlFileLocation) throws FileNotFoundException, AccessDeniedException {
+        ManifestIndex manifestIndex = manifestIndexes.get(yamlFileLocation);
+        if(Objects.isNull(manifestIndex)) {
+            manifestIndex = yamlService.getManifestIndex(yamlFileLocation);
+            manifestIndexes.put(yamlFileLocation, manifestIndex);
+        }
+        return manifestIndex;
+    }
+
+    void invalidate(String yamlFileLocation) {
+        manifestIndexes.remove(yamlFileLocation);
+    }
+
+    void invalidateAll() {
+        manifestIndexes.clear();
+    }
+}
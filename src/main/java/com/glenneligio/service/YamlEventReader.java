@@ -0,0 +1,138 @@
+package com.glenneligio.service;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+import java.io.Reader;
+
+/**
+ * Thin cursor over the SnakeYAML event stream.
+ * Walks the yaml file without building the document tree, so subtrees that are not needed
+ * are skipped event by event and never materialized.
+ */
+class YamlEventReader {
+
+    private final Parser parser;
+    private int documentStart;
+
+    YamlEventReader(Reader reader) {
+        LoaderOptions loaderOptions = new LoaderOptions();
+        // rendered manifests can go beyond the default 3MB limit
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+        this.parser = new ParserImpl(new StreamReader(reader), loaderOptions);
+    }
+
+    /**
+     * Moves the cursor to the start of the next document.
+     * @return false if the end of the stream is reached
+     */
+    boolean nextDocument() {
+        while(!parser.checkEvent(Event.ID.StreamEnd)) {
+            Event event = parser.getEvent();
+            if(event.is(Event.ID.DocumentStart)) {
+                documentStart = event.getStartMark().getIndex();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return index of the start of the current document in the stream, counted in code points
+     */
+    int getDocumentStart() {
+        return documentStart;
+    }
+
+    /**
+     * @return index of the cursor in the stream, counted in code points, which is the start of the next event
+     */
+    int getIndex() {
+        return parser.peekEvent().getStartMark().getIndex();
+    }
+
+    /**
+     * Consumes the start of a mapping node. Any other node is skipped.
+     * @return true if the cursor is now inside a mapping
+     */
+    boolean enterMapping() {
+        if(parser.checkEvent(Event.ID.MappingStart)) {
+            parser.getEvent();
+            return true;
+        }
+        skipNode();
+        return false;
+    }
+
+    /**
+     * Consumes the start of a sequence node. Any other node is skipped.
+     * @return true if the cursor is now inside a sequence
+     */
+    boolean enterSequence() {
+        if(parser.checkEvent(Event.ID.SequenceStart)) {
+            parser.getEvent();
+            return true;
+        }
+        skipNode();
+        return false;
+    }
+
+    /**
+     * Reads the next key of the current mapping, leaving the cursor on its value.
+     * Non-scalar keys are skipped and returned as empty string.
+     * @return the key, or null if the end of the mapping is reached
+     */
+    String nextKey() {
+        if(parser.checkEvent(Event.ID.MappingEnd)) {
+            parser.getEvent();
+            return null;
+        }
+        if(parser.checkEvent(Event.ID.Scalar)) {
+            return ((ScalarEvent) parser.getEvent()).getValue();
+        }
+        skipNode();
+        return "";
+    }
+
+    /**
+     * Checks if the current sequence still has an item, consuming the end of the sequence if not.
+     */
+    boolean nextItem() {
+        if(parser.checkEvent(Event.ID.SequenceEnd)) {
+            parser.getEvent();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the current node as a scalar.
+     * @return the scalar value, or null if the node is a mapping, sequence or alias (which are skipped)
+     */
+    String readScalar() {
+        if(parser.checkEvent(Event.ID.Scalar)) {
+            return ((ScalarEvent) parser.getEvent()).getValue();
+        }
+        skipNode();
+        return null;
+    }
+
+    /**
+     * Skips the current node including all of its children.
+     */
+    void skipNode() {
+        int depth = 0;
+        do {
+            Event event = parser.getEvent();
+            if(event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+                depth++;
+            } else if(event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        } while(depth > 0);
+    }
+}
@@ -1,6 +1,7 @@
 package com.glenneligio.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.glenneligio.model.ManifestIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 
 import java.io.FileNotFoundException;
@@ -9,4 +10,5 @@ import java.util.List;
 
 public interface YamlService {
     List<YamlFileEnvEntry> getYamlFileEnvEntries(String yamlFileLocation, String containerImageName) throws FileNotFoundException, JsonProcessingException, AccessDeniedException;
+    ManifestIndex getManifestIndex(String yamlFileLocation) throws FileNotFoundException, AccessDeniedException;
 }
@@ -1,29 +1,127 @@
 package com.glenneligio.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.glenneligio.model.ConfigMapReference;
+import com.glenneligio.model.ManifestIndex;
+import com.glenneligio.model.SecretReference;
+import com.glenneligio.model.YamlContainer;
 import com.glenneligio.model.YamlFileEnvEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.yaml.snakeyaml.Yaml;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
 
 public class YamlServiceImpl implements YamlService {
 
     private static final Logger logger = LoggerFactory.getLogger(YamlServiceImpl.class);
+    private static final Set<String> WORKLOAD_KINDS = new HashSet<>(Arrays.asList(
+            "Deployment", "StatefulSet", "DaemonSet", "ReplicaSet", "Job", "CronJob", "Pod"));
+    private static final String CONFIG_MAP_KIND = "ConfigMap";
+
+    private final ManifestCache manifestCache;
+
+    public YamlServiceImpl() {
+        this(null);
+    }
+
+    /**
+     * @param manifestCache cache of the manifest index of yaml files, or null to always read the yaml file
+     */
+    public YamlServiceImpl(ManifestCache manifestCache) {
+        this.manifestCache = manifestCache;
+    }
 
     @Override
     public List<YamlFileEnvEntry> getYamlFileEnvEntries(String yamlFileLocation, String containerImageName) throws FileNotFoundException, JsonProcessingException, AccessDeniedException {
+        File file = checkYamlFile(yamlFileLocation);
+        ManifestParsedEvent event = new ManifestParsedEvent();
+        event.begin();
+        if(Objects.nonNull(manifestCache)) {
+            // the whole file is indexed, so the cache can be used for any image later on
+            ManifestIndex manifestIndex = indexYamlFile(file, yamlFileLocation, event);
+            List<YamlFileEnvEntry> yamlFileEnvEntries = manifestIndex.getYamlFileEnvEntries(containerImageName);
+            commitManifestParsed(event, file, containerImageName, manifestIndex.getContainers().size(), yamlFileEnvEntries.size());
+            return yamlFileEnvEntries;
+        }
+
+        ContainerScan scan = new ContainerScan(containerImageName);
+        scanYamlFile(file, scan, null);
+
+        if(Objects.nonNull(scan.match)) {
+            readSkippedConfigMaps(file, scan, List.of(scan.match));
+            List<YamlFileEnvEntry> yamlFileEnvEntries = ManifestIndex.resolveEnv(scan.match, scan.configMaps);
+            event.configMapsRead = scan.configMapsRead;
+            commitManifestParsed(event, file, containerImageName, scan.containers.size() + 1, yamlFileEnvEntries.size());
+            return yamlFileEnvEntries;
+        }
+        if(!scan.containersPresent) {
+            throw new RuntimeException("Container array field is missing.");
+        }
+        throw new RuntimeException("Container with image name " + containerImageName + " does not exist.");
+    }
+
+    @Override
+    public ManifestIndex getManifestIndex(String yamlFileLocation) throws FileNotFoundException, AccessDeniedException {
+        File file = checkYamlFile(yamlFileLocation);
+        ManifestParsedEvent event = new ManifestParsedEvent();
+        event.begin();
+        ManifestIndex manifestIndex = indexYamlFile(file, yamlFileLocation, event);
+        commitManifestParsed(event, file, null, manifestIndex.getContainers().size(), 0);
+        return manifestIndex;
+    }
+
+    /**
+     * @param containers number of containers read, which is up to the matching container when the cache is not used
+     */
+    private static void commitManifestParsed(ManifestParsedEvent event, File file, String containerImageName, int containers, int env) {
+        if(event.shouldCommit()) {
+            event.path = file.getPath();
+            event.image = containerImageName;
+            event.size = file.length();
+            event.containers = containers;
+            event.env = env;
+            event.commit();
+        }
+    }
+
+    private ManifestIndex indexYamlFile(File file, String yamlFileLocation, ManifestParsedEvent event) throws FileNotFoundException {
+        if(Objects.isNull(manifestCache)) {
+            return indexYamlFile(file, yamlFileLocation, null, event);
+        }
+
+        ManifestIndex cachedManifestIndex = manifestCache.get(file);
+        if(Objects.nonNull(cachedManifestIndex)) {
+            event.fromCache = true;
+            return cachedManifestIndex;
+        }
+        try {
+            ManifestCache.FileStamp stamp = ManifestCache.FileStamp.of(file);
+            MessageDigest contentDigest = ManifestCache.newContentDigest();
+            ManifestIndex manifestIndex = indexYamlFile(file, yamlFileLocation, contentDigest, event);
+            manifestCache.put(file, stamp, contentDigest.digest(), manifestIndex);
+            return manifestIndex;
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ManifestIndex indexYamlFile(File file, String yamlFileLocation, MessageDigest contentDigest, ManifestParsedEvent event) throws FileNotFoundException {
+        ContainerScan scan = new ContainerScan(null);
+        scanYamlFile(file, scan, contentDigest);
+        readSkippedConfigMaps(file, scan, scan.containers);
+        event.configMapsRead = scan.configMapsRead;
+        logger.info("Indexed {} containers from yaml file {}", scan.containers.size(), yamlFileLocation);
+        return new ManifestIndex(yamlFileLocation, scan.containersPresent, scan.containers, scan.configMaps);
+    }
+
+    private File checkYamlFile(String yamlFileLocation) throws FileNotFoundException, AccessDeniedException {
         logger.info("Checking the yaml file: {}", yamlFileLocation);
         File file = new File(yamlFileLocation);
         if(!file.exists()) {
@@ -40,68 +138,564 @@ public class YamlServiceImpl implements YamlService {
             logger.info("Current user does not have read permission on the yaml file");
             throw new AccessDeniedException(yamlFileLocation);
         }
+        return file;
+    }
 
-        logger.info("Reading yaml file {}", yamlFileLocation);
-        List<YamlFileEnvEntry> result = new ArrayList<>();
-        String containersPath = "spec.template.spec.containers";
-        Yaml yaml = new Yaml();
-        ObjectMapper objectMapper = new ObjectMapper();
-        InputStream inputStream = new FileInputStream(yamlFileLocation);
-        Map<String, Object> deploymentYaml = yaml.load(inputStream);
-        String deploymentJson = objectMapper.writeValueAsString(deploymentYaml);
-        JsonNode objectNode = objectMapper.readTree(deploymentJson);
-        JsonNode containerArrayNode = getNestedField(containersPath, objectNode);
-
-        if(!Objects.nonNull(containerArrayNode) || !containerArrayNode.isArray()) {
-            throw new RuntimeException("Container array field is missing.");
+    /**
+     * Reads the documents of the yaml file one at a time.
+     * When the scan have a target image, reading stops as soon as the matching container is consumed
+     * and the ConfigMaps it references are found.
+     * @param contentDigest digest updated with the content read, or null
+     */
+    private void scanYamlFile(File file, ContainerScan scan, MessageDigest contentDigest) throws FileNotFoundException {
+        logger.info("Reading yaml file {}", file.getPath());
+        InputStream inputStream = new FileInputStream(file);
+        if(Objects.nonNull(contentDigest)) {
+            inputStream = new DigestInputStream(inputStream, contentDigest);
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            YamlEventReader eventReader = new YamlEventReader(reader);
+            int documentNumber = 0;
+            while(eventReader.nextDocument()) {
+                documentNumber++;
+                boolean matched = Objects.nonNull(scan.match);
+                scanDocument(eventReader, scan);
+                if(!matched && Objects.nonNull(scan.match)) {
+                    logger.info("Container with image name {} found in document {}", scan.targetImage, documentNumber);
+                }
+                if(Objects.nonNull(scan.match) && scan.configMapNames.containsAll(ManifestIndex.getConfigMapNames(scan.match))) {
+                    return;
+                }
+            }
+            // containers are matched before init containers, so an init container is only used once all the file is read
+            if(Objects.isNull(scan.match)) {
+                scan.match = scan.initMatch;
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Scans a single document for containers, or for its data if it is a ConfigMap.
+     * Documents with no kind are treated as workloads, while documents of other kinds are skipped.
+     * The data of a ConfigMap is only read for the keys referenced by the containers found so far, otherwise the
+     * position of its document is kept so it can be read once all the containers are known.
+     */
+    private void scanDocument(YamlEventReader eventReader, ContainerScan scan) {
+        int documentStart = eventReader.getDocumentStart();
+        if(!eventReader.enterMapping()) {
+            return;
         }
 
-        JsonNode envArrayNode = null;
-        boolean containerImagePresent = false;
+        ContainerScan documentScan = new ContainerScan(scan.targetImage);
+        String kind = null;
+        String name = null;
+        Map<String, String> data = null;
+        Set<String> dataKeys = null;
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            if(key.equals("kind")) {
+                kind = eventReader.readScalar();
+                if(!WORKLOAD_KINDS.contains(kind) && !CONFIG_MAP_KIND.equals(kind)) {
+                    logger.debug("Skipping document of kind {}", kind);
+                    return;
+                }
+            } else if(key.equals("metadata")) {
+                name = readMetadataName(eventReader);
+            } else if(key.equals("data") && (Objects.isNull(kind) || CONFIG_MAP_KIND.equals(kind)) && scan.referencedKeys.contains(name)) {
+                dataKeys = scan.referencedKeys.getKeys(name);
+                data = readData(eventReader, dataKeys);
+            } else if(key.equals("spec") && !CONFIG_MAP_KIND.equals(kind) && Objects.isNull(scan.match)) {
+                scanWorkloadSpec(eventReader, documentScan);
+                if(Objects.nonNull(documentScan.match)) {
+                    break;
+                }
+            } else {
+                eventReader.skipNode();
+            }
+        }
+
+        if(CONFIG_MAP_KIND.equals(kind)) {
+            if(Objects.nonNull(name)) {
+                scan.addConfigMap(name, data, dataKeys, documentStart, eventReader.getIndex());
+            }
+            return;
+        }
+        scan.add(documentScan);
+    }
+
+    private String readMetadataName(YamlEventReader eventReader) {
+        if(!eventReader.enterMapping()) {
+            return null;
+        }
+        String name = null;
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            if(key.equals("name")) {
+                name = eventReader.readScalar();
+            } else {
+                eventReader.skipNode();
+            }
+        }
+        return name;
+    }
+
+    private Map<String, String> readData(YamlEventReader eventReader) {
+        return readData(eventReader, null);
+    }
+
+    /**
+     * Reads the data of a ConfigMap. Values that are not scalars are skipped.
+     * @param keys keys to read, or null to read all of them
+     */
+    private Map<String, String> readData(YamlEventReader eventReader, Set<String> keys) {
+        Map<String, String> data = new LinkedHashMap<>();
+        if(!eventReader.enterMapping()) {
+            return data;
+        }
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            if(Objects.nonNull(keys) && !keys.contains(key)) {
+                eventReader.skipNode();
+                continue;
+            }
+            String value = eventReader.readScalar();
+            if(Objects.nonNull(value)) {
+                data.put(key, value);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Reads the data of the ConfigMaps referenced by the containers that was not read during the scan, because the
+     * ConfigMap came before the containers referencing it. Only the documents of these ConfigMaps are parsed, in a
+     * second read of the yaml file that stops after the last of them, so the data no container references is never read.
+     */
+    private void readSkippedConfigMaps(File file, ContainerScan scan, Collection<YamlContainer> containers) throws FileNotFoundException {
+        ConfigMapKeys referencedKeys = new ConfigMapKeys();
+        containers.forEach(referencedKeys::add);
+        List<String> names = new ArrayList<>();
+        scan.configMapDocuments.forEach((name, document) -> {
+            if(referencedKeys.contains(name) && !scan.isRead(name, referencedKeys.getKeys(name))) {
+                names.add(name);
+            }
+        });
+        if(names.isEmpty()) {
+            return;
+        }
 
-        for(JsonNode elementNode : containerArrayNode) {
-            String imageName = elementNode.get("image").asText();
-            if(imageName.equals(containerImageName)) {
-                containerImagePresent = true;
-                envArrayNode = elementNode.get("env");
+        names.sort(Comparator.comparingInt(name -> scan.configMapDocuments.get(name)[0]));
+        logger.debug("Reading ConfigMaps {} referenced by containers found after them", names);
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            int index = 0;
+            for(String name : names) {
+                int[] document = scan.configMapDocuments.get(name);
+                readCodePoints(reader, document[0] - index, null);
+                StringBuilder text = new StringBuilder();
+                readCodePoints(reader, document[1] - document[0], text);
+                index = document[1];
+                scan.configMaps.put(name, readConfigMapData(new StringReader(text.toString()), referencedKeys.getKeys(name)));
+                scan.configMapsRead++;
             }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
 
-        if(!containerImagePresent) {
-            throw new RuntimeException("Container with image name " + containerImageName + " does not exist.");
+        // the ConfigMaps are kept in order of the yaml file
+        Map<String, Map<String, String>> configMaps = new LinkedHashMap<>();
+        for(String name : scan.configMapNames) {
+            if(scan.configMaps.containsKey(name)) {
+                configMaps.put(name, scan.configMaps.get(name));
+            }
         }
+        scan.configMaps.clear();
+        scan.configMaps.putAll(configMaps);
+    }
 
-        if(Objects.nonNull(envArrayNode) && envArrayNode.isArray()) {
-            for(JsonNode envNode : envArrayNode) {
-                String envName = envNode.get("name").asText();
-                JsonNode value = envNode.get("value");
-                JsonNode valueFrom = envNode.get("valueFrom");
-                if(Objects.nonNull(value)) {
-                    YamlFileEnvEntry envEntry = new YamlFileEnvEntry(envName, value.asText(), false);
-                    result.add(envEntry);
+    /**
+     * Reads code points from the reader, the unit of the index of the yaml events.
+     * @param text where the characters read are appended, or null to skip them
+     */
+    private static void readCodePoints(Reader reader, int count, StringBuilder text) throws IOException {
+        int read = 0;
+        while(read < count) {
+            int c = reader.read();
+            if(c < 0) {
+                throw new IOException("Yaml file changed while being read");
+            }
+            if(Objects.nonNull(text)) {
+                text.append((char) c);
+            }
+            // a code point made of a surrogate pair is counted once its second char is read
+            if(!Character.isHighSurrogate((char) c)) {
+                read++;
+            }
+        }
+    }
+
+    /**
+     * @param keys keys to read, or null to read all of them
+     * @return data of the ConfigMap document, empty if it has none
+     */
+    private Map<String, String> readConfigMapData(Reader document, Set<String> keys) {
+        YamlEventReader eventReader = new YamlEventReader(document);
+        if(!eventReader.nextDocument() || !eventReader.enterMapping()) {
+            return new LinkedHashMap<>();
+        }
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            if(key.equals("data")) {
+                return readData(eventReader, keys);
+            }
+            eventReader.skipNode();
+        }
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Scans the spec of a workload for containers, skipping all other entries along the way.
+     * The containers are found in the pod spec, which is the spec itself for a Pod, 'template.spec' for a Deployment,
+     * StatefulSet, DaemonSet, ReplicaSet or Job, and 'jobTemplate.spec.template.spec' for a CronJob.
+     * Returns as soon as the matching container is found, leaving the rest of the document unread.
+     */
+    private void scanWorkloadSpec(YamlEventReader eventReader, ContainerScan scan) {
+        if(!eventReader.enterMapping()) {
+            return;
+        }
+
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            switch (key) {
+                case "containers":
+                    scanContainers(eventReader, scan, false);
+                    break;
+                case "initContainers":
+                    scanContainers(eventReader, scan, true);
+                    break;
+                case "template":
+                case "jobTemplate":
+                    scanTemplate(eventReader, scan);
+                    break;
+                default:
+                    eventReader.skipNode();
+            }
+            if(Objects.nonNull(scan.match)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scans the spec of a pod template or job template.
+     */
+    private void scanTemplate(YamlEventReader eventReader, ContainerScan scan) {
+        if(!eventReader.enterMapping()) {
+            return;
+        }
+
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            if(key.equals("spec")) {
+                scanWorkloadSpec(eventReader, scan);
+                if(Objects.nonNull(scan.match)) {
+                    return;
                 }
-                if(Objects.nonNull(valueFrom)) {
-                    YamlFileEnvEntry envEntry = new YamlFileEnvEntry(envName, null, true);
-                    result.add(envEntry);
+            } else {
+                eventReader.skipNode();
+            }
+        }
+    }
+
+    private void scanContainers(YamlEventReader eventReader, ContainerScan scan, boolean initContainers) {
+        if(!eventReader.enterSequence()) {
+            return;
+        }
+        scan.containersPresent = true;
+        while(eventReader.nextItem()) {
+            YamlContainer container = readContainer(eventReader, initContainers);
+            if(Objects.isNull(container)) {
+                continue;
+            }
+            if(Objects.nonNull(scan.targetImage) && ManifestIndex.matches(container, scan.targetImage)) {
+                if(!initContainers) {
+                    scan.match = container;
+                    return;
+                }
+                if(Objects.isNull(scan.initMatch)) {
+                    scan.initMatch = container;
                 }
             }
+            scan.containers.add(container);
+        }
+    }
+
+    /**
+     * Reads a single item of the containers or initContainers array. Only the name, image, env and envFrom fields are kept.
+     * @return the container read, or null if the item is not a mapping
+     */
+    private YamlContainer readContainer(YamlEventReader eventReader, boolean initContainer) {
+        if(!eventReader.enterMapping()) {
+            return null;
+        }
+        String name = null;
+        String image = null;
+        List<YamlFileEnvEntry> env = null;
+        List<ConfigMapReference> envFrom = null;
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            switch (key) {
+                case "name":
+                    name = eventReader.readScalar();
+                    break;
+                case "image":
+                    image = eventReader.readScalar();
+                    break;
+                case "env":
+                    env = readEnv(eventReader);
+                    break;
+                case "envFrom":
+                    envFrom = readEnvFrom(eventReader);
+                    break;
+                default:
+                    eventReader.skipNode();
+            }
+        }
+        YamlContainer container = new YamlContainer(name, image, Objects.nonNull(env) ? env : new ArrayList<>(), initContainer);
+        if(Objects.nonNull(envFrom)) {
+            container.setEnvFrom(envFrom);
+        }
+        return container;
+    }
+
+    private List<YamlFileEnvEntry> readEnv(YamlEventReader eventReader) {
+        List<YamlFileEnvEntry> result = new ArrayList<>();
+        if(!eventReader.enterSequence()) {
+            return result;
         }
 
-        logger.debug("Map object representation of yaml file {}", deploymentYaml);
+        while(eventReader.nextItem()) {
+            if(!eventReader.enterMapping()) {
+                continue;
+            }
+            String envName = null;
+            String value = null;
+            ValueFrom valueFrom = null;
+            String key;
+            while(Objects.nonNull(key = eventReader.nextKey())) {
+                switch (key) {
+                    case "name":
+                        envName = eventReader.readScalar();
+                        break;
+                    case "value":
+                        value = eventReader.readScalar();
+                        break;
+                    case "valueFrom":
+                        valueFrom = readValueFrom(eventReader);
+                        break;
+                    default:
+                        eventReader.skipNode();
+                }
+            }
+
+            if(Objects.isNull(envName)) {
+                logger.debug("Env entry with no name, skipped");
+                continue;
+            }
+            if(Objects.nonNull(value)) {
+                result.add(new YamlFileEnvEntry(envName, value, false));
+            }
+            if(Objects.nonNull(valueFrom)) {
+                // other sources, such as fieldRef, have no value in the yaml file and are treated as secrets
+                if(Objects.nonNull(valueFrom.configMapKeyRef)) {
+                    result.add(new YamlFileEnvEntry(envName, valueFrom.configMapKeyRef));
+                } else if(Objects.nonNull(valueFrom.secretKeyRef)) {
+                    result.add(new YamlFileEnvEntry(envName, valueFrom.secretKeyRef));
+                } else {
+                    result.add(new YamlFileEnvEntry(envName, null, true));
+                }
+            }
+        }
         return result;
     }
 
-    private JsonNode getNestedField(String nestedFieldKey, JsonNode jsonNode) {
-        String[] fieldTree = nestedFieldKey.trim().split("\\.");
-        JsonNode currentNode = jsonNode;
+    /**
+     * Reads the valueFrom field of an env entry, keeping the ConfigMap or secret key referenced if any.
+     */
+    private ValueFrom readValueFrom(YamlEventReader eventReader) {
+        ValueFrom valueFrom = new ValueFrom();
+        if(!eventReader.enterMapping()) {
+            return valueFrom;
+        }
+        String key;
+        while(Objects.nonNull(key = eventReader.nextKey())) {
+            if(key.equals("configMapKeyRef") || key.equals("secretKeyRef")) {
+                Map<String, String> fields = readData(eventReader);
+                if(Objects.isNull(fields.get("name")) || Objects.isNull(fields.get("key"))) {
+                    continue;
+                }
+                if(key.equals("configMapKeyRef")) {
+                    valueFrom.configMapKeyRef = ConfigMapReference.keyRef(fields.get("name"), fields.get("key"));
+                } else {
+                    valueFrom.secretKeyRef = new SecretReference(fields.get("name"), fields.get("key"));
+                }
+            } else {
+                eventReader.skipNode();
+            }
+        }
+        return valueFrom;
+    }
 
-        for(String field : fieldTree) {
-            if(Objects.isNull(currentNode)) {
-                break;
+    /**
+     * Reads the envFrom field of a container. Only the configMapRef sources are kept,
+     * since the keys of a secretRef are not in the yaml file.
+     */
+    private List<ConfigMapReference> readEnvFrom(YamlEventReader eventReader) {
+        List<ConfigMapReference> result = new ArrayList<>();
+        if(!eventReader.enterSequence()) {
+            return result;
+        }
+
+        while(eventReader.nextItem()) {
+            if(!eventReader.enterMapping()) {
+                continue;
+            }
+            String prefix = null;
+            String configMapName = null;
+            String key;
+            while(Objects.nonNull(key = eventReader.nextKey())) {
+                switch (key) {
+                    case "prefix":
+                        prefix = eventReader.readScalar();
+                        break;
+                    case "configMapRef":
+                        configMapName = readData(eventReader).get("name");
+                        break;
+                    default:
+                        eventReader.skipNode();
+                }
+            }
+            if(Objects.nonNull(configMapName)) {
+                result.add(ConfigMapReference.envFrom(configMapName, prefix));
+            }
+        }
+        return result;
+    }
+
+    private static class ValueFrom {
+        private ConfigMapReference configMapKeyRef;
+        private SecretReference secretKeyRef;
+    }
+
+    /**
+     * State of a scan over the yaml file. With a target image or name, the scan stops at the first matching container
+     * once the ConfigMaps it references are found, while the first matching init container is kept in case no container matches.
+     * Without one, all the containers and init containers of the workloads are collected.
+     */
+    private static class ContainerScan {
+        private final String targetImage;
+        private final List<YamlContainer> containers = new ArrayList<>();
+        private final Map<String, Map<String, String>> configMaps = new LinkedHashMap<>();
+        // names of the ConfigMaps found in order of the yaml file, the first ConfigMap of a name is the one used
+        private final Set<String> configMapNames = new LinkedHashSet<>();
+        // keys read of the ConfigMaps whose data was only partly read
+        private final Map<String, Set<String>> configMapKeysRead = new HashMap<>();
+        // start and end index of the document of the ConfigMaps whose data was skipped or only partly read
+        private final Map<String, int[]> configMapDocuments = new HashMap<>();
+        // keys referenced by the containers found so far, which is the matching container only with a target image
+        private final ConfigMapKeys referencedKeys = new ConfigMapKeys();
+        private int configMapsRead;
+        private boolean containersPresent;
+        private YamlContainer match;
+        private YamlContainer initMatch;
+
+        private ContainerScan(String targetImage) {
+            this.targetImage = targetImage;
+        }
+
+        /**
+         * @param data data read of the ConfigMap, or null if it was skipped
+         * @param keysRead keys of the data read, or null if all the keys were read
+         */
+        private void addConfigMap(String name, Map<String, String> data, Set<String> keysRead, int documentStart, int documentEnd) {
+            if(!configMapNames.add(name)) {
+                return;
+            }
+            if(Objects.nonNull(data)) {
+                configMaps.put(name, data);
+                configMapsRead++;
+                if(Objects.isNull(keysRead)) {
+                    return;
+                }
+                configMapKeysRead.put(name, new HashSet<>(keysRead));
             }
-            currentNode = currentNode.get(field);
+            configMapDocuments.put(name, new int[] {documentStart, documentEnd});
         }
 
-        return currentNode;
+        /**
+         * @param keys keys needed, or null if all the keys are needed
+         * @return true if the data of the ConfigMap was read for all the keys needed
+         */
+        private boolean isRead(String name, Set<String> keys) {
+            if(!configMaps.containsKey(name)) {
+                return false;
+            }
+            Set<String> keysRead = configMapKeysRead.get(name);
+            return Objects.isNull(keysRead) || (Objects.nonNull(keys) && keysRead.containsAll(keys));
+        }
+
+        private void add(ContainerScan documentScan) {
+            containersPresent = containersPresent || documentScan.containersPresent;
+            containers.addAll(documentScan.containers);
+            if(Objects.isNull(targetImage)) {
+                documentScan.containers.forEach(referencedKeys::add);
+            }
+            if(Objects.nonNull(documentScan.match)) {
+                match = documentScan.match;
+                referencedKeys.add(match);
+            }
+            if(Objects.isNull(initMatch)) {
+                initMatch = documentScan.initMatch;
+            }
+        }
+    }
+
+    /**
+     * Keys of the ConfigMaps referenced by containers, all of them for 'envFrom' or only the referenced ones otherwise.
+     */
+    private static class ConfigMapKeys {
+        private final Set<String> fullyReferenced = new HashSet<>();
+        private final Map<String, Set<String>> keys = new HashMap<>();
+
+        private void add(YamlContainer container) {
+            for(ConfigMapReference reference : container.getEnvFrom()) {
+                fullyReferenced.add(reference.getName());
+            }
+            for(YamlFileEnvEntry entry : container.getEnv()) {
+                ConfigMapReference reference = entry.getConfigMapKeyRef();
+                if(Objects.nonNull(reference)) {
+                    keys.computeIfAbsent(reference.getName(), name -> new HashSet<>()).add(reference.getKey());
+                }
+            }
+        }
+
+        /**
+         * @param name name of the ConfigMap, or null if not known yet
+         */
+        private boolean contains(String name) {
+            return Objects.nonNull(name) && (fullyReferenced.contains(name) || keys.containsKey(name));
+        }
+
+        /**
+         * @return the keys referenced of the ConfigMap, or null if all of them are
+         */
+        private Set<String> getKeys(String name) {
+            return fullyReferenced.contains(name) ? null : keys.get(name);
+        }
     }
 }
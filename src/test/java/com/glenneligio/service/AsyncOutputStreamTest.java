@@ -0,0 +1,117 @@
+package com.glenneligio.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class AsyncOutputStreamTest {
+
+    // close
+    // all the lines written from several threads reach the target in the order each thread wrote them
+    @Test
+    void givenLinesFromSeveralThreads_writesAllLinesInOrderOnClose() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(new AsyncOutputStream(target, 4), false, StandardCharsets.UTF_8);
+
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            int threadNumber = t;
+            Thread thread = new Thread(() -> {
+                for(int i = 0; i < 1000; i++) {
+                    printStream.println(threadNumber + ":" + i);
+                    printStream.flush();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        printStream.close();
+
+        String[] lines = target.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        Assertions.assertEquals(4000, lines.length);
+        int[] nextLine = new int[4];
+        for(String line : lines) {
+            String[] parts = line.split(":");
+            int threadNumber = Integer.parseInt(parts[0]);
+            Assertions.assertEquals(nextLine[threadNumber]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    // write
+    // writing after the stream is closed fails, while closing it again does nothing
+    @Test
+    void givenClosedStream_throwsIOExceptionOnWrite() throws IOException {
+        AsyncOutputStream outputStream = new AsyncOutputStream(new ByteArrayOutputStream(), 4);
+        outputStream.close();
+        outputStream.close();
+        Assertions.assertThrows(IOException.class, () -> outputStream.write(1));
+    }
+
+    // close
+    // a failing target does not block the writers, and the failure is reported on close
+    @Test
+    void givenFailingTarget_throwsIOExceptionOnClose() throws IOException {
+        OutputStream failingTarget = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Disk full");
+            }
+        };
+        AsyncOutputStream outputStream = new AsyncOutputStream(failingTarget, 2);
+        for(int i = 0; i < 100; i++) {
+            outputStream.write(new byte[]{1, 2, 3}, 0, 3);
+        }
+        IOException exception = Assertions.assertThrows(IOException.class, outputStream::close);
+        Assertions.assertEquals("Disk full", exception.getMessage());
+    }
+
+    // close
+    // writers still running while the stream is closed either reach the target or fail, and are never blocked
+    @Test
+    void givenWritesDuringClose_writesOrFailsWithoutBlocking() {
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            AsyncOutputStream outputStream = new AsyncOutputStream(target, 2);
+            AtomicInteger writtenLines = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        while(true) {
+                            outputStream.write("line\n".getBytes(StandardCharsets.UTF_8));
+                            writtenLines.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        // stream closed
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            Thread.sleep(50);
+            outputStream.close();
+            for(Thread thread : threads) {
+                thread.join();
+            }
+
+            Assertions.assertEquals(writtenLines.get(), target.toString(StandardCharsets.UTF_8).split("\n").length);
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.TemplateType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class BatchServiceImplTest {
+
+    private static final String MAPPING_FILE_NAME = "src/test/resources/batch/mapping.yml";
+    private static final String PROPERTIES_FILE_NAME = "src/test/resources/application.properties";
+    private static final String ENV_FILE_NAME = "src/test/resources/withValidEntries.env";
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+
+    @TempDir
+    Path batchDirectory;
+    private Path propertiesFile;
+    private Path envFile;
+    private Path yamlFile;
+    private Path mappingFile;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        Path serviceDirectory = Files.createDirectories(batchDirectory.resolve("services/client-service"));
+        Path deployDirectory = Files.createDirectories(batchDirectory.resolve("deploy"));
+        propertiesFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), serviceDirectory.resolve("application.properties"));
+        envFile = Files.copy(Paths.get(ENV_FILE_NAME), serviceDirectory.resolve(".env"));
+        yamlFile = Files.copy(Paths.get(YAML_FILE_NAME), deployDirectory.resolve("client-service.yml"));
+        mappingFile = Files.copy(Paths.get(MAPPING_FILE_NAME), batchDirectory.resolve("mapping.yml"));
+    }
+
+    // readMappingFile
+    // glob patterns are expanded, and {dir} is replaced with the directory name of the matching file
+    @Test
+    void givenValidMappingFile_returnsListOfJobsCorrespondingToContent() throws IOException {
+        BatchService batchService = new BatchServiceImpl();
+        List<InjectionJob> expected = new ArrayList<>(List.of(
+                new InjectionJob(TemplateType.PROPERTIES, propertiesFile.toString(), yamlFile.toString(), "client-service"),
+                new InjectionJob(TemplateType.ENV, envFile.toString(), yamlFile.toString(), "client-service"),
+                new InjectionJob(TemplateType.ENV, envFile.toString(), yamlFile.toString(), "non-existent-image")));
+
+        List<InjectionJob> result = batchService.readMappingFile(mappingFile.toString());
+
+        Assertions.assertEquals(expected, result);
+    }
+
+    @Test
+    void givenNonExistentMappingFile_throwException() {
+        BatchService batchService = new BatchServiceImpl();
+        Assertions.assertThrows(FileNotFoundException.class, () -> batchService.readMappingFile(batchDirectory.resolve("non-existent.yml").toString()));
+    }
+
+    // runJobs
+    // all files are injected, and a failing job does not stop the rest of the jobs
+    @Test
+    void givenListOfJobs_injectsAllFilesAndReturnsResultOfEachJob() throws IOException {
+        BatchService batchService = new BatchServiceImpl();
+        List<InjectionJob> jobs = batchService.readMappingFile(mappingFile.toString());
+
+        List<InjectionResult> results = batchService.runJobs(jobs);
+
+        Assertions.assertEquals(3, results.size());
+        InjectionResult propertiesResult = results.get(0);
+        Assertions.assertFalse(propertiesResult.isFailed());
+        Assertions.assertEquals(3, propertiesResult.getInjectedEntries());
+        Assertions.assertEquals(1, propertiesResult.getSecretEntries());
+        Assertions.assertEquals(2, propertiesResult.getNotInYamlEntries());
+        Assertions.assertEquals(4, propertiesResult.getInvalidEntries());
+        Assertions.assertTrue(Files.exists(Paths.get(propertiesFile + "-injected")));
+
+        InjectionResult envResult = results.get(1);
+        Assertions.assertFalse(envResult.isFailed());
+        Assertions.assertEquals(2, envResult.getInjectedEntries());
+        Assertions.assertEquals(1, envResult.getSecretEntries());
+        Assertions.assertEquals(2, envResult.getNotInYamlEntries());
+        Assertions.assertEquals(2, envResult.getAddedFromYamlEntries());
+        Assertions.assertEquals(2, envResult.getInvalidEntries());
+        Assertions.assertTrue(Files.exists(Paths.get(envFile + "-injected")));
+
+        Assertions.assertTrue(results.get(2).isFailed());
+    }
+
+    // printReport
+    // will not throw error
+    @Test
+    void givenListOfResults_printsReportAndDoesNotThrowError() throws IOException {
+        BatchService batchService = new BatchServiceImpl();
+        List<InjectionResult> results = batchService.runJobs(batchService.readMappingFile(mappingFile.toString()));
+        Assertions.assertDoesNotThrow(() -> batchService.printReport(results));
+    }
+
+    // buildReport
+    // files are listed by result, numbered in the order of the jobs
+    @Test
+    void givenListOfResults_buildsReportOfInjectedAndFailedFiles() throws IOException {
+        BatchService batchService = new BatchServiceImpl();
+        List<InjectionResult> results = batchService.runJobs(batchService.readMappingFile(mappingFile.toString()));
+
+        Report report = batchService.buildReport(results);
+
+        Assertions.assertEquals(List.of(1, 2), report.getSection("injected").getEntries().stream().map(Report.Entry::getLineNumber).collect(Collectors.toList()));
+        Assertions.assertTrue(report.getSection("injected").getEntries().get(0).getName()
+                .startsWith(propertiesFile + " [client-service of " + yamlFile + "]: injected 3, secret 1, not in yaml 2"));
+        Assertions.assertTrue(report.getSection("upToDate").getEntries().isEmpty());
+        Assertions.assertEquals(3, report.getSection("failed").getEntries().get(0).getLineNumber());
+    }
+}
@@ -0,0 +1,92 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.TemplateType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class ContainerJobPlannerTest {
+
+    private static final String WORKLOADS_YAML_FILE_NAME = "src/test/resources/deployment-workloads.yml";
+
+    @TempDir
+    Path tempDirectory;
+
+    // planJobs
+    // a template shared by several containers is written to a file per container
+    @Test
+    void givenSharedTemplate_writesFilePerContainer() {
+        List<InjectionJob> result = ContainerJobPlanner.planJobs(TemplateType.PROPERTIES, List.of("application.properties"), "deployment.yml",
+                List.of("client-service-app", "docker.io/library/fluent-bit:2.2"));
+
+        Assertions.assertEquals(List.of("application.properties-client-service-app-injected", "application.properties-fluent-bit-injected"),
+                result.stream().map(InjectionJob::getOutputFileLocation).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of("client-service-app", "docker.io/library/fluent-bit:2.2"),
+                result.stream().map(InjectionJob::getContainerImageName).collect(Collectors.toList()));
+    }
+
+    // planJobs
+    // a template per container is written to its own -injected file
+    @Test
+    void givenTemplatePerContainer_writesInjectedFileOfEachTemplate() {
+        List<InjectionJob> result = ContainerJobPlanner.planJobs(TemplateType.ENV, List.of("app/.env", "agent/.env"), "deployment.yml",
+                List.of("client-service-app", "agent"));
+
+        Assertions.assertEquals(List.of("app/.env-injected", "agent/.env-injected"),
+                result.stream().map(InjectionJob::getOutputFileLocation).collect(Collectors.toList()));
+    }
+
+    // planJobs
+    // number of templates that is neither one nor the number of containers, or containers writing the same file, throws RuntimeException
+    @Test
+    void givenMismatchedTemplatesOrSameOutput_throwsRuntimeException() {
+        Assertions.assertThrows(RuntimeException.class, () -> ContainerJobPlanner.planJobs(TemplateType.ENV,
+                List.of("a/.env", "b/.env"), "deployment.yml", List.of("app", "agent", "debug")));
+        Assertions.assertThrows(RuntimeException.class, () -> ContainerJobPlanner.planJobs(TemplateType.ENV,
+                List.of(".env"), "deployment.yml", List.of("nginx:1.25", "nginx:1.26")));
+    }
+
+    // getContainerImageNames
+    // the containers of all the workloads are listed in order of the yaml file, without the init containers
+    @Test
+    void givenYamlFileWithWorkloads_returnsContainerNames() throws IOException {
+        List<String> result = ContainerJobPlanner.getContainerImageNames(new YamlServiceImpl().getManifestIndex(WORKLOADS_YAML_FILE_NAME));
+
+        Assertions.assertEquals(List.of("report", "debug", "agent", "client-service-app"), result);
+    }
+
+    // planJobs
+    // all the containers are injected from a single read of the yaml file
+    @Test
+    void givenSeveralContainers_readsYamlFileOnce() throws IOException {
+        Path envFile = Files.writeString(tempDirectory.resolve(".env"), "LOG_LEVEL=info", StandardCharsets.UTF_8);
+        YamlService yamlService = Mockito.spy(new YamlServiceImpl());
+        WarmYamlService warmYamlService = new WarmYamlService(yamlService);
+        List<String> containers = ContainerJobPlanner.getContainerImageNames(warmYamlService.getManifestIndex(WORKLOADS_YAML_FILE_NAME));
+        List<InjectionJob> jobs = ContainerJobPlanner.planJobs(TemplateType.ENV, List.of(envFile.toString()), WORKLOADS_YAML_FILE_NAME, containers);
+
+        List<InjectionResult> results = new InjectionEngine(warmYamlService, new InjectionServiceImpl(), 4).run(jobs);
+
+        Assertions.assertTrue(results.stream().noneMatch(InjectionResult::isFailed));
+        for(String container : containers) {
+            Assertions.assertTrue(Files.exists(Paths.get(envFile + "-" + container + "-injected")));
+        }
+        Mockito.verify(yamlService, Mockito.times(1)).getManifestIndex(WORKLOADS_YAML_FILE_NAME);
+    }
+}
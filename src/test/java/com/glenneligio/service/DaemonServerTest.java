@@ -0,0 +1,147 @@
+package com.glenneligio.service;
+
+import com.github.rvesse.airline.Cli;
+import com.glenneligio.Main;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class DaemonServerTest {
+
+    private static final String PROPERTIES_FILE_NAME = "src/test/resources/application.properties";
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+
+    @TempDir
+    Path workDirectory;
+    private DaemonServer daemonServer;
+    private Thread daemonThread;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        daemonServer = new DaemonServer(0, Duration.ofSeconds(30), workDirectory.resolve("state"));
+        daemonServer.start();
+        daemonThread = new Thread(() -> {
+            try {
+                daemonServer.serve();
+            } catch (IOException e) {
+                log.error("Daemon failed", e);
+            }
+        });
+        daemonThread.start();
+    }
+
+    @AfterEach
+    void tearDownEach() throws InterruptedException, IOException {
+        new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state")).send(List.of(DaemonServer.STOP_REQUEST), new ByteArrayOutputStream());
+        daemonThread.join(10_000);
+    }
+
+    // the command run by the daemon creates the same file as the command run directly
+    @Test
+    void givenPropertiesCommand_whenSentToDaemon_createsSameFileAsColdRun() throws IOException {
+        Path yamlFile = Files.copy(Paths.get(YAML_FILE_NAME), workDirectory.resolve("deployment.yml"));
+        Path coldRunFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), workDirectory.resolve("cold.properties"));
+        Path daemonRunFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), workDirectory.resolve("daemon.properties"));
+        new Cli<Runnable>(Main.class).parse("setup", "properties", "-p", coldRunFile.toString(), "-y", yamlFile.toString(), "-i", "client-service").run();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"));
+        int exitCode = daemonClient.send(List.of("setup", "properties", "-p", daemonRunFile.toString(), "-y", yamlFile.toString(), "-i", "client-service"), output);
+
+        Assertions.assertEquals(0, exitCode);
+        Assertions.assertTrue(output.toString(StandardCharsets.UTF_8).contains("Properties file to be populated"));
+        Assertions.assertEquals(Files.readString(Paths.get(coldRunFile + "-injected")), Files.readString(Paths.get(daemonRunFile + "-injected")));
+    }
+
+    // a failing command returns a non-zero exit code, and the daemon keeps running
+    @Test
+    void givenFailingCommand_whenSentToDaemon_returnsNonZeroExitCode() throws IOException {
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"));
+
+        int exitCode = daemonClient.send(List.of("setup", "properties", "-p", "non-existent.properties", "-y", "non-existent.yml", "-i", "client-service"), new ByteArrayOutputStream());
+
+        Assertions.assertNotEquals(0, exitCode);
+        Assertions.assertTrue(daemonThread.isAlive());
+    }
+
+    // relative paths of the command are resolved against the working directory of the client
+    @Test
+    void givenRelativePaths_whenSentToDaemon_resolvesAgainstClientWorkingDirectory() throws IOException {
+        Files.copy(Paths.get(YAML_FILE_NAME), workDirectory.resolve("deployment.yml"));
+        Files.copy(Paths.get(PROPERTIES_FILE_NAME), workDirectory.resolve("application.properties"));
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"), workDirectory);
+
+        int exitCode = daemonClient.send(List.of("setup", "properties", "-p", "application.properties", "--yaml=deployment.yml", "-i", "client-service"), new ByteArrayOutputStream());
+
+        Assertions.assertEquals(0, exitCode);
+        Assertions.assertTrue(Files.exists(workDirectory.resolve("application.properties-injected")));
+    }
+
+    // the metrics file is written relative to the client
+    @Test
+    void givenRelativeMetricsFile_whenSentToDaemon_writesInClientWorkingDirectory() throws IOException {
+        Files.copy(Paths.get(YAML_FILE_NAME), workDirectory.resolve("deployment.yml"));
+        Files.copy(Paths.get(PROPERTIES_FILE_NAME), workDirectory.resolve("application.properties"));
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"), workDirectory);
+
+        int exitCode = daemonClient.send(List.of("setup", "properties", "-p", "application.properties", "-y", "deployment.yml", "-i", "client-service", "--metrics-out", "metrics.json"), new ByteArrayOutputStream());
+
+        Assertions.assertEquals(0, exitCode);
+        Assertions.assertTrue(Files.exists(workDirectory.resolve("metrics.json")));
+    }
+
+    // the secrets file is read relative to the client
+    @Test
+    void givenRelativeSecretsFile_whenSentToDaemon_injectsSecretValue() throws IOException {
+        Files.copy(Paths.get(YAML_FILE_NAME), workDirectory.resolve("deployment.yml"));
+        Files.copy(Paths.get(PROPERTIES_FILE_NAME), workDirectory.resolve("application.properties"));
+        Files.writeString(workDirectory.resolve("secrets.yml"), String.join(System.lineSeparator(),
+                "sampleSealedSecretNamespace:",
+                "  nameKeyOfSecret: s3cret"), StandardCharsets.UTF_8);
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"), workDirectory);
+
+        int exitCode = daemonClient.send(List.of("setup", "properties", "-p", "application.properties", "-y", "deployment.yml", "-i", "client-service", "--secrets-file", "secrets.yml"), new ByteArrayOutputStream());
+
+        Assertions.assertEquals(0, exitCode);
+        Assertions.assertTrue(Files.readString(workDirectory.resolve("application.properties-injected")).contains("secret.api.key=${SECRET_API_KEY:s3cret}"));
+    }
+
+    // the output directory of the fixtures is resolved against the client, and the count options are passed as they are
+    @Test
+    void givenFixturesCommand_whenSentToDaemon_resolvesOnlyOutputDirectory() throws IOException {
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"), workDirectory);
+
+        int exitCode = daemonClient.send(List.of("setup", "generate-fixtures", "-o", "fixtures", "--documents", "2", "--env-per-container", "5", "--keys", "20"), new ByteArrayOutputStream());
+
+        Assertions.assertEquals(0, exitCode);
+        Assertions.assertTrue(Files.list(workDirectory.resolve("fixtures")).findAny().isPresent());
+    }
+
+    // logging options are applied once per JVM, so a request carrying one is rejected
+    @Test
+    void givenLoggingOption_whenSentToDaemon_rejectsRequest() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DaemonClient daemonClient = new DaemonClient(daemonServer.getPort(), workDirectory.resolve("state"), workDirectory);
+
+        int exitCode = daemonClient.send(List.of("setup", "properties", "-p", "application.properties", "-y", "deployment.yml", "--log-level=debug"), output);
+
+        Assertions.assertEquals(2, exitCode);
+        Assertions.assertTrue(output.toString(StandardCharsets.UTF_8).contains("--log-level=debug"));
+    }
+}
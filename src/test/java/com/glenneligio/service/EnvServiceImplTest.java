@@ -1,6 +1,9 @@
 package com.glenneligio.service;
 
 import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.ReportFormat;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
 import lombok.extern.slf4j.Slf4j;
 import org.assertj.core.util.Files;
@@ -9,6 +12,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.util.ResourceUtils;
@@ -17,8 +21,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @ExtendWith(MockitoExtension.class)
 @Slf4j
@@ -33,6 +42,9 @@ public class EnvServiceImplTest {
     private YamlFileEnvEntry y0, y1, y2;
     private List<YamlFileEnvEntry> validYamlEnvFileEntries = new ArrayList<>();
 
+    @TempDir
+    Path tempDirectory;
+
     @BeforeEach
     void setupEach() {
         populatedValidEnvFileEntries();
@@ -153,6 +165,44 @@ public class EnvServiceImplTest {
         Assertions.assertEquals(expected, result);
     }
 
+    // when an env is declared more than once in yaml file, the last declaration is used and reported as duplicate
+    @Test
+    void givenYamlEnvEntriesWithDuplicateEnvName_whenPopulatingEnvFileEntries_usesLastDeclarationAndReportsDuplicate() {
+        EnvService envService = new EnvServiceImpl();
+        validYamlEnvFileEntries.add(new YamlFileEnvEntry("DB_HOST", "10.950.54.11", false));
+        YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(validYamlEnvFileEntries);
+
+        List<EnvFileEntry> result = envService.populateEnvFileEntriesWithValuesFromYaml(validEnvFileEntries, yamlEnvIndex);
+        List<EnvFileEntry> newEntries = envService.addNewEnvFromYaml(result, yamlEnvIndex);
+
+        Assertions.assertEquals(Set.of("DB_HOST"), yamlEnvIndex.getDuplicateEnvNames());
+        Assertions.assertEquals("10.950.54.11", result.get(0).getEnvValueToInject());
+        Assertions.assertTrue(newEntries.isEmpty());
+    }
+
+    // matching is linear, so 100k entries against 100k yaml envs is done well within the timeout
+    @Test
+    void givenLargeListOfEnvFileEntriesAndYamlEnvEntries_populatesAndAddsMissingEnvWithinTimeout() {
+        EnvService envService = new EnvServiceImpl();
+        int entryCount = 100_000;
+        List<EnvFileEntry> envFileEntries = new ArrayList<>();
+        List<YamlFileEnvEntry> yamlEnvEntries = new ArrayList<>();
+        for(int i = 0; i < entryCount; i++) {
+            envFileEntries.add(new EnvFileEntry("ENV_" + i, "default" + i, null, true, false, i + 1, false, false, false));
+            // half of the yaml envs matches the env file, the other half is missing from it
+            yamlEnvEntries.add(new YamlFileEnvEntry("ENV_" + (i * 2), "value" + i, i % 10 == 0));
+        }
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+            List<EnvFileEntry> result = envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvIndex);
+            List<EnvFileEntry> newEntries = envService.addNewEnvFromYaml(result, yamlEnvIndex);
+
+            Assertions.assertEquals(entryCount / 2, result.stream().filter(EnvFileEntry::isPresentInYaml).count());
+            Assertions.assertEquals(entryCount / 2, newEntries.size());
+        });
+    }
+
     // injectEnvFound
     // inject values from list of env from yaml file to list of env file entries, and populate new .env file
     @Test
@@ -171,6 +221,171 @@ public class EnvServiceImplTest {
         Assertions.assertEquals(expectedContent, resultContent);
     }
 
+    // injectEnvFound
+    // CRLF .env file keeps its line terminators, including on the entries added from yaml file
+    @Test
+    void givenCrlfEnvFile_createsInjectedFileWithCrlfLineTerminators() throws IOException {
+        EnvService envService = new EnvServiceImpl();
+        String content = Files.contentOf(new File(VALID_ENV_FILE_NAME), StandardCharsets.UTF_8);
+        File crlfFile = tempDirectory.resolve("crlf.env").toFile();
+        File lfFile = tempDirectory.resolve("lf.env").toFile();
+        java.nio.file.Files.writeString(crlfFile.toPath(), content.replace("\n", "\r\n"));
+        java.nio.file.Files.writeString(lfFile.toPath(), content);
+        List<YamlFileEnvEntry> yamlEnvEntries = new ArrayList<>(validYamlEnvFileEntries);
+        yamlEnvEntries.add(new YamlFileEnvEntry("ENV_ONLY_IN_YAML", "yamlValue", false));
+
+        for(File file : List.of(crlfFile, lfFile)) {
+            List<EnvFileEntry> entries = envService.readOrCreateEnvFile(file.getPath());
+            envService.populateEnvFileEntriesWithValuesFromYaml(entries, yamlEnvEntries);
+            entries.addAll(envService.addNewEnvFromYaml(entries, yamlEnvEntries));
+            envService.injectEnvFound(entries, file.getPath());
+        }
+
+        byte[] lfResult = java.nio.file.Files.readAllBytes(Paths.get(lfFile.getPath() + "-injected"));
+        byte[] crlfResult = java.nio.file.Files.readAllBytes(Paths.get(crlfFile.getPath() + "-injected"));
+        Assertions.assertArrayEquals(new String(lfResult, StandardCharsets.UTF_8).replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8), crlfResult);
+        Assertions.assertTrue(new String(lfResult, StandardCharsets.UTF_8).contains("\nENV_ONLY_IN_YAML="));
+    }
+
+    // readOrCreateEnvFile
+    // parses export, quoted values and values spanning several lines
+    @Test
+    void givenEnvFileWithExportAndQuotedValues_returnListOfEnvFileEntriesWithUnquotedValues() throws IOException {
+        File envFile = tempDirectory.resolve("quoted.env").toFile();
+        String content = "export DB_HOST=localhost\n" +
+                "DB_URL=\"jdbc:mysql://host/db?a=b#c\" # comment\n" +
+                "GREETING='hello # not a comment'\n" +
+                "ESCAPED=\"line1\\nline2 \\\"quoted\\\"\"\n" +
+                "CERTIFICATE=\"-----BEGIN-----\n" +
+                "abc=\n" +
+                "-----END-----\"\n" +
+                "UNQUOTED=value # comment\n";
+        java.nio.file.Files.writeString(envFile.toPath(), content);
+
+        List<EnvFileEntry> entries = new EnvServiceImpl().readOrCreateEnvFile(envFile.getPath());
+
+        Assertions.assertEquals(6, entries.size());
+        Assertions.assertEquals("DB_HOST", entries.get(0).getName());
+        Assertions.assertEquals("localhost", entries.get(0).getDefaultValue());
+        Assertions.assertTrue(entries.get(0).isExported());
+        Assertions.assertEquals("jdbc:mysql://host/db?a=b#c", entries.get(1).getDefaultValue());
+        Assertions.assertEquals('"', entries.get(1).getQuote());
+        Assertions.assertEquals("hello # not a comment", entries.get(2).getDefaultValue());
+        Assertions.assertEquals('\'', entries.get(2).getQuote());
+        Assertions.assertEquals("line1\nline2 \"quoted\"", entries.get(3).getDefaultValue());
+        Assertions.assertEquals("-----BEGIN-----\nabc=\n-----END-----", entries.get(4).getDefaultValue());
+        Assertions.assertEquals(5, entries.get(4).getLineNumber());
+        Assertions.assertEquals(3, entries.get(4).getLineCount());
+        Assertions.assertEquals("UNQUOTED", entries.get(5).getName());
+        Assertions.assertEquals("value", entries.get(5).getDefaultValue());
+        Assertions.assertEquals(8, entries.get(5).getLineNumber());
+    }
+
+    // readOrCreateEnvFile
+    // value with unterminated quote is an invalid entry
+    @Test
+    void givenEnvFileWithUnterminatedQuote_returnInvalidEntry() throws IOException {
+        File envFile = tempDirectory.resolve("unterminated.env").toFile();
+        java.nio.file.Files.writeString(envFile.toPath(), "VALID=value\nBROKEN=\"no closing quote\nNEXT=value\n");
+
+        List<EnvFileEntry> entries = new EnvServiceImpl().readOrCreateEnvFile(envFile.getPath());
+
+        Assertions.assertEquals(2, entries.size());
+        Assertions.assertFalse(entries.get(1).isValid());
+        Assertions.assertEquals(2, entries.get(1).getLineCount());
+    }
+
+    // injectEnvFound
+    // keeps export and quoting, and replaces all the lines of a multi-line value
+    @Test
+    void givenEnvFileWithQuotedAndMultiLineValues_createsInjectedFileKeepingQuoting() throws IOException {
+        File envFile = tempDirectory.resolve("multiline.env").toFile();
+        String content = "export DB_HOST=localhost\n" +
+                "GREETING='hello'\n" +
+                "CERTIFICATE=\"-----BEGIN-----\n" +
+                "old\n" +
+                "-----END-----\"\n" +
+                "KEEP=\"kept # value\"\n";
+        java.nio.file.Files.writeString(envFile.toPath(), content);
+        List<YamlFileEnvEntry> yamlEnvEntries = List.of(
+                new YamlFileEnvEntry("DB_HOST", "10.950.54.10", false),
+                new YamlFileEnvEntry("GREETING", "hello # there", false),
+                new YamlFileEnvEntry("CERTIFICATE", "-----BEGIN-----\nnew\n-----END-----", false),
+                new YamlFileEnvEntry("NEW_ENV", "a \"b\"", false));
+
+        EnvService envService = new EnvServiceImpl();
+        List<EnvFileEntry> entries = envService.readOrCreateEnvFile(envFile.getPath());
+        envService.populateEnvFileEntriesWithValuesFromYaml(entries, yamlEnvEntries);
+        List<EnvFileEntry> newEntries = envService.addNewEnvFromYaml(entries, yamlEnvEntries);
+        Assertions.assertEquals(7, newEntries.get(0).getLineNumber());
+        entries.addAll(newEntries);
+        envService.injectEnvFound(entries, envFile.getPath());
+
+        String expected = "export DB_HOST=10.950.54.10\n" +
+                "GREETING='hello # there'\n" +
+                "CERTIFICATE=\"-----BEGIN-----\n" +
+                "new\n" +
+                "-----END-----\"\n" +
+                "KEEP=\"kept # value\"\n" +
+                "NEW_ENV=a \"b\"\n";
+        Assertions.assertEquals(expected, java.nio.file.Files.readString(Paths.get(envFile.getPath() + "-injected")));
+    }
+
+    // readOrCreateEnvFile
+    // large env file will be parsed within timeout
+    @Test
+    void givenLargeEnvFile_returnListOfEnvFileEntriesWithinTimeout() throws IOException {
+        File envFile = tempDirectory.resolve("large.env").toFile();
+        StringBuilder content = new StringBuilder();
+        for(int i = 0; i < 200_000; i++) {
+            content.append("export ENV_").append(i).append("=\"value ").append(i).append(" # not a comment\"\n");
+        }
+        java.nio.file.Files.writeString(envFile.toPath(), content);
+
+        List<EnvFileEntry> entries = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> new EnvServiceImpl().readOrCreateEnvFile(envFile.getPath()));
+
+        Assertions.assertEquals(200_000, entries.size());
+        Assertions.assertEquals("value 199999 # not a comment", entries.get(199_999).getDefaultValue());
+    }
+
+    // buildReport
+    // sections have the same entries as the filters of the log report
+    @Test
+    void givenPopulatedEnvFileEntries_buildsReportSectionsInSinglePass() {
+        EnvService envService = new EnvServiceImpl();
+        List<YamlFileEnvEntry> yamlEnvEntries = new ArrayList<>(validYamlEnvFileEntries);
+        yamlEnvEntries.add(new YamlFileEnvEntry("ENV_ONLY_IN_YAML", "yamlValue", false));
+        yamlEnvEntries.add(new YamlFileEnvEntry("SECRET_ONLY_IN_YAML", null, true));
+        envService.populateEnvFileEntriesWithValuesFromYaml(validEnvFileEntries, yamlEnvEntries);
+        validEnvFileEntries.addAll(envService.addNewEnvFromYaml(validEnvFileEntries, yamlEnvEntries));
+
+        Report report = envService.buildReport(validEnvFileEntries);
+
+        Assertions.assertEquals(List.of("invalid", "notInYaml", "injected", "secret", "addedFromYaml", "secretAddedFromYaml"),
+                report.getSections().stream().map(Report.Section::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of("", "INVALID_ENTRY"), sectionNames(report, "invalid"));
+        Assertions.assertEquals(List.of("ENV_WITH_NO_DEFAULT_VALUE", "ENV_NOT_IN_YAML"), sectionNames(report, "notInYaml"));
+        Assertions.assertEquals(List.of("DB_HOST", "DB_PORT"), sectionNames(report, "injected"));
+        Assertions.assertEquals(List.of("SECRET_API_KEY"), sectionNames(report, "secret"));
+        Assertions.assertEquals(List.of("ENV_ONLY_IN_YAML"), sectionNames(report, "addedFromYaml"));
+        Assertions.assertEquals(List.of("SECRET_ONLY_IN_YAML"), sectionNames(report, "secretAddedFromYaml"));
+        Assertions.assertEquals(8, report.getSection("addedFromYaml").getEntries().get(0).getLineNumber());
+    }
+
+    private static List<String> sectionNames(Report report, String sectionName) {
+        return report.getSection(sectionName).getEntries().stream().map(Report.Entry::getName).collect(Collectors.toList());
+    }
+
+    // printReport
+    // json and no report will not throw error
+    @Test
+    void givenReportFormats_printsReportAndDoesNotThrowError() {
+        EnvService envService = new EnvServiceImpl();
+        Assertions.assertDoesNotThrow(() -> envService.printReport(validEnvFileEntries, ReportFormat.JSON));
+        Assertions.assertDoesNotThrow(() -> envService.printReport(validEnvFileEntries, ReportFormat.NONE));
+    }
+
     // printReport
     // will not throw error
     @Test
@@ -0,0 +1,72 @@
+package com.glenneligio.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class FileSecretProviderTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    // getSecret
+    // k8s Secret documents have their data decoded and their stringData taken as is
+    @Test
+    void givenSecretDocuments_returnsDecodedKeys() throws IOException {
+        Path secretsFile = Files.writeString(tempDirectory.resolve("secrets.yml"), String.join(System.lineSeparator(),
+                "apiVersion: v1",
+                "kind: Secret",
+                "metadata:",
+                "  name: other",
+                "data:",
+                "  password: b3RoZXI=",
+                "---",
+                "apiVersion: v1",
+                "kind: Secret",
+                "metadata:",
+                "  name: db",
+                "data:",
+                "  password: czNjcmV0",
+                "stringData:",
+                "  user: admin"), StandardCharsets.UTF_8);
+
+        Map<String, String> result = new FileSecretProvider(secretsFile).getSecret("db");
+
+        Assertions.assertEquals(Map.of("password", "s3cret", "user", "admin"), result);
+    }
+
+    // getSecret
+    // a map of secret name to keys and values returns the keys of the secret, or nothing for an unknown secret
+    @Test
+    void givenSecretMap_returnsKeysOfSecret() throws IOException {
+        Path secretsFile = Files.writeString(tempDirectory.resolve("secrets.yml"), String.join(System.lineSeparator(),
+                "db:",
+                "  password: s3cret",
+                "  port: 5432"), StandardCharsets.UTF_8);
+        FileSecretProvider fileSecretProvider = new FileSecretProvider(secretsFile);
+
+        Assertions.assertEquals(Map.of("password", "s3cret", "port", "5432"), fileSecretProvider.getSecret("db"));
+        Assertions.assertTrue(fileSecretProvider.getSecret("unknown").isEmpty());
+    }
+
+    // getSecret
+    // secrets file that does not exist throws FileNotFoundException
+    @Test
+    void givenNonExistentFile_throwsFileNotFoundException() {
+        FileSecretProvider fileSecretProvider = new FileSecretProvider(tempDirectory.resolve("missing.yml"));
+
+        Assertions.assertThrows(FileNotFoundException.class, () -> fileSecretProvider.getSecret("db"));
+    }
+}
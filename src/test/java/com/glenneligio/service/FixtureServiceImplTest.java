@@ -0,0 +1,106 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.FixtureSpec;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.YamlFileEnvEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class FixtureServiceImplTest {
+
+    @TempDir
+    Path tempDirectory;
+    private FixtureSpec spec;
+
+    @BeforeEach
+    void setupEach() {
+        spec = new FixtureSpec();
+        spec.setDocumentCount(4);
+        spec.setContainersPerDocument(2);
+        spec.setEnvPerContainer(50);
+        spec.setTemplateKeys(80);
+    }
+
+    // generateFixtures
+    // same spec generates the same files
+    @Test
+    void givenSameSpec_generatesIdenticalFiles() throws IOException {
+        FixtureService fixtureService = new FixtureServiceImpl();
+        List<Path> firstFiles = fixtureService.generateFixtures(spec, tempDirectory.resolve("first").toString());
+        List<Path> secondFiles = fixtureService.generateFixtures(spec, tempDirectory.resolve("second").toString());
+
+        Assertions.assertEquals(4, firstFiles.size());
+        for(int i = 0; i < firstFiles.size(); i++) {
+            Assertions.assertArrayEquals(Files.readAllBytes(firstFiles.get(i)), Files.readAllBytes(secondFiles.get(i)));
+        }
+    }
+
+    // generateFixtures
+    // other seed generates other values, while the size of the templates does not change the yaml file
+    @Test
+    void givenOtherSeedOrTemplateSize_generatesOtherValuesButSameYamlFileForSameSeed() throws IOException {
+        FixtureService fixtureService = new FixtureServiceImpl();
+        Path first = fixtureService.generateFixtures(spec, tempDirectory.resolve("first").toString()).get(0);
+        spec.setTemplateKeys(200);
+        Path moreKeys = fixtureService.generateFixtures(spec, tempDirectory.resolve("more-keys").toString()).get(0);
+        spec.setSeed(7);
+        Path otherSeed = fixtureService.generateFixtures(spec, tempDirectory.resolve("other-seed").toString()).get(0);
+
+        Assertions.assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(moreKeys));
+        Assertions.assertFalse(java.util.Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(otherSeed)));
+    }
+
+    // generateFixtures
+    // generated files can be read and injected by the services
+    @Test
+    void givenSpec_generatesFilesReadableByServices() throws IOException {
+        spec.setSecretRatio(0.5);
+        spec.setPlaceholderDensity(1);
+        Path directory = tempDirectory.resolve("fixtures");
+        new FixtureServiceImpl().generateFixtures(spec, directory.toString());
+
+        List<YamlFileEnvEntry> yamlEnvEntries = new YamlServiceImpl().getYamlFileEnvEntries(directory.resolve("deployment.yml").toString(), "client-service");
+        Assertions.assertEquals(50, yamlEnvEntries.size());
+        long secretEntries = yamlEnvEntries.stream().filter(YamlFileEnvEntry::isSecret).count();
+        Assertions.assertTrue(secretEntries > 10 && secretEntries < 40);
+
+        List<PropertiesFileEntry> propertiesEntries = new PropertiesServiceImpl().getPropertiesFileEntriesFromPropertiesFile(directory.resolve("application.properties").toString());
+        Assertions.assertEquals(80, propertiesEntries.stream().filter(PropertiesFileEntry::isValid).count());
+        List<EnvFileEntry> envEntries = new EnvServiceImpl().readOrCreateEnvFile(directory.resolve(".env").toString());
+        Assertions.assertEquals(80, envEntries.stream().filter(EnvFileEntry::isValid).count());
+
+        BatchService batchService = new BatchServiceImpl();
+        List<InjectionJob> jobs = batchService.readMappingFile(directory.resolve("mapping.yml").toString());
+        List<InjectionResult> results = batchService.runJobs(jobs);
+        Assertions.assertEquals(2, results.size());
+        for(InjectionResult result : results) {
+            Assertions.assertFalse(result.isFailed());
+            // keys past the 50 env of the container, and values mixing the env of the last key with the next one
+            Assertions.assertTrue(result.getNotInYamlEntries() >= 30);
+        }
+    }
+
+    // generateFixtures
+    // invalid spec throws exception
+    @Test
+    void givenInvalidSpec_throwsException() {
+        spec.setSecretRatio(2);
+        Assertions.assertThrows(RuntimeException.class,
+                () -> new FixtureServiceImpl().generateFixtures(spec, tempDirectory.toString()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.glenneligio.service;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class HttpSecretProviderTest {
+
+    private HttpServer httpServer;
+    private HttpSecretProvider httpSecretProvider;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.createContext("/secrets/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            int status = 200;
+            String body = "{\"password\":\"s3cret\"}";
+            if(path.endsWith("/unknown")) {
+                status = 404;
+                body = "";
+            } else if(path.endsWith("/broken")) {
+                status = 500;
+                body = "";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        httpServer.start();
+        httpSecretProvider = new HttpSecretProvider(URI.create("http://127.0.0.1:" + httpServer.getAddress().getPort()));
+    }
+
+    @AfterEach
+    void cleanupEach() {
+        httpServer.stop(0);
+    }
+
+    // getSecret
+    // found secret returns its keys and values, and unknown secret returns nothing
+    @Test
+    void givenSecretName_returnsKeysFromService() throws IOException {
+        Assertions.assertEquals(Map.of("password", "s3cret"), httpSecretProvider.getSecret("db"));
+        Assertions.assertTrue(httpSecretProvider.getSecret("unknown").isEmpty());
+    }
+
+    // getSecret
+    // service failure throws IOException
+    @Test
+    void givenServiceFailure_throwsIOException() {
+        Assertions.assertThrows(IOException.class, () -> httpSecretProvider.getSecret("broken"));
+    }
+
+    // constructor
+    // url that is not on a loopback address throws IllegalArgumentException
+    @Test
+    void givenNonLoopbackUrl_throwsIllegalArgumentException() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HttpSecretProvider(URI.create("http://10.1.2.3:8200")));
+    }
+}
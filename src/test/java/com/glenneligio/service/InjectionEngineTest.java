@@ -0,0 +1,248 @@
+package com.glenneligio.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.rvesse.airline.Cli;
+import com.glenneligio.Main;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.TemplateType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class InjectionEngineTest {
+
+    private static final String PROPERTIES_FILE_NAME = "src/test/resources/application.properties";
+    private static final String ENV_FILE_NAME = "src/test/resources/withValidEntries.env";
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+    private static final String OTHER_YAML_FILE_NAME = "src/test/resources/deployment-no-content.yml";
+    private static final int SERVICE_COUNT = 12;
+
+    @TempDir
+    Path batchDirectory;
+    private final List<InjectionJob> jobs = new ArrayList<>();
+    private final List<InjectionJob> singleServiceJobs = new ArrayList<>();
+    private Path yamlFile;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        yamlFile = Files.copy(Paths.get(YAML_FILE_NAME), batchDirectory.resolve("deployment.yml"));
+        Path otherYamlFile = Files.copy(Paths.get(OTHER_YAML_FILE_NAME), batchDirectory.resolve("other-deployment.yml"));
+        for(int i = 0; i < SERVICE_COUNT; i++) {
+            Path serviceDirectory = Files.createDirectories(batchDirectory.resolve("service-" + i));
+            Path propertiesFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), serviceDirectory.resolve("application.properties"));
+            Path envFile = Files.copy(Paths.get(ENV_FILE_NAME), serviceDirectory.resolve(".env"));
+            Path yamlFileUsed = i % 2 == 0 ? yamlFile : otherYamlFile;
+            jobs.add(new InjectionJob(TemplateType.PROPERTIES, propertiesFile.toString(), yamlFileUsed.toString(), "client-service"));
+            jobs.add(new InjectionJob(TemplateType.ENV, envFile.toString(), yamlFileUsed.toString(), "client-service"));
+            // later job of the same file wins, as it would when running one job at a time
+            jobs.add(new InjectionJob(TemplateType.ENV, envFile.toString(), yamlFileUsed.toString(), i % 3 == 0 ? "docker/light-proxy" : "non-existent-image"));
+        }
+        singleServiceJobs.addAll(jobs.subList(0, 2));
+    }
+
+    // run
+    // same results and output files no matter the parallelism
+    @Test
+    void givenListOfJobs_whenRunWithParallelismOfOneAndMore_returnsSameResultsAndOutputFiles() throws IOException {
+        InjectionEngine sequentialEngine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 1);
+        List<InjectionResult> sequentialResults = sequentialEngine.run(jobs);
+        Map<Path, String> sequentialOutputFiles = readAndDeleteOutputFiles();
+
+        InjectionEngine parallelEngine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 6);
+        List<InjectionResult> parallelResults = parallelEngine.run(jobs);
+        Map<Path, String> parallelOutputFiles = readAndDeleteOutputFiles();
+
+        Assertions.assertEquals(jobs.size(), parallelResults.size());
+        Assertions.assertEquals(sequentialResults, parallelResults);
+        Assertions.assertEquals(SERVICE_COUNT * 2, sequentialOutputFiles.size());
+        Assertions.assertEquals(sequentialOutputFiles, parallelOutputFiles);
+    }
+
+    // run with manifest store
+    // inputs and output files unchanged since the last run, skips the jobs without writing any file
+    @Test
+    void givenUnchangedInputs_whenRunAgain_returnsUpToDateResultsAndWritesNothing() throws IOException {
+        InjectionEngine engine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("test"));
+        List<InjectionResult> firstResults = engine.run(singleServiceJobs);
+        FileTime pastTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        for(Path file : getOutputAndManifestFiles()) {
+            Files.setLastModifiedTime(file, pastTime);
+        }
+
+        List<InjectionResult> secondResults = engine.run(singleServiceJobs);
+
+        for(int i = 0; i < singleServiceJobs.size(); i++) {
+            Assertions.assertFalse(firstResults.get(i).isUpToDate());
+            Assertions.assertTrue(secondResults.get(i).isUpToDate());
+            secondResults.get(i).setUpToDate(false);
+            Assertions.assertEquals(firstResults.get(i), secondResults.get(i));
+        }
+        for(Path file : getOutputAndManifestFiles()) {
+            Assertions.assertEquals(pastTime, Files.getLastModifiedTime(file));
+        }
+    }
+
+    // run with manifest store
+    // yaml file changed since the last run, runs the jobs again
+    @Test
+    void givenChangedYamlFile_whenRunAgain_runsJobsAgain() throws IOException {
+        InjectionEngine engine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("test"));
+        engine.run(singleServiceJobs);
+        Files.writeString(yamlFile, "\n# changed\n", StandardOpenOption.APPEND);
+
+        List<InjectionResult> secondResults = engine.run(singleServiceJobs);
+
+        Assertions.assertTrue(secondResults.stream().noneMatch(InjectionResult::isUpToDate));
+        Assertions.assertTrue(secondResults.stream().noneMatch(InjectionResult::isFailed));
+    }
+
+    // run with manifest store
+    // manifest written by another version of the tool, runs the jobs again
+    @Test
+    void givenManifestOfOtherToolVersion_whenRunAgain_runsJobsAgain() {
+        new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("test")).run(singleServiceJobs);
+        InjectionEngine engine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("other"));
+
+        List<InjectionResult> secondResults = engine.run(singleServiceJobs);
+
+        Assertions.assertTrue(secondResults.stream().noneMatch(InjectionResult::isUpToDate));
+    }
+
+    // run with manifest store
+    // manifest written with another charset, runs the jobs again
+    @Test
+    void givenManifestOfOtherCharset_whenRunAgain_runsJobsAgain() {
+        new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("test", StandardCharsets.UTF_8)).run(singleServiceJobs);
+        InjectionEngine engine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("test", StandardCharsets.ISO_8859_1));
+
+        List<InjectionResult> secondResults = engine.run(singleServiceJobs);
+
+        Assertions.assertTrue(secondResults.stream().noneMatch(InjectionResult::isUpToDate));
+    }
+
+    // run with manifest store
+    // files found unchanged by their hash are re-stamped in the manifest, so the next run does not rewrite it
+    @Test
+    void givenFilesTouchedWithSameContent_whenRunAgain_restampsManifestOnce() throws IOException {
+        InjectionEngine engine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2, new InjectionManifestStore("test"));
+        engine.run(singleServiceJobs);
+        FileTime pastTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(yamlFile, pastTime);
+        for(InjectionJob job : singleServiceJobs) {
+            Files.setLastModifiedTime(Paths.get(job.getTemplateFileLocation()), pastTime);
+            Files.setLastModifiedTime(Paths.get(job.getOutputFileLocation()), pastTime);
+        }
+
+        List<InjectionResult> secondResults = engine.run(singleServiceJobs);
+        Map<Path, String> restampedManifests = new HashMap<>();
+        for(InjectionJob job : singleServiceJobs) {
+            Path manifestFile = InjectionManifestStore.getManifestFile(Paths.get(job.getOutputFileLocation()));
+            restampedManifests.put(manifestFile, Files.readString(manifestFile));
+            Files.setLastModifiedTime(manifestFile, pastTime);
+        }
+        List<InjectionResult> thirdResults = engine.run(singleServiceJobs);
+
+        Assertions.assertTrue(secondResults.stream().allMatch(InjectionResult::isUpToDate));
+        Assertions.assertTrue(thirdResults.stream().allMatch(InjectionResult::isUpToDate));
+        for(Map.Entry<Path, String> manifest : restampedManifests.entrySet()) {
+            Assertions.assertTrue(manifest.getValue().contains("output.modifiedTime=" + pastTime.to(TimeUnit.MICROSECONDS)));
+            Assertions.assertEquals(pastTime, Files.getLastModifiedTime(manifest.getKey()));
+        }
+    }
+
+    // run without manifest store
+    // output files with the same content as the new output, are not written again
+    @Test
+    void givenOutputFilesWithSameContent_whenRunAgain_doesNotWriteOutputFiles() throws IOException {
+        InjectionEngine engine = new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 2);
+        List<InjectionResult> firstResults = engine.run(singleServiceJobs);
+        FileTime pastTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        for(InjectionJob job : singleServiceJobs) {
+            Files.setLastModifiedTime(Paths.get(job.getTemplateFileLocation() + "-injected"), pastTime);
+        }
+
+        List<InjectionResult> secondResults = engine.run(singleServiceJobs);
+
+        for(int i = 0; i < singleServiceJobs.size(); i++) {
+            Path outputFile = Paths.get(singleServiceJobs.get(i).getTemplateFileLocation() + "-injected");
+            Assertions.assertEquals(pastTime, Files.getLastModifiedTime(outputFile));
+            Assertions.assertEquals(Files.size(outputFile), firstResults.get(i).getBytesWritten());
+            Assertions.assertEquals(0, secondResults.get(i).getBytesWritten());
+        }
+    }
+
+    // setup properties and setup env of a single file
+    // inputs unchanged since the last run, the command skips the file before reading the yaml file unless --force is given
+    @Test
+    void givenUnchangedInputs_whenSingleFileCommandRunsAgain_skipsFileUnlessForced() throws IOException {
+        for(InjectionJob job : singleServiceJobs) {
+            boolean properties = job.getTemplateType() == TemplateType.PROPERTIES;
+            List<String> args = List.of("setup", properties ? "properties" : "env", properties ? "-p" : "-e", job.getTemplateFileLocation(),
+                    "-y", job.getYamlFileLocation(), "-i", job.getContainerImageName());
+
+            JsonNode firstMetrics = runCommand(args, "first");
+            JsonNode secondMetrics = runCommand(args, "second");
+            JsonNode forcedMetrics = runCommand(args, "forced", "--force");
+
+            Assertions.assertTrue(firstMetrics.get("phases").has("yaml"));
+            Assertions.assertEquals(0, secondMetrics.get("phases").size());
+            Assertions.assertEquals(firstMetrics.get("counters").get("injected"), secondMetrics.get("counters").get("injected"));
+            Assertions.assertTrue(forcedMetrics.get("phases").has("yaml"));
+            Assertions.assertTrue(Files.exists(InjectionManifestStore.getManifestFile(Paths.get(job.getOutputFileLocation()))));
+        }
+    }
+
+    @Test
+    void givenParallelismLessThanOne_throwException() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new InjectionEngine(new YamlServiceImpl(), new InjectionServiceImpl(), 0));
+    }
+
+    private JsonNode runCommand(List<String> args, String run, String... options) throws IOException {
+        Path metricsFile = batchDirectory.resolve(args.get(1) + "-" + run + ".json");
+        List<String> commandArgs = new ArrayList<>(args);
+        commandArgs.addAll(List.of("--metrics-out", metricsFile.toString()));
+        commandArgs.addAll(Arrays.asList(options));
+        new Cli<Runnable>(Main.class).parse(commandArgs.toArray(new String[0])).run();
+        return new ObjectMapper().readTree(metricsFile.toFile());
+    }
+
+    private List<Path> getOutputAndManifestFiles() {
+        List<Path> files = new ArrayList<>();
+        for(InjectionJob job : singleServiceJobs) {
+            Path outputFile = Paths.get(job.getTemplateFileLocation() + "-injected");
+            files.add(outputFile);
+            files.add(InjectionManifestStore.getManifestFile(outputFile));
+        }
+        return files;
+    }
+
+    private Map<Path, String> readAndDeleteOutputFiles() throws IOException {
+        Map<Path, String> outputFiles = new TreeMap<>();
+        for(InjectionJob job : jobs) {
+            Path outputFile = Paths.get(job.getTemplateFileLocation() + "-injected");
+            if(Files.exists(outputFile)) {
+                outputFiles.put(outputFile, Files.readString(outputFile));
+                Files.delete(outputFile);
+            }
+        }
+        return outputFiles;
+    }
+}
@@ -0,0 +1,193 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.ManifestIndex;
+import com.glenneligio.model.YamlFileEnvEntry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class ManifestCacheTest {
+
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+    private static final String OTHER_YAML_FILE_NAME = "src/test/resources/deployment-no-content.yml";
+    private static final String CONFIG_MAP_YAML_FILE_NAME = "src/test/resources/deployment-configmap.yml";
+    private static final String MULTI_DOCUMENT_YAML_FILE_NAME = "src/test/resources/deployment-multi-document.yml";
+
+    @TempDir
+    Path tempDirectory;
+    private Path cacheDirectory;
+    private Path yamlFile;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        cacheDirectory = tempDirectory.resolve("cache");
+        yamlFile = Files.copy(Paths.get(YAML_FILE_NAME), tempDirectory.resolve("deployment.yml"));
+    }
+
+    // get
+    // yaml file that did not change since it was cached, returns the cached index
+    @Test
+    void givenUnchangedYamlFile_returnsCachedIndex() throws IOException {
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+        ManifestIndex expected = new YamlServiceImpl(manifestCache).getManifestIndex(yamlFile.toString());
+
+        ManifestIndex result = manifestCache.get(yamlFile.toFile());
+
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(new ArrayList<>(expected.getContainers()), new ArrayList<>(result.getContainers()));
+        Assertions.assertEquals(expected.isContainersPresent(), result.isContainersPresent());
+    }
+
+    // getYamlFileEnvEntries with cache
+    // the cache is used by default, so on a miss the whole yaml file is indexed and cached instead of stopping
+    // at the matching container, which only happens with --no-cache
+    @Test
+    void givenCacheMiss_whenGetYamlFileEnvEntriesIsCalled_indexesWholeYamlFile() throws IOException {
+        // the last document of the file is invalid, since it is never reached by the scan that stops at the match
+        String content = Files.readString(Paths.get(MULTI_DOCUMENT_YAML_FILE_NAME));
+        Path multiDocumentYamlFile = Files.writeString(tempDirectory.resolve("multi-document.yml"), content.substring(0, content.lastIndexOf("---")));
+        Path recordingFile = tempDirectory.resolve("recording.jfr");
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+        List<YamlFileEnvEntry> cachedEnv;
+        List<YamlFileEnvEntry> scannedEnv;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.glenneligio.ManifestParsed");
+            recording.start();
+            cachedEnv = new YamlServiceImpl(manifestCache).getYamlFileEnvEntries(multiDocumentYamlFile.toString(), "client-service");
+            scannedEnv = new YamlServiceImpl(null).getYamlFileEnvEntries(multiDocumentYamlFile.toString(), "client-service");
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        ManifestIndex cachedIndex = manifestCache.get(multiDocumentYamlFile.toFile());
+        Assertions.assertNotNull(cachedIndex);
+        Assertions.assertNotNull(cachedIndex.findContainer("other-service"));
+        Assertions.assertEquals(1, manifestCache.getMisses());
+        Assertions.assertEquals(cachedEnv, scannedEnv);
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+        Assertions.assertEquals(2, events.size());
+        // all the containers are read with the cache, and only the ones up to the match with --no-cache
+        Assertions.assertEquals(cachedIndex.getContainers().size(), events.get(0).getInt("containers"));
+        Assertions.assertTrue(events.get(1).getInt("containers") < events.get(0).getInt("containers"));
+    }
+
+    // get
+    // the ConfigMap references and data of a cached index resolve to the same env as the yaml file
+    @Test
+    void givenYamlFileWithConfigMaps_returnsCachedIndexWithSameEnv() throws IOException {
+        Path configMapYamlFile = Files.copy(Paths.get(CONFIG_MAP_YAML_FILE_NAME), tempDirectory.resolve("configmap.yml"));
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+        ManifestIndex expected = new YamlServiceImpl(manifestCache).getManifestIndex(configMapYamlFile.toString());
+
+        ManifestIndex result = manifestCache.get(configMapYamlFile.toFile());
+
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(new ArrayList<>(expected.getContainers()), new ArrayList<>(result.getContainers()));
+        Assertions.assertEquals(expected.getConfigMaps(), result.getConfigMaps());
+        Assertions.assertEquals(expected.getYamlFileEnvEntries("client-service"), result.getYamlFileEnvEntries("client-service"));
+        Assertions.assertEquals(
+                expected.getYamlFileEnvEntries("client-service").stream().map(YamlFileEnvEntry::getSecretKeyRef).collect(Collectors.toList()),
+                result.getYamlFileEnvEntries("client-service").stream().map(YamlFileEnvEntry::getSecretKeyRef).collect(Collectors.toList()));
+    }
+
+    // get
+    // yaml file whose content changed since it was cached, returns null
+    @Test
+    void givenChangedYamlFile_returnsNull() throws IOException {
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+        new YamlServiceImpl(manifestCache).getManifestIndex(yamlFile.toString());
+        Files.writeString(yamlFile, "\n# changed\n", StandardOpenOption.APPEND);
+
+        ManifestIndex result = manifestCache.get(yamlFile.toFile());
+
+        Assertions.assertNull(result);
+    }
+
+    // get
+    // yaml file that was only touched, returns the cached index after checking its content hash
+    @Test
+    void givenTouchedYamlFileWithSameContent_returnsCachedIndex() throws IOException {
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+        ManifestIndex expected = new YamlServiceImpl(manifestCache).getManifestIndex(yamlFile.toString());
+        Files.setLastModifiedTime(yamlFile, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        ManifestIndex result = manifestCache.get(yamlFile.toFile());
+
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(new ArrayList<>(expected.getContainers()), new ArrayList<>(result.getContainers()));
+    }
+
+    // get
+    // yaml file that was never cached, returns null
+    @Test
+    void givenYamlFileNotCached_returnsNull() {
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+
+        ManifestIndex result = manifestCache.get(yamlFile.toFile());
+
+        Assertions.assertNull(result);
+    }
+
+    // put
+    // cache going beyond the max size, removes the least recently used cache files
+    @Test
+    void givenCacheBeyondMaxSize_removesLeastRecentlyUsedFiles() throws IOException {
+        ManifestCache unboundedCache = new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE);
+        new YamlServiceImpl(unboundedCache).getManifestIndex(yamlFile.toString());
+        long cacheFileSize = listCacheFiles().get(0).toFile().length();
+        for(Path cacheFile : listCacheFiles()) {
+            Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        }
+        Path otherYamlFile = Files.copy(Paths.get(OTHER_YAML_FILE_NAME), tempDirectory.resolve("other-deployment.yml"));
+        ManifestCache manifestCache = new ManifestCache(cacheDirectory, cacheFileSize);
+
+        new YamlServiceImpl(manifestCache).getManifestIndex(otherYamlFile.toString());
+
+        Assertions.assertEquals(1, listCacheFiles().size());
+        Assertions.assertNull(manifestCache.get(yamlFile.toFile()));
+        Assertions.assertNotNull(manifestCache.get(otherYamlFile.toFile()));
+    }
+
+    // YamlServiceImpl with cache
+    // yaml file read a second time, returns the same env entries as the first time
+    @Test
+    void givenCachedYamlFile_returnsSameEnvEntries() throws IOException {
+        YamlService yamlService = new YamlServiceImpl(new ManifestCache(cacheDirectory, ManifestCache.DEFAULT_MAX_SIZE));
+        List<YamlFileEnvEntry> expected = new YamlServiceImpl().getYamlFileEnvEntries(yamlFile.toString(), "client-service");
+
+        List<YamlFileEnvEntry> first = yamlService.getYamlFileEnvEntries(yamlFile.toString(), "client-service");
+        List<YamlFileEnvEntry> second = yamlService.getYamlFileEnvEntries(yamlFile.toString(), "client-service");
+
+        Assertions.assertEquals(expected, first);
+        Assertions.assertEquals(expected, second);
+    }
+
+    private List<Path> listCacheFiles() throws IOException {
+        try (Stream<Path> cacheFiles = Files.list(cacheDirectory)) {
+            return cacheFiles.filter(path -> path.toString().endsWith(".bin")).collect(Collectors.toList());
+        }
+    }
+}
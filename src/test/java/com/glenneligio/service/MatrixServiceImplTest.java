@@ -0,0 +1,135 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.MatrixResult;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.YamlEnvIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class MatrixServiceImplTest {
+
+    private static final String PROPERTIES_FILE_NAME = "src/test/resources/application.properties";
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+    private static final String CONTAINER_IMAGE = "client-service";
+
+    @TempDir
+    Path tempDirectory;
+    private Path propertiesFile;
+    private Path devYamlFile;
+    private Path prodYamlFile;
+    private PropertiesService propertiesService;
+    private MatrixService matrixService;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        propertiesFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), tempDirectory.resolve("application.properties"));
+        devYamlFile = Files.copy(Paths.get(YAML_FILE_NAME), tempDirectory.resolve("dev.yml"));
+        prodYamlFile = Files.writeString(tempDirectory.resolve("prod-eu.yml"),
+                Files.readString(Paths.get(YAML_FILE_NAME)).replace("value: \"localhost\"", "value: \"db.prod-eu\""), StandardCharsets.UTF_8);
+        propertiesService = Mockito.spy(new PropertiesServiceImpl());
+        matrixService = new MatrixServiceImpl(new YamlServiceImpl(), propertiesService, 2);
+    }
+
+    // run
+    // the template is parsed once, and each environment is written to the same file as a single injection
+    @Test
+    void givenSeveralEnvironments_parsesTemplateOnceAndWritesFilePerEnvironment() throws IOException {
+        List<MatrixResult> results = matrixService.run(propertiesFile.toString(), List.of(devYamlFile.toString(), prodYamlFile.toString()), CONTAINER_IMAGE);
+
+        Assertions.assertEquals(List.of("dev", "prod-eu"), results.stream().map(MatrixResult::getEnvironment).collect(Collectors.toList()));
+        Mockito.verify(propertiesService, Mockito.times(1)).parseTemplate(propertiesFile.toString());
+        for(Path yamlFile : List.of(devYamlFile, prodYamlFile)) {
+            String environment = MatrixServiceImpl.getEnvironment(yamlFile.toString());
+            Path expectedFile = tempDirectory.resolve("expected-" + environment);
+            new PropertiesServiceImpl().injectEnvFromYaml(propertiesFile.toString(), expectedFile.toString(),
+                    new YamlEnvIndex(new YamlServiceImpl().getYamlFileEnvEntries(yamlFile.toString(), CONTAINER_IMAGE)), entry -> {});
+            Assertions.assertEquals(Files.readString(expectedFile), Files.readString(tempDirectory.resolve("application-" + environment + ".properties")));
+        }
+    }
+
+    // run
+    // a template with CRLF line terminators and no terminator on its last line is written the same way as a single injection
+    @Test
+    void givenCrlfTemplateWithoutLastTerminator_writesSameFileAsSingleInjection() throws IOException {
+        Path crlfFile = Files.writeString(tempDirectory.resolve("crlf.properties"),
+                "# comment\r\ndb.host=${DB_HOST}\r\nurl=jdbc://${DB_HOST}:${DB_PORT}/app\r\nlast=${JUST_AN_ENV:x}", StandardCharsets.UTF_8);
+
+        matrixService.run(crlfFile.toString(), List.of(devYamlFile.toString()), CONTAINER_IMAGE);
+        new PropertiesServiceImpl().injectEnvFromYaml(crlfFile.toString(),
+                new YamlEnvIndex(new YamlServiceImpl().getYamlFileEnvEntries(devYamlFile.toString(), CONTAINER_IMAGE)), entry -> {});
+
+        Assertions.assertEquals(Files.readString(Paths.get(crlfFile + "-injected")), Files.readString(tempDirectory.resolve("crlf-dev.properties")));
+    }
+
+    // buildDiffReport
+    // entries whose value differs between environments, or whose env is missing, are listed
+    @Test
+    void givenEnvironmentsWithDifferentValues_reportsDifferingAndMissingEntries() throws IOException {
+        List<MatrixResult> results = matrixService.run(propertiesFile.toString(), List.of(devYamlFile.toString(), prodYamlFile.toString()), CONTAINER_IMAGE);
+
+        Report report = matrixService.buildDiffReport(results);
+
+        Assertions.assertEquals(List.of("db.host (dev=localhost, prod-eu=db.prod-eu)"),
+                report.getSection("differing").getEntries().stream().map(Report.Entry::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of("env.notpresent.in.yaml (missing in dev, prod-eu)", "property.entry.with.comment (missing in dev, prod-eu)"),
+                report.getSection("missing").getEntries().stream().map(Report.Entry::getName).collect(Collectors.toList()));
+    }
+
+    // buildDiffReport
+    // secret values resolved by a secret provider are compared, but their values are not printed
+    @Test
+    void givenResolvedSecretsWithDifferentValues_reportsDifferingEntryWithoutValues() throws IOException {
+        Files.writeString(prodYamlFile, Files.readString(prodYamlFile).replace("name: sampleSealedSecretNamespace", "name: prodSecret"), StandardCharsets.UTF_8);
+        SecretResolver secretResolver = new SecretResolver(secretName -> Map.of("nameKeyOfSecret", secretName + "-s3cret"), Duration.ofMinutes(1));
+        MatrixService secretMatrixService = new MatrixServiceImpl(new YamlServiceImpl(), propertiesService, 2, secretResolver);
+        List<MatrixResult> results = secretMatrixService.run(propertiesFile.toString(), List.of(devYamlFile.toString(), prodYamlFile.toString()), CONTAINER_IMAGE);
+
+        Report report = secretMatrixService.buildDiffReport(results);
+
+        Assertions.assertEquals(List.of("db.host (dev=localhost, prod-eu=db.prod-eu)", "secret.api.key (dev=<secret>, prod-eu=<secret>)"),
+                report.getSection("differing").getEntries().stream().map(Report.Entry::getName).collect(Collectors.toList()));
+        Assertions.assertTrue(Files.readString(tempDirectory.resolve("application-prod-eu.properties")).contains("prodSecret-s3cret"));
+    }
+
+    // run
+    // an environment that fails does not stop the others, and is left out of the diff report
+    @Test
+    void givenEnvironmentWithoutContainer_failsOnlyThatEnvironment() throws IOException {
+        Path emptyYamlFile = Files.copy(Paths.get("src/test/resources/deployment-no-matching-container.yml"), tempDirectory.resolve("stg.yml"));
+
+        List<MatrixResult> results = matrixService.run(propertiesFile.toString(), List.of(devYamlFile.toString(), emptyYamlFile.toString()), CONTAINER_IMAGE);
+
+        Assertions.assertFalse(results.get(0).getResult().isFailed());
+        Assertions.assertTrue(results.get(1).getResult().isFailed());
+        Assertions.assertTrue(matrixService.buildDiffReport(results).getSection("differing").getEntries().isEmpty());
+    }
+
+    // getOutputFileLocation
+    // the environment is added before the extension of the template, and yaml files with the same name throw RuntimeException
+    @Test
+    void givenEnvironment_namesOutputFileAfterIt() {
+        Assertions.assertEquals(Paths.get("config", "application-prod-eu.properties").toString(),
+                MatrixServiceImpl.getOutputFileLocation(Paths.get("config", "application.properties").toString(), "prod-eu"));
+        Assertions.assertEquals("prod-eu", MatrixServiceImpl.getEnvironment("overlays/prod-eu.yml"));
+        Assertions.assertThrows(RuntimeException.class, () -> matrixService.run(propertiesFile.toString(),
+                List.of("a/dev.yml", "b/dev.yaml"), CONTAINER_IMAGE));
+    }
+}
@@ -0,0 +1,104 @@
+package com.glenneligio.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.glenneligio.model.InjectionJob;
+import com.glenneligio.model.InjectionResult;
+import com.glenneligio.model.TemplateType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class MetricsRecorderTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    private MetricsRecorder recordMetrics() throws IOException {
+        Path inputFile = Files.writeString(tempDirectory.resolve("input.env"), "A=1\n");
+        MetricsRecorder metrics = new MetricsRecorder("env");
+        try (MetricsRecorder.Phase phase = metrics.startPhase("read")) {
+            phase.addFileRead(inputFile.toString());
+        }
+        try (MetricsRecorder.Phase phase = metrics.startPhase("write")) {
+            phase.addBytesWritten(10);
+        }
+        try (MetricsRecorder.Phase phase = metrics.startPhase("write")) {
+            phase.addBytesWritten(5);
+        }
+        InjectionResult result = new InjectionResult(new InjectionJob(TemplateType.ENV, inputFile.toString(), "deployment.yml", "client-service"));
+        result.setInjectedEntries(3);
+        result.setSecretEntries(1);
+        metrics.countResult(result);
+        metrics.count("entries", 4);
+        return metrics;
+    }
+
+    // write
+    // metrics are written as json, with the phases of the same name added together
+    @Test
+    void givenJsonMetricsFile_writesPhasesAndCounters() throws IOException {
+        MetricsRecorder metrics = recordMetrics();
+        Path metricsFile = tempDirectory.resolve("metrics.json");
+        metrics.write(metricsFile.toString());
+
+        JsonNode json = new ObjectMapper().readTree(metricsFile.toFile());
+        Assertions.assertEquals("env", json.get("command").asText());
+        Assertions.assertEquals(4, json.get("phases").get("read").get("bytesRead").asLong());
+        Assertions.assertEquals(15, json.get("phases").get("write").get("bytesWritten").asLong());
+        Assertions.assertTrue(json.get("phases").get("write").get("timeMillis").asDouble() >= 0);
+        Assertions.assertEquals(3, json.get("counters").get("injected").asLong());
+        Assertions.assertEquals(1, json.get("counters").get("secret").asLong());
+        Assertions.assertEquals(4, json.get("counters").get("entries").asLong());
+    }
+
+    // write
+    // metrics are written in prometheus text format for .prom files
+    @Test
+    void givenPrometheusMetricsFile_writesPrometheusTextFormat() throws IOException {
+        MetricsRecorder metrics = recordMetrics();
+        Path metricsFile = tempDirectory.resolve("properties_env_setup.prom");
+        metrics.write(metricsFile.toString());
+
+        String text = Files.readString(metricsFile);
+        Assertions.assertTrue(text.contains("# TYPE properties_env_setup_phase_duration_seconds gauge\n"));
+        Assertions.assertTrue(text.contains("properties_env_setup_phase_read_bytes{command=\"env\",phase=\"read\"} 4\n"));
+        Assertions.assertTrue(text.contains("properties_env_setup_phase_written_bytes{command=\"env\",phase=\"write\"} 15\n"));
+        Assertions.assertTrue(text.contains("properties_env_setup_count{command=\"env\",name=\"injected\"} 3\n"));
+        for(String line : text.split("\n")) {
+            Assertions.assertTrue(line.startsWith("#") || line.matches("properties_env_setup_[a-z_]+\\{[^}]*} [0-9.]+"), line);
+        }
+    }
+
+    // addResultFiles
+    // only the bytes the job really wrote are counted, and nothing for a job that was up to date
+    @Test
+    void givenResults_addResultFilesCountsTemplateAndBytesWritten() throws IOException {
+        Path templateFile = Files.writeString(tempDirectory.resolve("input.env"), "A=1\n");
+        InjectionJob job = new InjectionJob(TemplateType.ENV, templateFile.toString(), "deployment.yml", "client-service");
+        InjectionResult written = new InjectionResult(job);
+        written.setBytesWritten(6);
+        InjectionResult unchanged = new InjectionResult(job);
+        InjectionResult upToDate = new InjectionResult(job);
+        upToDate.setUpToDate(true);
+
+        MetricsRecorder metrics = new MetricsRecorder("env");
+        try (MetricsRecorder.Phase phase = metrics.startPhase("inject")) {
+            phase.addResultFiles(written);
+            phase.addResultFiles(unchanged);
+            phase.addResultFiles(upToDate);
+        }
+
+        Assertions.assertEquals(8, metrics.getPhases().get("inject").getBytesRead());
+        Assertions.assertEquals(6, metrics.getPhases().get("inject").getBytesWritten());
+    }
+}
@@ -0,0 +1,69 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.Placeholder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class PlaceholderTokenizerTest {
+
+    // tokenize
+    // placeholder with no default value
+    @Test
+    void givenPlaceholderWithNoDefaultValue_returnsPlaceholderWithNullDefaultValue() {
+        List<Placeholder> result = PlaceholderTokenizer.tokenize("${DB_HOST}");
+
+        Assertions.assertEquals(List.of(new Placeholder("DB_HOST", null, 0, 10)), result);
+    }
+
+    // tokenize
+    // default value can have = and : characters
+    @Test
+    void givenPlaceholderWithDefaultValueHavingEqualsAndColon_returnsWholeDefaultValue() {
+        List<Placeholder> result = PlaceholderTokenizer.tokenize("${DB_URL:jdbc:postgresql://localhost:5432/app?a=b}");
+
+        Assertions.assertEquals(List.of(new Placeholder("DB_URL", "jdbc:postgresql://localhost:5432/app?a=b", 0, 50)), result);
+    }
+
+    // tokenize
+    // several placeholders mixed with text
+    @Test
+    void givenSeveralPlaceholdersInValue_returnsAllPlaceholdersInOrder() {
+        List<Placeholder> result = PlaceholderTokenizer.tokenize("jdbc:postgresql://${DB_HOST}:${DB_PORT:5432}/app");
+
+        Assertions.assertEquals(List.of(new Placeholder("DB_HOST", null, 18, 28), new Placeholder("DB_PORT", "5432", 29, 44)), result);
+    }
+
+    // tokenize
+    // nested placeholder in default value is part of the default value
+    @Test
+    void givenNestedPlaceholderInDefaultValue_returnsOuterPlaceholderWithNestedDefaultValue() {
+        List<Placeholder> result = PlaceholderTokenizer.tokenize("${A:${B:x}}");
+
+        Assertions.assertEquals(List.of(new Placeholder("A", "${B:x}", 0, 11)), result);
+    }
+
+    // tokenize
+    // value with no placeholder
+    @Test
+    void givenValueWithNoPlaceholder_returnsEmptyList() {
+        Assertions.assertEquals(List.of(), PlaceholderTokenizer.tokenize("STATIC_VALUE"));
+    }
+
+    // tokenize
+    // invalid env name, or placeholder that is not closed
+    @Test
+    void givenInvalidPlaceholder_returnsNull() {
+        Assertions.assertNull(PlaceholderTokenizer.tokenize("${qweqweqweqwe}}"));
+        Assertions.assertNull(PlaceholderTokenizer.tokenize("${}"));
+        Assertions.assertNull(PlaceholderTokenizer.tokenize("${DB_HOST"));
+        Assertions.assertNull(PlaceholderTokenizer.tokenize("${A:${B:x}"));
+        Assertions.assertNull(PlaceholderTokenizer.tokenize("${DB-HOST}"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.EnvFileEntry;
+import com.glenneligio.model.YamlEnvIndex;
+import com.glenneligio.model.YamlFileEnvEntry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class ProcessingEventsTest {
+
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+    private static final String PROPERTIES_FILE_NAME = "src/test/resources/application.properties";
+    private static final String ENV_FILE_NAME = "src/test/resources/withValidEntries.env";
+
+    @TempDir
+    Path tempDirectory;
+
+    // ManifestParsed, EnvMatched and FileInjected events
+    // events are recorded with the paths and counts of each phase
+    @Test
+    void givenRecording_recordsEventsOfEachPhase() throws IOException {
+        Path propertiesFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), tempDirectory.resolve("application.properties"));
+        Path envFile = Files.copy(Paths.get(ENV_FILE_NAME), tempDirectory.resolve(".env"));
+        Path recordingFile = tempDirectory.resolve("recording.jfr");
+        List<YamlFileEnvEntry> yamlEnvEntries;
+        YamlEnvIndex yamlEnvIndex;
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.glenneligio.ManifestParsed");
+            recording.enable("com.glenneligio.EnvMatched");
+            recording.enable("com.glenneligio.FileInjected");
+            recording.start();
+
+            yamlEnvEntries = new YamlServiceImpl().getYamlFileEnvEntries(YAML_FILE_NAME, "client-service");
+            yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+            new PropertiesServiceImpl().injectEnvFromYaml(propertiesFile.toString(), yamlEnvIndex, entry -> {});
+            EnvService envService = new EnvServiceImpl();
+            List<EnvFileEntry> envFileEntries = envService.readOrCreateEnvFile(envFile.toString());
+            envService.populateEnvFileEntriesWithValuesFromYaml(envFileEntries, yamlEnvIndex);
+            envService.injectEnvFound(envFileEntries, envFile.toString());
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        List<String> eventNames = events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList());
+        Assertions.assertEquals(List.of("com.glenneligio.ManifestParsed", "com.glenneligio.EnvMatched", "com.glenneligio.FileInjected",
+                "com.glenneligio.EnvMatched", "com.glenneligio.FileInjected"), sortedByStartTime(events));
+        Assertions.assertEquals(5, eventNames.size());
+
+        RecordedEvent manifestParsed = events.get(eventNames.indexOf("com.glenneligio.ManifestParsed"));
+        Assertions.assertEquals(YAML_FILE_NAME, manifestParsed.getString("path"));
+        Assertions.assertEquals("client-service", manifestParsed.getString("image"));
+        Assertions.assertEquals(yamlEnvEntries.size(), manifestParsed.getInt("env"));
+        Assertions.assertFalse(manifestParsed.getBoolean("fromCache"));
+
+        for(RecordedEvent event : events) {
+            if(event.getEventType().getName().equals("com.glenneligio.FileInjected")) {
+                Assertions.assertTrue(event.getLong("bytesRead") > 0);
+                Assertions.assertTrue(Files.exists(Paths.get(event.getString("path") + "-injected")));
+            }
+            if(event.getEventType().getName().equals("com.glenneligio.EnvMatched")) {
+                Assertions.assertTrue(event.getInt("matched") > 0);
+                Assertions.assertEquals(yamlEnvIndex.size(), event.getInt("yamlEnv"));
+            }
+        }
+    }
+
+    private static List<String> sortedByStartTime(List<RecordedEvent> events) {
+        List<RecordedEvent> sortedEvents = new ArrayList<>(events);
+        sortedEvents.sort((first, second) -> first.getStartTime().compareTo(second.getStartTime()));
+        return sortedEvents.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList());
+    }
+}
@@ -2,21 +2,36 @@ package com.glenneligio.service;
 
 import com.glenneligio.model.EnvFileEntry;
 import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.Report;
+import com.glenneligio.model.YamlEnvIndex;
 import com.glenneligio.model.YamlFileEnvEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.assertj.core.util.Files;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @ExtendWith(MockitoExtension.class)
 @Slf4j
@@ -31,6 +46,9 @@ public class PropertiesServiceImplTest {
     private YamlFileEnvEntry y0, y1, y2;
     private List<YamlFileEnvEntry> validYamlEnvFileEntries = new ArrayList<>();
 
+    @TempDir
+    Path tempDirectory;
+
     @BeforeEach
     void setupEach() {
         populatedValidEnvFileEntries();
@@ -157,6 +175,44 @@ public class PropertiesServiceImplTest {
         Assertions.assertEquals(validPropertyFileEntries, result);
     }
 
+    // getPropertiesFileEntriesFromPropertiesFile
+    // CRLF properties file gives the same entries as the LF one, with no \r left in the names and values
+    @Test
+    void givenCrlfPropertiesFile_returnsSameEntriesAsLfFile() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        String content = Files.contentOf(new File(VALID_ENV_FILE_NAME), StandardCharsets.UTF_8);
+        File crlfFile = tempDirectory.resolve("crlf.properties").toFile();
+        java.nio.file.Files.writeString(crlfFile.toPath(), content.replace("\n", "\r\n"));
+
+        List<PropertiesFileEntry> result = propertiesService.getPropertiesFileEntriesFromPropertiesFile(crlfFile.getPath());
+
+        Assertions.assertEquals(validPropertyFileEntries, result);
+    }
+
+    // getPropertiesFileEntriesFromPropertiesFile
+    // properties file is decoded with the charset given, and replaced lines are encoded with it
+    @Test
+    void givenIso88591PropertiesFile_decodesAndEncodesWithCharsetGiven() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl(StandardCharsets.ISO_8859_1);
+        File file = tempDirectory.resolve("latin1.properties").toFile();
+        java.nio.file.Files.writeString(file.toPath(), "greeting=héllo\ntitle=${TITLE:défaut}\n", StandardCharsets.ISO_8859_1);
+
+        List<PropertiesFileEntry> result = propertiesService.getPropertiesFileEntriesFromPropertiesFile(file.getPath());
+        propertiesService.injectEnvFromYaml(file.getPath(), new YamlEnvIndex(List.of(new YamlFileEnvEntry("TITLE", "naïve", false))), entry -> {});
+
+        Assertions.assertEquals("héllo", result.get(0).getDefaultValue());
+        Assertions.assertEquals("défaut", result.get(1).getDefaultValue());
+        Assertions.assertArrayEquals("greeting=héllo\ntitle=${TITLE:naïve}\n".getBytes(StandardCharsets.ISO_8859_1),
+                java.nio.file.Files.readAllBytes(Paths.get(file.getPath() + "-injected")));
+    }
+
+    @Test
+    void givenCharsetThatIsNotAsciiCompatible_throwIllegalArgumentException() {
+        PropertiesService propertiesService = new PropertiesServiceImpl(StandardCharsets.UTF_16);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> propertiesService.getPropertiesFileEntriesFromPropertiesFile(VALID_ENV_FILE_NAME));
+    }
+
     // populateEnvFileEntriesWithValuesFromYaml
     // the PropertyFileEntry list content should be updated properly based on YamlFileEnvEntry list
     @Test
@@ -185,6 +241,26 @@ public class PropertiesServiceImplTest {
     }
 
 
+    // matching is linear, so 100k entries against 100k yaml envs is done well within the timeout
+    @Test
+    void givenLargeListOfPropertyFileEntryAndYamlFileEnvEntry_populatesEntriesWithinTimeout() {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        int entryCount = 100_000;
+        List<PropertiesFileEntry> propertyFileEntries = new ArrayList<>();
+        List<YamlFileEnvEntry> yamlEnvEntries = new ArrayList<>();
+        for(int i = 0; i < entryCount; i++) {
+            propertyFileEntries.add(new PropertiesFileEntry("prop." + i, "ENV_" + i, "default" + i, true, true, i + 1, false));
+            // half of the yaml envs matches the properties file
+            yamlEnvEntries.add(new YamlFileEnvEntry("ENV_" + (i * 2), "value" + i, false));
+        }
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            List<PropertiesFileEntry> result = propertiesService.populateEnvFileEntriesWithValuesFromYaml(propertyFileEntries, new YamlEnvIndex(yamlEnvEntries));
+
+            Assertions.assertEquals(entryCount / 2, result.stream().filter(PropertiesFileEntry::isInjected).count());
+        });
+    }
+
     // injectEnvFound
     // only inject entries that are valid, is injected, and not secret
     @Test
@@ -232,6 +308,162 @@ public class PropertiesServiceImplTest {
         Assertions.assertEquals(fileExpectedContent, fileResultContent);
     }
 
+    // injectEnvFromYaml
+    // single pass creates the same -injected file, and passes each populated entry in line order
+    @Test
+    void givenValidPropertyFileAndYamlEnvIndex_createsInjectedFileAndPassesPopulatedEntries() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        List<PropertiesFileEntry> expectedEntries = propertiesService.populateEnvFileEntriesWithValuesFromYaml(validPropertyFileEntries, validYamlEnvFileEntries);
+        List<PropertiesFileEntry> result = new ArrayList<>();
+
+        propertiesService.injectEnvFromYaml(VALID_ENV_FILE_NAME, new YamlEnvIndex(validYamlEnvFileEntries), result::add);
+
+        File file = new File(VALID_ENV_FILE_NAME + "-injected");
+        String fileResultContent = Files.contentOf(file, StandardCharsets.UTF_8);
+        String fileExpectedContent = Files.contentOf(new File(EXPECTED_ENV_FILE), StandardCharsets.UTF_8);
+        Assertions.assertEquals(expectedEntries, result);
+        Assertions.assertEquals(fileExpectedContent, fileResultContent);
+    }
+
+    @Test
+    void givenNonExistingPropertyFile_whenInjectEnvFromYaml_throwRuntimeException() {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+
+        Assertions.assertThrows(RuntimeException.class, () -> propertiesService.injectEnvFromYaml(NON_EXISTENT_FILE, new YamlEnvIndex(validYamlEnvFileEntries), entry -> {}));
+    }
+
+    // reading and writing is linear, so a 500k line properties file is injected well within the timeout
+    @Test
+    void givenLargePropertyFile_whenInjectEnvFromYaml_injectsWithinTimeout() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        int lineCount = 500_000;
+        File largeFile = tempDirectory.resolve("large.properties").toFile();
+        List<YamlFileEnvEntry> yamlEnvEntries = new ArrayList<>();
+        try (BufferedWriter writer = java.nio.file.Files.newBufferedWriter(largeFile.toPath(), StandardCharsets.UTF_8)) {
+            for(int i = 0; i < lineCount; i++) {
+                writer.write("prop." + i + "=${ENV_" + i + ":default" + i + "}");
+                writer.newLine();
+                // a tenth of the lines are injected
+                if(i % 10 == 0) {
+                    yamlEnvEntries.add(new YamlFileEnvEntry("ENV_" + i, "value" + i, false));
+                }
+            }
+        }
+        YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(yamlEnvEntries);
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+            int[] injectedCount = {0};
+            propertiesService.injectEnvFromYaml(largeFile.getPath(), yamlEnvIndex, entry -> {
+                if(entry.isInjected()) {
+                    injectedCount[0]++;
+                }
+            });
+
+            Assertions.assertEquals(lineCount / 10, injectedCount[0]);
+            Assertions.assertEquals(lineCount, java.nio.file.Files.readAllLines(Paths.get(largeFile.getPath() + "-injected")).size());
+        });
+    }
+
+    // injectEnvFromYaml
+    // CRLF properties file gives the same -injected file as the LF one, with CRLF line terminators
+    @Test
+    void givenCrlfPropertyFile_createsInjectedFileWithCrlfLineTerminators() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        String content = Files.contentOf(new File(VALID_ENV_FILE_NAME), StandardCharsets.UTF_8);
+        File crlfFile = tempDirectory.resolve("crlf.properties").toFile();
+        java.nio.file.Files.writeString(crlfFile.toPath(), content.replace("\n", "\r\n"));
+
+        propertiesService.injectEnvFromYaml(crlfFile.getPath(), new YamlEnvIndex(validYamlEnvFileEntries), entry -> {});
+
+        String expectedContent = Files.contentOf(new File(EXPECTED_ENV_FILE), StandardCharsets.UTF_8).replace("\n", "\r\n");
+        Assertions.assertArrayEquals(expectedContent.getBytes(StandardCharsets.UTF_8),
+                java.nio.file.Files.readAllBytes(Paths.get(crlfFile.getPath() + "-injected")));
+    }
+
+    // injectEnvFromYaml
+    // a new -injected file gets the default permissions of a new file, and a replaced one keeps its permissions
+    @Test
+    void givenPosixFileSystem_createsInjectedFileWithDefaultOrExistingPermissions() throws IOException {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        File file = tempDirectory.resolve("permissions.properties").toFile();
+        java.nio.file.Files.writeString(file.toPath(), "title=${TITLE:default}\n");
+        Path injectedFile = Paths.get(file.getPath() + "-injected");
+        Set<PosixFilePermission> defaultPermissions = java.nio.file.Files.getPosixFilePermissions(
+                java.nio.file.Files.createFile(tempDirectory.resolve("default-permissions")));
+
+        propertiesService.injectEnvFromYaml(file.getPath(), new YamlEnvIndex(List.of(new YamlFileEnvEntry("TITLE", "first", false))), entry -> {});
+        Assertions.assertEquals(defaultPermissions, java.nio.file.Files.getPosixFilePermissions(injectedFile));
+
+        Set<PosixFilePermission> existingPermissions = PosixFilePermissions.fromString("rw-rw-r--");
+        java.nio.file.Files.setPosixFilePermissions(injectedFile, existingPermissions);
+        propertiesService.injectEnvFromYaml(file.getPath(), new YamlEnvIndex(List.of(new YamlFileEnvEntry("TITLE", "second", false))), entry -> {});
+        Assertions.assertEquals(existingPermissions, java.nio.file.Files.getPosixFilePermissions(injectedFile));
+        Assertions.assertTrue(java.nio.file.Files.readString(injectedFile).contains("second"));
+    }
+
+    // injectEnvFromYaml
+    // multi-byte UTF-8 is kept on unchanged and replaced lines, long lines are kept whole,
+    // and the last line is terminated the same way as the other lines
+    @Test
+    void givenUtf8PropertyFileWithLongLineAndNoFinalNewline_createsInjectedFileWithSameBytesAsBefore() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        String longValue = "é".repeat(100_000);
+        String content = "greeting=héllo ✓ # commentaire\n" +
+                "long.value=" + longValue + "\n" +
+                "title=${TITLE:défaut}\n" +
+                "other.title=${OTHER_TITLE:défaut}";
+        File file = tempDirectory.resolve("utf8.properties").toFile();
+        java.nio.file.Files.writeString(file.toPath(), content);
+        YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(List.of(new YamlFileEnvEntry("TITLE", "naïve ✓", false)));
+
+        propertiesService.injectEnvFromYaml(file.getPath(), yamlEnvIndex, entry -> {});
+
+        String expectedContent = "greeting=héllo ✓ # commentaire\n" +
+                "long.value=" + longValue + "\n" +
+                "title=${TITLE:naïve ✓}\n" +
+                "other.title=${OTHER_TITLE:défaut}\n";
+        Assertions.assertArrayEquals(expectedContent.getBytes(StandardCharsets.UTF_8),
+                java.nio.file.Files.readAllBytes(Paths.get(file.getPath() + "-injected")));
+    }
+
+    // injectEnvFromYaml
+    // only the placeholders found in yaml are injected in a value with several placeholders, and nested defaults are kept
+    @Test
+    void givenPropertyFileWithSeveralPlaceholdersInValue_injectsPlaceholdersFoundInYaml() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        File file = tempDirectory.resolve("placeholders.properties").toFile();
+        java.nio.file.Files.writeString(file.toPath(), "db.url=jdbc:postgresql://${DB_HOST}:${DB_PORT:5432}/${DB_NAME:app}\n" +
+                "nested=${NESTED_OUTER:${NESTED_INNER:x}}\n" +
+                "not.injected=prefix-${ENV_NOT_IN_YAML:a=b}\n");
+        YamlEnvIndex yamlEnvIndex = new YamlEnvIndex(List.of(
+                new YamlFileEnvEntry("DB_HOST", "10.0.0.1", false),
+                new YamlFileEnvEntry("DB_PORT", "6543", false),
+                new YamlFileEnvEntry("DB_NAME", null, true),
+                new YamlFileEnvEntry("NESTED_OUTER", "outer", false)));
+        List<PropertiesFileEntry> result = new ArrayList<>();
+
+        propertiesService.injectEnvFromYaml(file.getPath(), yamlEnvIndex, result::add);
+
+        Assertions.assertEquals("db.url=jdbc:postgresql://${DB_HOST:10.0.0.1}:${DB_PORT:6543}/${DB_NAME:app}\n" +
+                "nested=${NESTED_OUTER:outer}\n" +
+                "not.injected=prefix-${ENV_NOT_IN_YAML:a=b}\n",
+                java.nio.file.Files.readString(Paths.get(file.getPath() + "-injected")));
+        Assertions.assertEquals(3, result.get(0).getPlaceholders().size());
+        Assertions.assertEquals("jdbc:postgresql://${DB_HOST}:${DB_PORT:5432}/${DB_NAME:app}", result.get(0).getRawValue());
+        Assertions.assertNull(result.get(0).getDefaultValue());
+        Assertions.assertNull(result.get(0).getEnvUsed());
+        Assertions.assertEquals(List.of("DB_HOST", "DB_PORT", "DB_NAME"), result.get(0).getEnvNames());
+        Assertions.assertEquals("db.url (DB_HOST, DB_PORT, DB_NAME)",
+                propertiesService.buildReport(result).getSection("injected").getEntries().get(0).getName());
+        Assertions.assertTrue(result.get(0).isInjected());
+        Assertions.assertTrue(result.get(0).isEnvValueSecret());
+        Assertions.assertTrue(result.get(0).isPresentInYaml());
+        Assertions.assertEquals("${NESTED_INNER:x}", result.get(1).getDefaultValue());
+        Assertions.assertFalse(result.get(2).isInjected());
+        Assertions.assertFalse(result.get(2).isPresentInYaml());
+    }
+
     // printReport
     // will not throw error
     @Test
@@ -258,4 +490,51 @@ public class PropertiesServiceImplTest {
 
         Assertions.assertDoesNotThrow(() -> propertiesService.printReport(updatedPropertyFileEntries));
     }
+
+    // buildReport
+    // report is written as json with a list of entries per section
+    @Test
+    void givenPopulatedPropertiesFileEntries_writesReportAsJson() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        List<PropertiesFileEntry> entries = propertiesService.getPropertiesFileEntriesFromPropertiesFile(VALID_ENV_FILE_NAME);
+        propertiesService.populateEnvFileEntriesWithValuesFromYaml(entries, validYamlEnvFileEntries);
+
+        Report report = propertiesService.buildReport(entries);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReportWriter.writeJson(report, out);
+
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        Assertions.assertEquals(List.of("invalid", "notInjected", "notInYaml", "injected", "secret"), Lists.newArrayList(json.fieldNames()));
+        for(Report.Section section : report.getSections()) {
+            Assertions.assertEquals(section.getEntries().size(), json.get(section.getName()).size());
+        }
+        Assertions.assertEquals(entries.stream().filter(PropertiesFileEntry::isInjected).count(), json.get("injected").size());
+        Assertions.assertTrue(json.get("injected").size() > 0);
+        Assertions.assertEquals("db.host", json.get("injected").get(0).get("name").asText());
+        Assertions.assertEquals(1, json.get("injected").get(0).get("lineNumber").asInt());
+    }
+
+    // addToReport
+    // report filled one entry at a time while injecting has the same sections as the report built from all entries
+    @Test
+    void givenEntriesFromInjection_addToReportFillsSameReportAsBuildReport() throws IOException {
+        PropertiesService propertiesService = new PropertiesServiceImpl();
+        Report report = propertiesService.createReport();
+        List<PropertiesFileEntry> entries = new ArrayList<>();
+        propertiesService.injectEnvFromYaml(VALID_ENV_FILE_NAME, new YamlEnvIndex(validYamlEnvFileEntries), entry -> {
+            propertiesService.addToReport(report, entry);
+            entries.add(entry);
+        });
+
+        Report builtReport = propertiesService.buildReport(entries);
+        for(Report.Section section : builtReport.getSections()) {
+            List<Report.Entry> addedEntries = report.getSection(section.getName()).getEntries();
+            Assertions.assertEquals(section.getEntries().size(), addedEntries.size());
+            for(int i = 0; i < addedEntries.size(); i++) {
+                Assertions.assertEquals(section.getEntries().get(i).getName(), addedEntries.get(i).getName());
+                Assertions.assertEquals(section.getEntries().get(i).getLineNumber(), addedEntries.get(i).getLineNumber());
+            }
+        }
+        Assertions.assertFalse(report.getSection("injected").getEntries().isEmpty());
+    }
 }
@@ -0,0 +1,153 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.SecretReference;
+import com.glenneligio.model.YamlFileEnvEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class SecretResolverTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    @Mock
+    private SecretProvider secretProvider;
+    private MutableClock clock;
+    private SecretResolver secretResolver;
+
+    @BeforeEach
+    void setupEach() {
+        clock = new MutableClock();
+        secretResolver = new SecretResolver(secretProvider, TTL, clock);
+    }
+
+    // resolve
+    // entries referencing a found secret key get its value, and the others are kept as they are
+    @Test
+    void givenEntriesReferencingSecrets_injectsFoundValuesAndKeepsOthers() throws IOException {
+        Mockito.when(secretProvider.getSecret("db")).thenReturn(Map.of("user", "admin", "password", "s3cret"));
+        Mockito.when(secretProvider.getSecret("missing")).thenReturn(Map.of());
+        List<YamlFileEnvEntry> entries = List.of(
+                new YamlFileEnvEntry("DB_USER", new SecretReference("db", "user")),
+                new YamlFileEnvEntry("DB_PASSWORD", new SecretReference("db", "password")),
+                new YamlFileEnvEntry("DB_TOKEN", new SecretReference("db", "token")),
+                new YamlFileEnvEntry("API_KEY", new SecretReference("missing", "key")),
+                new YamlFileEnvEntry("PLAIN", "value", false));
+
+        List<YamlFileEnvEntry> result = secretResolver.resolve(entries);
+
+        Assertions.assertEquals(List.of(
+                new YamlFileEnvEntry("DB_USER", "admin", false),
+                new YamlFileEnvEntry("DB_PASSWORD", "s3cret", false),
+                new YamlFileEnvEntry("DB_TOKEN", null, true),
+                new YamlFileEnvEntry("API_KEY", null, true),
+                new YamlFileEnvEntry("PLAIN", "value", false)), result);
+        Mockito.verify(secretProvider, Mockito.times(1)).getSecret("db");
+        Assertions.assertEquals(2, secretResolver.getLookups());
+    }
+
+    // resolve
+    // a secret is looked up again only once its ttl is over
+    @Test
+    void givenSecretUsedAgain_looksItUpAgainOnlyAfterTtl() throws IOException {
+        Mockito.when(secretProvider.getSecret("db")).thenReturn(Map.of("password", "s3cret"));
+        List<YamlFileEnvEntry> entries = List.of(new YamlFileEnvEntry("DB_PASSWORD", new SecretReference("db", "password")));
+
+        secretResolver.resolve(entries);
+        clock.advance(TTL.minusSeconds(1));
+        secretResolver.resolve(entries);
+        Mockito.verify(secretProvider, Mockito.times(1)).getSecret("db");
+
+        clock.advance(Duration.ofSeconds(1));
+        secretResolver.resolve(entries);
+        Mockito.verify(secretProvider, Mockito.times(2)).getSecret("db");
+    }
+
+    // resolve
+    // templates resolved at the same time make a single call per secret
+    @Test
+    void givenConcurrentResolves_looksUpEachSecretOnce() throws Exception {
+        Mockito.when(secretProvider.getSecret(Mockito.anyString())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return Map.of("password", invocation.getArgument(0) + "-password");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<YamlFileEnvEntry>>> futures = new ArrayList<>();
+            for(int i = 0; i < 32; i++) {
+                List<YamlFileEnvEntry> entries = List.of(
+                        new YamlFileEnvEntry("DB_PASSWORD", new SecretReference("db", "password")),
+                        new YamlFileEnvEntry("CACHE_PASSWORD", new SecretReference("cache", "password")));
+                futures.add(executor.submit(() -> secretResolver.resolve(entries)));
+            }
+            for(Future<List<YamlFileEnvEntry>> future : futures) {
+                Assertions.assertEquals(List.of(
+                        new YamlFileEnvEntry("DB_PASSWORD", "db-password", false),
+                        new YamlFileEnvEntry("CACHE_PASSWORD", "cache-password", false)), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Mockito.verify(secretProvider, Mockito.times(1)).getSecret("db");
+        Mockito.verify(secretProvider, Mockito.times(1)).getSecret("cache");
+    }
+
+    // resolve
+    // a failed lookup keeps the entries as secrets and is not retried before the ttl is over
+    @Test
+    void givenFailingProvider_keepsEntriesAsSecrets() throws IOException {
+        Mockito.when(secretProvider.getSecret("db")).thenThrow(new IOException("Connection refused"));
+        List<YamlFileEnvEntry> entries = List.of(new YamlFileEnvEntry("DB_PASSWORD", new SecretReference("db", "password")));
+
+        List<YamlFileEnvEntry> result = secretResolver.resolve(entries);
+        secretResolver.resolve(entries);
+
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("DB_PASSWORD", null, true)), result);
+        Mockito.verify(secretProvider, Mockito.times(1)).getSecret("db");
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
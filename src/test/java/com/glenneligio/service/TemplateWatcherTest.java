@@ -0,0 +1,136 @@
+package com.glenneligio.service;
+
+import com.glenneligio.model.InjectionResult;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@Slf4j
+public class TemplateWatcherTest {
+
+    private static final String MAPPING_FILE_NAME = "src/test/resources/batch/mapping.yml";
+    private static final String PROPERTIES_FILE_NAME = "src/test/resources/application.properties";
+    private static final String ENV_FILE_NAME = "src/test/resources/withValidEntries.env";
+    private static final String YAML_FILE_NAME = "src/test/resources/deployment-test.yml";
+
+    @TempDir
+    Path watchDirectory;
+    private Path propertiesFile;
+    private Path envFile;
+    private Path yamlFile;
+    private Path mappingFile;
+    private YamlService yamlService;
+    private TemplateWatcher templateWatcher;
+
+    @BeforeEach
+    void setupEach() throws IOException {
+        Path serviceDirectory = Files.createDirectories(watchDirectory.resolve("services/client-service"));
+        Path deployDirectory = Files.createDirectories(watchDirectory.resolve("deploy"));
+        propertiesFile = Files.copy(Paths.get(PROPERTIES_FILE_NAME), serviceDirectory.resolve("application.properties"));
+        envFile = Files.copy(Paths.get(ENV_FILE_NAME), serviceDirectory.resolve(".env"));
+        yamlFile = Files.copy(Paths.get(YAML_FILE_NAME), deployDirectory.resolve("client-service.yml"));
+        mappingFile = Files.copy(Paths.get(MAPPING_FILE_NAME), watchDirectory.resolve("mapping.yml"));
+        yamlService = Mockito.spy(new YamlServiceImpl());
+        templateWatcher = new TemplateWatcher(yamlService, new InjectionServiceImpl(), 2, Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void cleanupEach() throws IOException {
+        templateWatcher.close();
+    }
+
+    // start
+    // all the jobs are run, and the mapping, template and yaml files are watched
+    @Test
+    void givenMappingFile_runsAllJobsAndWatchesTheirFiles() throws IOException {
+        List<InjectionResult> results = templateWatcher.start(mappingFile.toString());
+
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertTrue(Files.exists(Paths.get(propertiesFile + "-injected")));
+        Assertions.assertTrue(Files.exists(Paths.get(envFile + "-injected")));
+        Assertions.assertEquals(List.of(mappingFile, propertiesFile, yamlFile, envFile),
+                List.copyOf(templateWatcher.getWatchedFiles()));
+    }
+
+    // onChange
+    // only the jobs of the changed template are run, using the yaml index kept in memory
+    @Test
+    void givenChangedTemplate_runsJobsOfTemplateWithoutReadingYamlAgain() throws IOException {
+        templateWatcher.start(mappingFile.toString());
+
+        List<InjectionResult> results = templateWatcher.onChange(List.of(propertiesFile));
+
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertEquals(propertiesFile.toString(), results.get(0).getJob().getTemplateFileLocation());
+        Mockito.verify(yamlService, Mockito.times(1)).getManifestIndex(yamlFile.toString());
+    }
+
+    // onChange
+    // the changed yaml file is read again and all the jobs using it are run
+    @Test
+    void givenChangedYamlFile_readsYamlAgainAndRunsAllJobsUsingIt() throws IOException {
+        templateWatcher.start(mappingFile.toString());
+
+        List<InjectionResult> results = templateWatcher.onChange(List.of(yamlFile));
+
+        Assertions.assertEquals(3, results.size());
+        Mockito.verify(yamlService, Mockito.times(2)).getManifestIndex(yamlFile.toString());
+    }
+
+    // onChange
+    // files that are not watched, such as the -injected files, do not run any job
+    @Test
+    void givenChangedFileThatIsNotWatched_runsNoJob() throws IOException {
+        templateWatcher.start(mappingFile.toString());
+
+        List<InjectionResult> results = templateWatcher.onChange(List.of(Paths.get(envFile + "-injected")));
+
+        Assertions.assertTrue(results.isEmpty());
+    }
+
+    // watch
+    // an edit of a template is picked up and its -injected file is written again
+    @Test
+    void givenTemplateEditedWhileWatching_writesInjectedFileAgain() throws Exception {
+        Thread watchThread = new Thread(() -> {
+            try {
+                templateWatcher.watch(mappingFile.toString());
+            } catch (IOException e) {
+                log.error("Watch failed", e);
+            }
+        });
+        watchThread.start();
+        Path injectedFile = Paths.get(envFile + "-injected");
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while(!Files.exists(injectedFile) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        // the edit is repeated, in case it happened before the directory was registered
+        while(!Files.readString(injectedFile, StandardCharsets.UTF_8).contains("WATCHED_ENV=watched") && System.nanoTime() < deadline) {
+            Files.writeString(envFile, System.lineSeparator() + "WATCHED_ENV=watched", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            Thread.sleep(1000);
+        }
+        templateWatcher.close();
+        watchThread.join(5000);
+
+        Assertions.assertTrue(Files.readString(injectedFile, StandardCharsets.UTF_8).contains("WATCHED_ENV=watched"));
+        Assertions.assertFalse(watchThread.isAlive());
+    }
+}
@@ -2,8 +2,13 @@ package com.glenneligio.service;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.glenneligio.model.ManifestIndex;
 import com.glenneligio.model.PropertiesFileEntry;
+import com.glenneligio.model.SecretReference;
 import com.glenneligio.model.YamlFileEnvEntry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import lombok.extern.slf4j.Slf4j;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Assertions;
@@ -11,14 +16,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @ExtendWith(MockitoExtension.class)
 @Slf4j
@@ -31,7 +41,13 @@ public class YamlServiceImplTest {
     private static final String NON_READABLE_YAML_FILE_NAME = "src/test/resources/deployment-non-readable.yml";
     private static final String NON_CONTAINER_FIELD = "src/test/resources/deployment-no-container.yml";
     private static final String NON_MATCHING_CONTAINER_ITEM = "src/test/resources/deployment-no-matching-container.yml";
+    private static final String MULTI_DOCUMENT_FILE_NAME = "src/test/resources/deployment-multi-document.yml";
+    private static final String WORKLOADS_FILE_NAME = "src/test/resources/deployment-workloads.yml";
+    private static final String CONFIG_MAP_FILE_NAME = "src/test/resources/deployment-configmap.yml";
     private static final String CONTAINER_IMAGE = "client-service";
+
+    @TempDir
+    Path tempDirectory;
     private YamlFileEnvEntry y0, y1, y2, y3, y4;
     private List<YamlFileEnvEntry> validYamlEnvFileEntries = new ArrayList<>();
 
@@ -105,4 +121,179 @@ public class YamlServiceImplTest {
         Assertions.assertFalse(result.isEmpty());
         Assertions.assertEquals(validYamlEnvFileEntries, result);
     }
+
+    // 8. if the yaml file have multiple documents - returns the env of the first matching workload, without reading the rest
+    @Test
+    void givenMultiDocumentYamlFile_WhenGetYamlFileEnvEntriesIsCalled_returnEnvOfMatchingWorkload() throws AccessDeniedException, FileNotFoundException, JsonProcessingException {
+        YamlService yamlService = new YamlServiceImpl();
+        List<YamlFileEnvEntry> result = yamlService.getYamlFileEnvEntries(MULTI_DOCUMENT_FILE_NAME, CONTAINER_IMAGE);
+        Assertions.assertEquals(validYamlEnvFileEntries, result);
+    }
+
+    // 9. if the matching workload is further down a multi document yaml file - returns its env
+    @Test
+    void givenMultiDocumentYamlFileWithMatchingImageInLaterDocument_WhenGetYamlFileEnvEntriesIsCalled_returnEmptyList() throws AccessDeniedException, FileNotFoundException, JsonProcessingException {
+        YamlService yamlService = new YamlServiceImpl();
+        List<YamlFileEnvEntry> result = yamlService.getYamlFileEnvEntries(MULTI_DOCUMENT_FILE_NAME, "other-service");
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    // getManifestIndex
+    // 10. indexes the containers of all the workloads, so each image can be looked up without reading the file again
+    @Test
+    void givenMultiDocumentYamlFile_WhenGetManifestIndexIsCalled_returnIndexOfAllWorkloadContainers() throws AccessDeniedException, FileNotFoundException {
+        YamlService yamlService = new YamlServiceImpl();
+        ManifestIndex result = yamlService.getManifestIndex(VALID_YAML_FILE_NAME);
+        Assertions.assertEquals(2, result.getContainers().size());
+        Assertions.assertEquals(validYamlEnvFileEntries, result.getYamlFileEnvEntries(CONTAINER_IMAGE));
+        Assertions.assertThrows(RuntimeException.class, () -> result.getYamlFileEnvEntries("non-existent-image"));
+    }
+
+    // 11. indexes the containers and init containers of CronJobs, Pods, DaemonSets and Deployments
+    @Test
+    void givenYamlFileWithAllWorkloadKinds_WhenGetManifestIndexIsCalled_returnIndexOfAllContainers() throws AccessDeniedException, FileNotFoundException {
+        YamlService yamlService = new YamlServiceImpl();
+        ManifestIndex result = yamlService.getManifestIndex(WORKLOADS_FILE_NAME);
+        Assertions.assertEquals(6, result.getContainers().size());
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("REPORT_TARGET", "s3://reports", false)), result.getYamlFileEnvEntries("report-job"));
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("DEBUG", "true", false)), result.getYamlFileEnvEntries("busybox"));
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("MIGRATION_MODE", "init", false)), result.getYamlFileEnvEntries("ghcr.io/acme/migrations"));
+    }
+
+    // 12. images are matched with or without their registry, tag or digest, after normalization
+    @Test
+    void givenImagesWithRegistryTagOrDigest_WhenGetYamlFileEnvEntriesIsCalled_returnEnvOfMatchingContainer() throws AccessDeniedException, FileNotFoundException {
+        ManifestIndex result = new YamlServiceImpl().getManifestIndex(WORKLOADS_FILE_NAME);
+        List<YamlFileEnvEntry> agentEnv = List.of(new YamlFileEnvEntry("LOG_LEVEL", "info", false));
+        Assertions.assertEquals(agentEnv, result.getYamlFileEnvEntries("fluent-bit"));
+        Assertions.assertEquals(agentEnv, result.getYamlFileEnvEntries("fluent-bit:2.2"));
+        Assertions.assertEquals(agentEnv, result.getYamlFileEnvEntries("library/fluent-bit@sha256:abc123"));
+        Assertions.assertEquals(agentEnv, result.getYamlFileEnvEntries("index.docker.io/library/fluent-bit:2.2@sha256:abc123"));
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("DEBUG", "true", false)), result.getYamlFileEnvEntries("busybox:latest"));
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("REPORT_TARGET", "s3://reports", false)),
+                result.getYamlFileEnvEntries("registry.example.com:5000/batch/report-job:2.1"));
+        Assertions.assertThrows(RuntimeException.class, () -> result.getYamlFileEnvEntries("fluent-bit:2.3"));
+        Assertions.assertThrows(RuntimeException.class, () -> result.getYamlFileEnvEntries("quay.io/acme/client-service"));
+    }
+
+    // 13. containers can be looked up by name, and are used before init containers of the same image
+    @Test
+    void givenContainerNameOrImageSharedWithInitContainer_WhenGetYamlFileEnvEntriesIsCalled_returnEnvOfContainer() throws AccessDeniedException, FileNotFoundException {
+        ManifestIndex result = new YamlServiceImpl().getManifestIndex(WORKLOADS_FILE_NAME);
+        List<YamlFileEnvEntry> appEnv = List.of(new YamlFileEnvEntry("DB_HOST", "localhost", false));
+        Assertions.assertEquals(appEnv, result.getYamlFileEnvEntries(CONTAINER_IMAGE));
+        Assertions.assertEquals(appEnv, result.getYamlFileEnvEntries("client-service-app"));
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("INIT_ONLY", "yes", false)), result.getYamlFileEnvEntries("wait-for-db"));
+    }
+
+    // 14. the scan that stops at the first match finds the same container as the index
+    @Test
+    void givenYamlFileWithAllWorkloadKinds_WhenGetYamlFileEnvEntriesIsCalled_returnSameEnvAsIndex() throws AccessDeniedException, FileNotFoundException, JsonProcessingException {
+        YamlService yamlService = new YamlServiceImpl();
+        ManifestIndex manifestIndex = yamlService.getManifestIndex(WORKLOADS_FILE_NAME);
+        for(String imageOrName : List.of(CONTAINER_IMAGE, "client-service-app", "wait-for-db", "fluent-bit:2.2", "report-job", "busybox", "migrations")) {
+            Assertions.assertEquals(manifestIndex.getYamlFileEnvEntries(imageOrName), yamlService.getYamlFileEnvEntries(WORKLOADS_FILE_NAME, imageOrName));
+        }
+    }
+
+    // 15. configMapKeyRef and envFrom configMapRef are resolved against the ConfigMaps of the yaml file,
+    // while secrets and missing ConfigMaps are kept as secrets
+    @Test
+    void givenContainerReferencingConfigMaps_WhenGetYamlFileEnvEntriesIsCalled_returnResolvedValues() throws AccessDeniedException, FileNotFoundException, JsonProcessingException {
+        List<YamlFileEnvEntry> expected = List.of(
+                new YamlFileEnvEntry("APP_MODE", "default", false),
+                new YamlFileEnvEntry("APP_TIMEOUT", "30", false),
+                new YamlFileEnvEntry("DB_URL", "jdbc:postgresql://db:5432/app", false),
+                new YamlFileEnvEntry("APP_MODE", "overridden", false),
+                new YamlFileEnvEntry("FROM_MISSING_CONFIG", null, true),
+                new YamlFileEnvEntry("API_KEY", null, true));
+
+        Assertions.assertEquals(expected, new YamlServiceImpl().getYamlFileEnvEntries(CONFIG_MAP_FILE_NAME, CONTAINER_IMAGE));
+        Assertions.assertEquals(expected, new YamlServiceImpl().getManifestIndex(CONFIG_MAP_FILE_NAME).getYamlFileEnvEntries(CONTAINER_IMAGE));
+    }
+
+    // 16. only the ConfigMap keys referenced by a container are kept in the index
+    @Test
+    void givenYamlFileWithUnreferencedConfigMapData_WhenGetManifestIndexIsCalled_keepOnlyReferencedData() throws AccessDeniedException, FileNotFoundException {
+        ManifestIndex result = new YamlServiceImpl().getManifestIndex(CONFIG_MAP_FILE_NAME);
+        Assertions.assertEquals(Map.of(
+                "app-config", Map.of("DB_URL", "jdbc:postgresql://db:5432/app"),
+                "app-settings", Map.of("MODE", "default", "TIMEOUT", "30")), result.getConfigMaps());
+    }
+
+    // 17. secretKeyRef entries keep the name and key of the secret, so their value can be looked up
+    @Test
+    void givenContainerReferencingSecret_WhenGetYamlFileEnvEntriesIsCalled_returnSecretReference() throws AccessDeniedException, FileNotFoundException, JsonProcessingException {
+        YamlFileEnvEntry result = new YamlServiceImpl().getYamlFileEnvEntries(CONFIG_MAP_FILE_NAME, CONTAINER_IMAGE).stream()
+                .filter(entry -> entry.getEnvName().equals("API_KEY"))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertTrue(result.isSecret());
+        Assertions.assertEquals(new SecretReference("app-secret", "API_KEY"), result.getSecretKeyRef());
+    }
+
+    // 18. the data of a ConfigMap no container references is never read, while a ConfigMap found before the container
+    // referencing it is read once all the containers are known, in the index and in the scan that stops at the first match
+    @Test
+    void givenConfigMapNotReferenced_WhenYamlFileIsRead_neverReadsItsData() throws IOException {
+        Path recordingFile = tempDirectory.resolve("recording.jfr");
+        ManifestIndex manifestIndex;
+        List<YamlFileEnvEntry> yamlFileEnvEntries;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.glenneligio.ManifestParsed");
+            recording.start();
+            manifestIndex = new YamlServiceImpl().getManifestIndex(CONFIG_MAP_FILE_NAME);
+            yamlFileEnvEntries = new YamlServiceImpl().getYamlFileEnvEntries(CONFIG_MAP_FILE_NAME, CONTAINER_IMAGE);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        Assertions.assertEquals(2, events.size());
+        for(RecordedEvent event : events) {
+            // app-config found before the container and app-settings found after it, but not unused-config
+            Assertions.assertEquals(2, event.getInt("configMapsRead"));
+        }
+        Assertions.assertEquals(List.of("app-config", "app-settings"), new ArrayList<>(manifestIndex.getConfigMaps().keySet()));
+        Assertions.assertEquals(manifestIndex.getYamlFileEnvEntries(CONTAINER_IMAGE), yamlFileEnvEntries);
+    }
+
+    // 19. a ConfigMap read after the scan is found by its position in code points, after multi-byte and surrogate pair characters
+    @Test
+    void givenConfigMapAfterNonAsciiData_WhenGetManifestIndexIsCalled_readsReferencedConfigMap() throws IOException {
+        Path yamlFile = Files.writeString(tempDirectory.resolve("deployment.yml"), String.join("\n",
+                "kind: ConfigMap",
+                "metadata:",
+                "  name: unused-config",
+                "data:",
+                "  GREETING: \"h\u00e9llo \ud83d\ude00\"",
+                "---",
+                "kind: ConfigMap",
+                "metadata:",
+                "  name: app-config",
+                "data:",
+                "  DB_URL: jdbc:postgresql://db:5432/\u00e4pp",
+                "  UNUSED_KEY: \ud83d\ude00",
+                "---",
+                "kind: Deployment",
+                "spec:",
+                "  template:",
+                "    spec:",
+                "      containers:",
+                "        - name: client-service",
+                "          image: client-service",
+                "          env:",
+                "            - name: DB_URL",
+                "              valueFrom:",
+                "                configMapKeyRef:",
+                "                  name: app-config",
+                "                  key: DB_URL",
+                ""), StandardCharsets.UTF_8);
+
+        ManifestIndex result = new YamlServiceImpl().getManifestIndex(yamlFile.toString());
+
+        Assertions.assertEquals(Map.of("app-config", Map.of("DB_URL", "jdbc:postgresql://db:5432/\u00e4pp")), result.getConfigMaps());
+        Assertions.assertEquals(List.of(new YamlFileEnvEntry("DB_URL", "jdbc:postgresql://db:5432/\u00e4pp", false)),
+                result.getYamlFileEnvEntries(CONTAINER_IMAGE));
+    }
 }